@@ -0,0 +1,92 @@
+package RBT;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks generating chains, in chains per second, walking <code>lanes</code> chains at once
+ * through a <code>BatchWalker</code> against one at a time through a <code>ChainWalker</code>.
+ *
+ * @see BatchWalker#walk(int, java.util.function.LongSupplier, ChainArray)
+ * @see ChainWalker#chainEnd(long)
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BatchWalkerBenchmark {
+  /** Chains walked per invocation. */
+  static final int CHAINS = 1024;
+
+  /** Plain-text key length. */
+  @Param({"5", "8"})
+  int keyLength;
+  /** Chain length. */
+  @Param({"100", "1000"})
+  int chainLength;
+  /** Chains walked at once. */
+  @Param({"16", "64", "256"})
+  int lanes;
+
+  /** Rainbow table 'Config' object. */
+  Config cfg;
+  /** Walker of many chains at once. */
+  BatchWalker batchWalker;
+  /** Walker of one chain at a time. */
+  ChainWalker walker;
+  /** Generator of head keys. */
+  SplittableRandom random;
+  /** Key space size. */
+  long keySpace;
+
+  /** Builds the walkers. */
+  @Setup
+  public void setup() {
+    cfg = Benchmarks.config(keyLength, chainLength, CHAINS, 1);
+    batchWalker = new BatchWalker(cfg, lanes);
+    walker = new ChainWalker(cfg);
+    random = new SplittableRandom();
+    keySpace = cfg.getKeySpace().size();
+  }
+
+  /**
+   * Chains walked <code>lanes</code> at a time, as during generation.
+   * @return Chains generated
+   */
+  @Benchmark
+  @OperationsPerInvocation(CHAINS)
+  public ChainArray batch() {
+    ChainArray chains = new ChainArray(CHAINS, false, false);
+    batchWalker.walk(CHAINS, () -> random.nextLong(keySpace), chains);
+    return chains;
+  }
+
+  /**
+   * Chains walked one at a time.
+   * @return Chains generated
+   */
+  @Benchmark
+  @OperationsPerInvocation(CHAINS)
+  public ChainArray perCall() {
+    ChainArray chains = new ChainArray(CHAINS, false, false);
+    for (int i = 0; i < CHAINS; i++) {
+      long head = random.nextLong(keySpace);
+      chains.add(walker.chainEnd(head), head, 0, 0);
+    }
+    return chains;
+  }
+}
@@ -0,0 +1,30 @@
+package RBT;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Helpers shared by the benchmarks.
+ */
+class Benchmarks {
+  /**
+   * Builds a <code>Config</code> as if the given parameters were passed on the command line.
+   * @param keyLength Key length
+   * @param chainLength Chain length
+   * @param rowCount Total rows
+   * @param tableCount Number of tables
+   * @param extra Any further CLI arguments
+   * @return Rainbow table 'Config' object
+   */
+  static Config config(int keyLength, int chainLength, long rowCount, int tableCount,
+      String... extra) {
+    List<String> args = new ArrayList<>(Arrays.asList(
+        "--key-length", Integer.toString(keyLength),
+        "--chain-length", Integer.toString(chainLength),
+        "--row-count", Long.toString(rowCount),
+        "--table-count", Integer.toString(tableCount)));
+    args.addAll(Arrays.asList(extra));
+    return new Config(args.toArray(new String[0]));
+  }
+}
@@ -0,0 +1,72 @@
+package RBT;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks adding rows to a table and removing collisions, as done by <code>Table.add()</code>
+ * and at the end of each generation round. Collision pressure is set by drawing ends from a range
+ * just large enough to give the requested share of duplicate ends.
+ *
+ * @see ChainArray
+ * @see Table#add(ChainArray, long[])
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ChainArrayBenchmark {
+  /** Rows added. */
+  @Param({"100000", "1000000"})
+  int rows;
+  /** Rough share of rows whose end repeats another. */
+  @Param({"0.0", "0.1", "0.5"})
+  double collisionRate;
+
+  /** Ends added, in generation order. */
+  long[] ends;
+  /** Heads added, in generation order. */
+  long[] heads;
+
+  /** Draws the rows added. */
+  @Setup
+  public void setup() {
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    long keySpace = Benchmarks.config(5, 10, rows, 1).getKeySpace().size();
+    // With 'rows' draws from 'range' values, about rows^2/(2*range) draws repeat, for small rates
+    long range = collisionRate == 0 ? Long.MAX_VALUE
+        : Math.max(1, (long) (rows / (2 * collisionRate)));
+    ends = new long[rows];
+    heads = new long[rows];
+    for (int i = 0; i < rows; i++) {
+      ends[i] = random.nextLong(range);
+      heads[i] = random.nextLong(keySpace);
+    }
+  }
+
+  /**
+   * Appends every row, then sorts and removes collisions.
+   * @return Rows removed
+   */
+  @Benchmark
+  public int addAndSort() {
+    ChainArray table = new ChainArray();
+    for (int i = 0; i < rows; i++) {
+      table.add(ends[i], heads[i]);
+    }
+    return table.sort();
+  }
+}
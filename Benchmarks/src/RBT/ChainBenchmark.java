@@ -0,0 +1,95 @@
+package RBT;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks walking a whole chain, as is done once per row during generation, and once per
+ * chain position during a lookup.
+ *
+ * @see Tables#hashToHashStep(byte[], int, Config)
+ * @see Tables#keyToKeyStep(String, int, Config)
+ * @see ChainWalker
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ChainBenchmark {
+  /** Plain-text key length. */
+  @Param({"4", "5", "6"})
+  int keyLength;
+  /** Chain length. */
+  @Param({"10", "100", "1000"})
+  int chainLength;
+
+  /** Rainbow table 'Config' object. */
+  Config cfg;
+  /** Walker whose buffers are reused. */
+  ChainWalker walker;
+  /** Key space index of the chain-head key. */
+  long head;
+  /** Chain-head key. */
+  String key;
+  /** Hash of the chain-head key. */
+  byte[] hash;
+
+  /** Picks a random chain. */
+  @Setup
+  public void setup() {
+    cfg = Benchmarks.config(keyLength, chainLength, 1000, 1);
+    walker = new ChainWalker(cfg);
+    head = ThreadLocalRandom.current().nextLong(cfg.getKeySpace().size());
+    key = Tables.indexToKey(head, cfg);
+    hash = Tables.createHash(key, cfg);
+  }
+
+  /**
+   * Full chain from a hash, with <code>String</code> keys.
+   * @return End-of-chain hash
+   */
+  @Benchmark
+  public byte[] hashToHashStep() {
+    return Tables.hashToHashStep(hash, chainLength - 1, cfg);
+  }
+
+  /**
+   * Full chain from a key, with <code>String</code> keys.
+   * @return Final key
+   */
+  @Benchmark
+  public String keyToKeyStep() {
+    return Tables.keyToKeyStep(key, chainLength - 1, cfg);
+  }
+
+  /**
+   * Full chain from a hash, through reused buffers.
+   * @return End-of-chain hash
+   */
+  @Benchmark
+  public byte[] walkerHashToHashStep() {
+    return walker.hashToHashStep(hash, chainLength - 1);
+  }
+
+  /**
+   * Full chain from a key space index, through reused buffers, as done during generation.
+   * @return Truncated end-of-chain hash
+   */
+  @Benchmark
+  public long walkerChainEnd() {
+    return walker.chainEnd(head);
+  }
+}
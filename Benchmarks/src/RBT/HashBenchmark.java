@@ -0,0 +1,86 @@
+package RBT;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks one hash of a key into a reused buffer, by the hand-rolled implementation used by
+ * <code>ChainWalker</code> and by <code>MessageDigest</code>.<br>
+ * The JDK has no MD4 provider, so unless one is installed <code>digest()</code> does nothing for
+ * <code>ntlm</code> and its score should be ignored.
+ *
+ * @see HashType#newFunction(int)
+ * @see HashType#newDigestFunction()
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HashBenchmark {
+  /** Hash algorithm, as given to <code>--hash</code>. */
+  @Param({"sha1", "md5", "sha256", "ntlm"})
+  String hash;
+  /** Plain-text key length. */
+  @Param({"5", "8"})
+  int keyLength;
+
+  /** Hand-rolled implementation, fixed to 'keyLength'. */
+  HashFunction handRolled;
+  /** 'MessageDigest' implementation, or null if there is no provider. */
+  HashFunction digest;
+  /** Key that is hashed. */
+  byte[] key;
+  /** Hash output buffer. */
+  byte[] out;
+
+  /** Picks a random key. */
+  @Setup
+  public void setup() {
+    HashType type = HashType.forName(hash);
+    handRolled = type.newFunction(keyLength);
+    try {
+      digest = type.newDigestFunction();
+    } catch (IllegalStateException e) {
+      digest = null;
+    }
+    Config cfg = Benchmarks.config(keyLength, 10, 1000, 1, "--hash", hash);
+    key = new byte[keyLength];
+    Tables.indexToKey(ThreadLocalRandom.current().nextLong(cfg.getKeySpace().size()), cfg, key);
+    out = new byte[type.getDigestLength()];
+  }
+
+  /**
+   * Hand-rolled hash.
+   * @return Hash
+   */
+  @Benchmark
+  public byte[] handRolled() {
+    handRolled.hash(key, 0, key.length, out);
+    return out;
+  }
+
+  /**
+   * <code>MessageDigest</code> hash.
+   * @return Hash
+   */
+  @Benchmark
+  public byte[] digest() {
+    if (digest != null) {
+      digest.hash(key, 0, key.length, out);
+    }
+    return out;
+  }
+}
@@ -0,0 +1,147 @@
+package RBT;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks reading and writing hex hashes, in lines per second, as done for every line of
+ * <code>--search-file</code> and every line <code>HashWords</code> writes. Each invocation
+ * handles a file's worth of lines, through <code>Hex</code> into reused buffers, against the
+ * substring, regex and <code>String</code> concatenation based code it replaced.
+ *
+ * @see Hex
+ * @see BatchSearch#search(java.io.BufferedReader, java.io.PrintStream)
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HexBenchmark {
+  /** Lines handled per invocation. */
+  static final int LINES = 1 << 20;
+
+  /** Hash, as given to <code>--hash</code>. */
+  @Param({"sha1", "sha256"})
+  String hash;
+
+  /** Hashes, in byte[] form. */
+  byte[][] hashes;
+  /** The same hashes, as hex lines. */
+  String[] lines;
+  /** Decoded hash buffer. */
+  byte[] decoded;
+  /** Encoded line buffer, as ASCII. */
+  byte[] encoded;
+
+  /** Builds a file's worth of random hashes. */
+  @Setup
+  public void setup() {
+    int length = HashType.forName(hash).getDigestLength();
+    SplittableRandom random = new SplittableRandom(1);
+    hashes = new byte[LINES][length];
+    lines = new String[LINES];
+    for (int i = 0; i < LINES; i++) {
+      for (int j = 0; j < length; j++) {
+        hashes[i][j] = (byte) random.nextInt(256);
+      }
+      lines[i] = Hex.toHexString(hashes[i]);
+    }
+    decoded = new byte[length];
+    encoded = new byte[length * 2];
+  }
+
+  /**
+   * Lines validated and decoded in one pass, into a reused buffer.
+   * @return Lines that were valid
+   */
+  @Benchmark
+  @OperationsPerInvocation(LINES)
+  public int decode() {
+    int valid = 0;
+    for (String line : lines) {
+      if (Hex.decode(line, decoded)) {
+        valid += decoded[0] & 1;
+      }
+    }
+    return valid;
+  }
+
+  /**
+   * Lines validated by regex, then decoded a substring at a time, as before.
+   * @return Lines that were valid
+   */
+  @Benchmark
+  @OperationsPerInvocation(LINES)
+  public int decodeLegacy() {
+    int valid = 0;
+    for (String line : lines) {
+      if (line.matches("^[a-f0-9]{" + decoded.length * 2 + "}")) {
+        byte[] result = new byte[line.length() / 2];
+        for (int i = 0; i < result.length; i++) {
+          result[i] = (byte) Integer.parseInt(line.substring(i * 2, i * 2 + 2), 16);
+        }
+        valid += result[0] & 1;
+      }
+    }
+    return valid;
+  }
+
+  /**
+   * Hashes encoded as ASCII hex into a reused buffer.
+   * @return Last line encoded
+   */
+  @Benchmark
+  @OperationsPerInvocation(LINES)
+  public byte[] encode() {
+    for (byte[] h : hashes) {
+      Hex.encode(h, encoded, 0);
+    }
+    return encoded;
+  }
+
+  /**
+   * Hashes encoded as hex <code>String</code>s, as <code>HashWords</code> prints them.
+   * @return Characters encoded
+   */
+  @Benchmark
+  @OperationsPerInvocation(LINES)
+  public int encodeString() {
+    int length = 0;
+    for (byte[] h : hashes) {
+      length += Tables.byteArrayToHexString(h).length();
+    }
+    return length;
+  }
+
+  /**
+   * Hashes encoded a byte at a time by <code>String</code> concatenation, as before.
+   * @return Characters encoded
+   */
+  @Benchmark
+  @OperationsPerInvocation(LINES)
+  public int encodeLegacy() {
+    int length = 0;
+    for (byte[] h : hashes) {
+      String result = "";
+      for (int i = 0; i < h.length; i++) {
+        result += Integer.toString((h[i] & 0xff) + 0x100, 16).substring(1);
+      }
+      length += result.length();
+    }
+    return length;
+  }
+}
@@ -0,0 +1,101 @@
+package RBT;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks a single link of a chain: one reduction, by each of the reductions, or one hash.
+ *
+ * @see Tables#hashToKey(byte[], int, Config)
+ * @see Tables#createHash(String, Config)
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ReductionBenchmark {
+  /** Plain-text key length. */
+  @Param({"4", "5", "6", "8"})
+  int keyLength;
+  /** Reduction, as given to <code>--reduction</code>. */
+  @Param({"fold", "mix"})
+  String reduction;
+
+  /** Rainbow table 'Config' object. */
+  Config cfg;
+  /** Walker whose buffers are reused. */
+  ChainWalker walker;
+  /** Hash that is reduced. */
+  byte[] hash;
+  /** Key that is hashed. */
+  String key;
+  /** Key that is hashed, as bytes. */
+  byte[] keyBytes;
+  /** Reduction output buffer. */
+  byte[] keyBuffer;
+  /** Salt used for reduction, past the point where the salt hack applies. */
+  int salt;
+
+  /** Picks a random key and hash. */
+  @Setup
+  public void setup() {
+    cfg = Benchmarks.config(keyLength, 10, 1000, 1, "--reduction", reduction);
+    walker = new ChainWalker(cfg);
+    long head = ThreadLocalRandom.current().nextLong(cfg.getKeySpace().size());
+    key = Tables.indexToKey(head, cfg);
+    keyBytes = key.getBytes();
+    hash = Tables.createHash(key, cfg);
+    keyBuffer = new byte[keyLength];
+    salt = cfg.getKeySpace().getCharsetSize() + 1;
+  }
+
+  /**
+   * Reduction to a <code>String</code>.
+   * @return Reduced key
+   */
+  @Benchmark
+  public String hashToKey() {
+    return Tables.hashToKey(hash, salt, cfg);
+  }
+
+  /**
+   * Reduction into a reused buffer.
+   * @return Reduced key
+   */
+  @Benchmark
+  public byte[] hashToKeyBuffer() {
+    Tables.hashToKey(hash, salt, cfg, keyBuffer);
+    return keyBuffer;
+  }
+
+  /**
+   * SHA-1 of a <code>String</code> through the shared <code>Config</code> hash function.
+   * @return Hash
+   */
+  @Benchmark
+  public byte[] createHash() {
+    return Tables.createHash(key, cfg);
+  }
+
+  /**
+   * SHA-1 into a reused buffer.
+   * @return Hash
+   */
+  @Benchmark
+  public byte[] walkerHash() {
+    return walker.hash(keyBytes);
+  }
+}
@@ -0,0 +1,154 @@
+package RBT;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks <code>Search.keyFromHash()</code> for hashes that are in the table (hits), and
+ * hashes that aren't (misses). A miss always walks every chain position, unless its candidates
+ * are cached, as in the cached variants, where only table probes and walks from heads remain.<br>
+ * Tables are generated, or loaded, in the working directory, like <code>Main</code> does.
+ *
+ * @see Search#keyFromHash(String)
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SearchBenchmark {
+  /** Hashes searched for, of each kind. */
+  static final int HASHES = 1024;
+
+  /** The table searched, shared by every thread. */
+  @State(Scope.Benchmark)
+  public static class TableState {
+    /** Plain-text key length. */
+    @Param({"5"})
+    int keyLength;
+    /** Chain length. */
+    @Param({"10", "100", "1000"})
+    int chainLength;
+    /** Number of tables. */
+    @Param({"1", "4"})
+    int tableCount;
+    /** Total rows. */
+    @Param({"100000"})
+    long rowCount;
+    /** Index tables are searched with. */
+    @Param({"sorted", "hash"})
+    String index;
+
+    /** Rainbow table 'Config' object. */
+    Config cfg;
+    /** The table. */
+    Table table;
+    /** Hashes of keys from within the table's chains. */
+    String[] hits = new String[HASHES];
+    /** Random hashes. */
+    String[] misses = new String[HASHES];
+
+    /**
+     * Generates, or loads, the table, and picks hashes to search for.
+     * @throws IOException Unable to read the table file
+     */
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+      cfg = Benchmarks.config(keyLength, chainLength, rowCount, tableCount, "--index", index);
+      table = new Table(cfg);
+      // Rows of the file are in order, whichever index is searched
+      List<ChainIndex> sorted = TableFile.map(Paths.get(table.fileName), cfg);
+
+      ThreadLocalRandom random = ThreadLocalRandom.current();
+      ChainWalker walker = new ChainWalker(cfg);
+      for (int i = 0; i < HASHES; i++) {
+        // Any key along any stored chain is a hit
+        ChainIndex chains = sorted.get(random.nextInt(tableCount));
+        long head = chains.getHead(random.nextLong(chains.size()));
+        byte[] key = walker.keyToKeyStep(head, random.nextInt(chainLength));
+        hits[i] = Tables.byteArrayToHexString(walker.hash(key, walker.getKeyLength()));
+
+        byte[] hash = new byte[20];
+        random.nextBytes(hash);
+        misses[i] = Tables.byteArrayToHexString(hash);
+      }
+    }
+  }
+
+  /** Each thread's own 'Search'. */
+  Search search;
+  /** Each thread's own 'Search', reusing the candidates of earlier searches for the same hash. */
+  Search cachedSearch;
+  /** Position in the hashes searched for. */
+  int next;
+
+  /**
+   * Creates this thread's <code>Search</code>.
+   * @param state Table searched
+   */
+  @Setup(Level.Trial)
+  public void setup(TableState state) {
+    search = new Search(state.table, state.cfg);
+    cachedSearch = new Search(state.table, state.cfg, new CandidateCache(state.cfg));
+  }
+
+  /**
+   * Search for a hash that's in the table.
+   * @param state Table searched
+   * @return Key found
+   */
+  @Benchmark
+  public String hit(TableState state) {
+    next = (next + 1) & (HASHES - 1);
+    return search.keyFromHash(state.hits[next]);
+  }
+
+  /**
+   * Search for a hash that isn't in the table.
+   * @param state Table searched
+   * @return Blank
+   */
+  @Benchmark
+  public String miss(TableState state) {
+    next = (next + 1) & (HASHES - 1);
+    return search.keyFromHash(state.misses[next]);
+  }
+
+  /**
+   * Search for a hash that's in the table, once its candidates are cached.
+   * @param state Table searched
+   * @return Key found
+   */
+  @Benchmark
+  public String hitCached(TableState state) {
+    next = (next + 1) & (HASHES - 1);
+    return cachedSearch.keyFromHash(state.hits[next]);
+  }
+
+  /**
+   * Search for a hash that isn't in the table, once its candidates are cached.
+   * @param state Table searched
+   * @return Blank
+   */
+  @Benchmark
+  public String missCached(TableState state) {
+    next = (next + 1) & (HASHES - 1);
+    return cachedSearch.keyFromHash(state.misses[next]);
+  }
+}
@@ -0,0 +1,120 @@
+package RBT;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks writing and reading table files, as done by <code>Table.writeTableFile()</code> and
+ * <code>Table.openTableFile()</code>. Reading maps the file, then touches every row, which is the
+ * most a search could ever read. Opening reads the header, then searches one table once, which is
+ * the least. Results are per file; divide by rows for per-row cost.
+ *
+ * @see TableFile
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TableFileBenchmark {
+  /** Total rows. */
+  @Param({"1000000", "10000000"})
+  int rowCount;
+  /** Number of tables. */
+  @Param({"1", "4"})
+  int tableCount;
+
+  /** Rainbow table 'Config' object. */
+  Config cfg;
+  /** Sorted tables to write. */
+  List<ChainArray> tables;
+  /** File written and read. */
+  Path file;
+  /** End held by the first table. */
+  long probe;
+
+  /**
+   * Builds random tables, and writes them once so there's something to read.
+   * @throws IOException Unable to write the file
+   */
+  @Setup(Level.Trial)
+  public void setup() throws IOException {
+    cfg = Benchmarks.config(5, 10, rowCount, tableCount);
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    tables = new ArrayList<>(tableCount);
+    for (int t = 0; t < tableCount; t++) {
+      ChainArray table = new ChainArray(rowCount / tableCount);
+      for (int i = 0; i < rowCount / tableCount; i++) {
+        table.add(random.nextLong(), random.nextLong(cfg.getKeySpace().size()));
+      }
+      table.sort();
+      tables.add(table);
+    }
+    probe = tables.get(0).getEnd(tables.get(0).size() / 2);
+    file = Files.createTempFile("rbt-bench", ".rbt");
+    TableFile.write(file, tables, cfg);
+  }
+
+  /**
+   * Deletes the file.
+   * @throws IOException Unable to delete the file
+   */
+  @TearDown(Level.Trial)
+  public void tearDown() throws IOException {
+    Files.deleteIfExists(file);
+  }
+
+  /**
+   * Writes every table.
+   * @throws IOException Unable to write the file
+   */
+  @Benchmark
+  public void write() throws IOException {
+    TableFile.write(file, tables, cfg);
+  }
+
+  /**
+   * Maps every table and reads every row.
+   * @return Sum of heads, so nothing is optimized away
+   * @throws IOException Unable to read the file
+   */
+  @Benchmark
+  public long mapAndScan() throws IOException {
+    long sum = 0;
+    for (ChainIndex table : TableFile.map(file, cfg)) {
+      for (long row = 0; row < table.size(); row++) {
+        sum += table.getHead(row);
+      }
+    }
+    return sum;
+  }
+
+  /**
+   * Opens the file and searches the first table for one end.
+   * @return Row found
+   * @throws IOException Unable to read the file
+   */
+  @Benchmark
+  public long openAndFind() throws IOException {
+    return TableFile.open(file, cfg, 0).get(0).find(probe);
+  }
+}
@@ -0,0 +1,207 @@
+package RBT;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Searches a rainbow table for many hashes at once, spreading the searches over a pool of worker
+ * threads.<br>
+ * Hashes are streamed from their source one line at a time, and no more than a fixed number of
+ * searches are ever queued or running, so memory use doesn't depend on the number of hashes.
+ * Each line is validated and decoded in one pass, in either case, by <code>Hex</code>.
+ * Each worker has its own <code>Search</code>, and with it its own <code>ChainWalker</code> and
+ * <code>HashFunction</code>. The <code>Table</code> is only ever read, so it is shared.
+ *
+ * @see Config
+ * @see Search
+ * @see Table
+ */
+public class BatchSearch {
+  /** Searches allowed to be queued or running, per worker thread. */
+  static final int IN_FLIGHT_PER_THREAD = 64;
+
+  /**
+   * The passed "rainbow table" <code>Table</code> object.
+   * @see Table
+   */
+  private final Table rbt;
+  /**
+   * <code>Config</code> object that represents the table being passed.
+   * @see Config
+   */
+  private final Config cfg;
+  /**
+   * Candidate ends shared by every worker's <code>Search</code>, or null for none.
+   * @see CandidateCache
+   */
+  private final CandidateCache cache;
+
+  /** Hashes read from the source, valid or not. */
+  private final AtomicLong hashesRead = new AtomicLong();
+  /** Hashes for which a key was found. */
+  private final AtomicLong hashesFound = new AtomicLong();
+  /** Lines that weren't a valid hash, and were skipped. */
+  private final AtomicLong hashesInvalid = new AtomicLong();
+  /** Hashes computed over all searches. */
+  private final AtomicLong hashCount = new AtomicLong();
+  /** End-of-chain matches that failed to produce the key, over all searches. */
+  private final AtomicLong falseAlarmCount = new AtomicLong();
+  /** End-of-chain matches rejected by their check bits, over all searches. */
+  private final AtomicLong rejectedCount = new AtomicLong();
+
+  /**
+   * Constructs a <code>BatchSearch</code> object that works against the provided rainbow table.
+   * @see Config
+   * @see Table
+   * @param rbt Rainbow table, as represented by 'Table' object
+   * @param cfg Rainbow table 'Config' object
+   */
+  public BatchSearch(Table rbt, Config cfg) {
+    this(rbt, cfg, null);
+  }
+
+  /**
+   * Constructs a <code>BatchSearch</code> object that works against the provided rainbow table,
+   * and reuses the candidate ends held in <code>cache</code>.
+   * @see CandidateCache
+   * @param rbt Rainbow table, as represented by 'Table' object
+   * @param cfg Rainbow table 'Config' object
+   * @param cache Candidate ends shared between searches, or null for none
+   */
+  public BatchSearch(Table rbt, Config cfg, CandidateCache cache) {
+    this.rbt = rbt;
+    this.cfg = cfg;
+    this.cache = cache;
+  }
+
+  /**
+   * Search for every hash in <code>file</code>, one hex hash per line. Each hash
+   * that's found is written to <code>out</code> as <code>hash:key</code> as soon as its search
+   * completes, so output is not in input order.
+   * @param file File with hashes to search
+   * @param out Where found hashes are written
+   * @throws IOException Unable to read 'file'
+   */
+  public void searchFile(Path file, PrintStream out) throws IOException {
+    try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+      search(reader, out);
+    }
+  }
+
+  /**
+   * Search for every hash read from <code>reader</code>, one hex hash per line.
+   * @see #searchFile(Path, PrintStream)
+   * @param reader Source of hashes to search
+   * @param out Where found hashes are written
+   * @throws IOException Unable to read from 'reader'
+   */
+  public void search(BufferedReader reader, PrintStream out) throws IOException {
+    int threads = cfg.getThreadCount();
+    ExecutorService pool = Executors.newFixedThreadPool(threads);
+    // One 'Search' per worker thread
+    ThreadLocal<Search> searches = ThreadLocal.withInitial(() -> new Search(rbt, cfg, cache));
+    // Bounds the number of hashes held in memory at once
+    Semaphore inFlight = new Semaphore(threads * IN_FLIGHT_PER_THREAD);
+    int digestLength = cfg.getHashType().getDigestLength();
+
+    try {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        String hex = line.trim();
+        if (hex.isEmpty()) {
+          continue;
+        }
+        hashesRead.incrementAndGet();
+        // Handed to a worker, so each hash needs a buffer of its own
+        final byte[] hash = new byte[digestLength];
+        if (!Hex.decode(hex, hash)) {
+          hashesInvalid.incrementAndGet();
+          continue;
+        }
+
+        inFlight.acquireUninterruptibly();
+        pool.execute(() -> {
+          try {
+            Search search = searches.get();
+            String key = search.keyFromHash(hash);
+            hashCount.addAndGet(search.getHashCount());
+            falseAlarmCount.addAndGet(search.getFalseAlarmCount());
+            rejectedCount.addAndGet(search.getRejectedCount());
+            if (!key.isEmpty()) {
+              hashesFound.incrementAndGet();
+              out.println(Hex.toHexString(hash) + ":" + key);
+            }
+          } finally {
+            inFlight.release();
+          }
+        });
+      }
+    } finally {
+      // Let queued searches finish
+      pool.shutdown();
+      try {
+        pool.awaitTermination(Long.MAX_VALUE, TimeUnit.DAYS);
+      } catch (InterruptedException e) {
+        pool.shutdownNow();
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  /**
+   * Number of hashes read so far, including any invalid ones.
+   * @return Hashes read
+   */
+  public long getHashesRead() {
+    return hashesRead.get();
+  }
+
+  /**
+   * Number of hashes whose key was found so far.
+   * @return Hashes found
+   */
+  public long getHashesFound() {
+    return hashesFound.get();
+  }
+
+  /**
+   * Number of lines skipped so far, for not being a valid hash.
+   * @return Invalid hashes
+   */
+  public long getHashesInvalid() {
+    return hashesInvalid.get();
+  }
+
+  /**
+   * Number of hashes computed so far, over all searches.
+   * @return Hash count
+   */
+  public long getHashCount() {
+    return hashCount.get();
+  }
+
+  /**
+   * Number of end-of-chain matches walked so far that didn't produce the key, over all searches.
+   * @return False alarm count
+   */
+  public long getFalseAlarmCount() {
+    return falseAlarmCount.get();
+  }
+
+  /**
+   * Number of end-of-chain matches rejected by their check bits so far, over all searches.
+   * @return Rejected match count
+   */
+  public long getRejectedCount() {
+    return rejectedCount.get();
+  }
+}
@@ -0,0 +1,176 @@
+package RBT;
+
+import java.util.Arrays;
+
+/**
+ * SHA-1 of many keys at once. State and message words are held as structures of arrays, one
+ * <code>int[]</code> per word with one element per lane, so that every step of the compression
+ * is a simple loop over lanes that the JIT can vectorize.<p>
+ * Keys fit a single block, so every word past the longest key, padding included, is written
+ * once and kept. Only the words that may hold each lane's key, and its length, are written per
+ * hash.</p>
+ * Unlike the 'HashFunction' implementations, a <code>BatchSha1</code> only hashes keys of up to
+ * the length given at construction.
+ *
+ * @see Sha1Hash
+ * @see BatchWalker
+ */
+final class BatchSha1 {
+  /** Number of keys hashed at once. */
+  private final int lanes;
+  /** Longest key length, in bytes. */
+  private final int maxKeyLength;
+  /** Message schedule, by word then lane. The first 16 words are the block. */
+  private final int[][] w = new int[80][];
+  /** Working state, by word then lane. */
+  private final int[][] state = new int[5][];
+
+  /** Initial state. */
+  private static final int[] IV = {0x67452301, 0xEFCDAB89, 0x98BADCFE, 0x10325476, 0xC3D2E1F0};
+
+  /**
+   * Constructs a batched SHA-1 for keys of up to <code>maxKeyLength</code> bytes.
+   * @param lanes Number of keys hashed at once
+   * @param maxKeyLength Longest key length, no more than 55 bytes so that a key fits one block
+   */
+  BatchSha1(int lanes, int maxKeyLength) {
+    if (maxKeyLength > BlockHash.MAX_SHORT_INPUT) {
+      throw new IllegalArgumentException("Key too long for a single block: " + maxKeyLength);
+    }
+    this.lanes = lanes;
+    this.maxKeyLength = maxKeyLength;
+    for (int t = 0; t < w.length; t++) {
+      w[t] = new int[lanes];
+    }
+    for (int i = 0; i < state.length; i++) {
+      state[i] = new int[lanes];
+    }
+    // Padding past the words that may hold the key is all 0, then the length in bits
+    Arrays.fill(w[15], maxKeyLength * 8);
+  }
+
+  /**
+   * Number of keys hashed at once.
+   * @return Lanes
+   */
+  int getLanes() {
+    return lanes;
+  }
+
+  /**
+   * Write the key hashed by <code>lane</code>.
+   * @param lane Lane
+   * @param key Key, in its first 'length' bytes
+   * @param length Key length, no more than the longest given at construction
+   */
+  void setKey(int lane, byte[] key, int length) {
+    int words = length >>> 2;
+    int offset = 0;
+    for (int i = 0; i < words; i++, offset += 4) {
+      w[i][lane] = (key[offset] & 0xff) << 24 | (key[offset + 1] & 0xff) << 16
+          | (key[offset + 2] & 0xff) << 8 | (key[offset + 3] & 0xff);
+    }
+    int last = 0;
+    int remaining = length & 3;
+    for (int k = 0; k <= remaining; k++) {
+      int b = k < remaining ? key[offset + k] & 0xff : 0x80;
+      last |= b << (24 - 8 * k);
+    }
+    w[words][lane] = last;
+    // Clear whatever a longer key left behind
+    for (int i = words + 1; i <= maxKeyLength >>> 2; i++) {
+      w[i][lane] = 0;
+    }
+    w[15][lane] = length * 8;
+  }
+
+  /** Hash the key of every lane. */
+  void compress() {
+    for (int t = 16; t < 80; t++) {
+      int[] wt = w[t];
+      int[] w3 = w[t - 3];
+      int[] w8 = w[t - 8];
+      int[] w14 = w[t - 14];
+      int[] w16 = w[t - 16];
+      for (int i = 0; i < lanes; i++) {
+        wt[i] = Integer.rotateLeft(w3[i] ^ w8[i] ^ w14[i] ^ w16[i], 1);
+      }
+    }
+
+    for (int j = 0; j < 5; j++) {
+      Arrays.fill(state[j], IV[j]);
+    }
+    // Rather than move every word along each round, rename the arrays: the new 'a' is written
+    // over 'e', and 'b' is rotated in place to become the new 'c'
+    int[] a = state[0];
+    int[] b = state[1];
+    int[] c = state[2];
+    int[] d = state[3];
+    int[] e = state[4];
+    for (int t = 0; t < 80; t++) {
+      int[] wt = w[t];
+      if (t < 20) {
+        for (int i = 0; i < lanes; i++) {
+          e[i] += Integer.rotateLeft(a[i], 5) + ((b[i] & c[i]) | (~b[i] & d[i])) + 0x5A827999
+              + wt[i];
+          b[i] = Integer.rotateLeft(b[i], 30);
+        }
+      } else if (t < 40) {
+        for (int i = 0; i < lanes; i++) {
+          e[i] += Integer.rotateLeft(a[i], 5) + (b[i] ^ c[i] ^ d[i]) + 0x6ED9EBA1 + wt[i];
+          b[i] = Integer.rotateLeft(b[i], 30);
+        }
+      } else if (t < 60) {
+        for (int i = 0; i < lanes; i++) {
+          e[i] += Integer.rotateLeft(a[i], 5) + ((b[i] & c[i]) | (b[i] & d[i]) | (c[i] & d[i]))
+              + 0x8F1BBCDC + wt[i];
+          b[i] = Integer.rotateLeft(b[i], 30);
+        }
+      } else {
+        for (int i = 0; i < lanes; i++) {
+          e[i] += Integer.rotateLeft(a[i], 5) + (b[i] ^ c[i] ^ d[i]) + 0xCA62C1D6 + wt[i];
+          b[i] = Integer.rotateLeft(b[i], 30);
+        }
+      }
+      int[] temp = e;
+      e = d;
+      d = c;
+      c = b;
+      b = a;
+      a = temp;
+    }
+    // 80 renames, a multiple of 5, leave each word back in its own array
+    for (int j = 0; j < 5; j++) {
+      int[] s = state[j];
+      int iv = IV[j];
+      for (int i = 0; i < lanes; i++) {
+        s[i] += iv;
+      }
+    }
+  }
+
+  /**
+   * Truncated hash of <code>lane</code>, being its first 8 bytes.
+   * @see Tables#truncateHash(byte[])
+   * @param lane Lane
+   * @return Truncated hash
+   */
+  long truncated(int lane) {
+    return (long) state[0][lane] << 32 | (state[1][lane] & 0xffffffffL);
+  }
+
+  /**
+   * Write the hash of <code>lane</code> to <code>out</code>.
+   * @param lane Lane
+   * @param out Receives the 20-byte hash
+   */
+  void getHash(int lane, byte[] out) {
+    for (int j = 0; j < 5; j++) {
+      int value = state[j][lane];
+      out[j * 4] = (byte) (value >>> 24);
+      out[j * 4 + 1] = (byte) (value >>> 16);
+      out[j * 4 + 2] = (byte) (value >>> 8);
+      out[j * 4 + 3] = (byte) value;
+    }
+  }
+}
@@ -0,0 +1,283 @@
+package RBT;
+
+import java.util.Arrays;
+import java.util.function.LongSupplier;
+
+/**
+ * Walks many chains at once during generation, one per lane, hashing every lane's key per step
+ * with a <code>BatchSha1</code>. Lanes move in lockstep, but each chain is independent: a lane
+ * whose chain ends takes up the next head straight away, so distinguished-point chains of
+ * differing lengths keep the batch full.<br>
+ * Chains walked, ends and check bits included, are those <code>ChainWalker</code> walks from the
+ * same heads. Heads are drawn in the same order too, so only the order in which chains come out
+ * differs. Hashes other than SHA-1, and a single lane, walk one chain at a time through a
+ * <code>ChainWalker</code> instead.<p>
+ * A <code>BatchWalker</code> must not be shared between threads; create one per thread instead.
+ * </p>
+ *
+ * @see BatchSha1
+ * @see ChainWalker
+ * @see Config#getHashLanes()
+ */
+public class BatchWalker {
+  /**
+   * <code>Config</code> object that represents the chains walked.
+   * @see Config
+   */
+  private final Config cfg;
+  /** Length of the chains walked, or the longest allowed for distinguished-point chains. */
+  private final int chainLength;
+  /** Distinguished-point bits, or 0 for chains of a fixed length. */
+  private final int dpBits;
+  /** Shortest distinguished-point chain kept. */
+  private final int minChainLength;
+  /** Check bits collected per chain, or 0 for none. */
+  private final int checkBits;
+  /** Salt of the first reduction of the family walked. */
+  private final int saltBase;
+  /** Walker for chains walked one at a time, and for the check bit distances. */
+  private final ChainWalker walker;
+  /** Batched hash, or null when chains are walked one at a time. */
+  private final BatchSha1 sha1;
+  /** Check bit taken at each distance from the end of a chain, or -1 for none. */
+  private final int[] checkAt;
+  /** Key space index of each lane's chain-head key. */
+  private final long[] heads;
+  /** Hashes taken so far along each lane's chain. */
+  private final int[] lengths;
+  /** Check bits collected so far along each lane's chain. */
+  private final int[] checks;
+  /** Lowest bit of each hash along each lane's distinguished-point chain, by position. */
+  private final long[][] history;
+  /** Whether each lane is walking a chain. */
+  private final boolean[] busy;
+  /** Plain-text key produced by the most recent reduction. */
+  private final byte[] key;
+  /** Length of the plain-text key produced by the most recent reduction. */
+  private int keyLength;
+  /** Hash of a lane, as read out of the batch. */
+  private final byte[] hash = new byte[HashType.SHA1.getDigestLength()];
+  /** Hashes computed by lanes that were walking a chain. */
+  private long hashCount;
+
+  /**
+   * Constructs a <code>BatchWalker</code> for chains described by <code>cfg</code>, walking
+   * <code>--hash-lanes</code> chains at once.
+   * @param cfg Rainbow table 'Config' object
+   */
+  public BatchWalker(Config cfg) {
+    this(cfg, cfg.getHashLanes());
+  }
+
+  /**
+   * Constructs a <code>BatchWalker</code> for chains described by <code>cfg</code>.
+   * @param cfg Rainbow table 'Config' object
+   * @param lanes Chains walked at once
+   */
+  public BatchWalker(Config cfg, int lanes) {
+    this(cfg, lanes, 0);
+  }
+
+  /**
+   * Constructs a <code>BatchWalker</code> for the chains of reduction family <code>family</code>.
+   * @see Tables#familySalt(int, Config)
+   * @param cfg Rainbow table 'Config' object
+   * @param lanes Chains walked at once
+   * @param family Reduction family, the table's index with --salted-tables
+   */
+  public BatchWalker(Config cfg, int lanes, int family) {
+    this.cfg = cfg;
+    chainLength = cfg.getChainLen();
+    dpBits = cfg.getDpBits();
+    minChainLength = cfg.getMinChainLen();
+    checkBits = cfg.getCheckBits();
+    saltBase = Tables.familySalt(family, cfg);
+    walker = new ChainWalker(cfg, family);
+    key = new byte[cfg.getKeyLen()];
+    if (lanes < 2 || cfg.getHashType() != HashType.SHA1
+        || key.length > BlockHash.MAX_SHORT_INPUT) {
+      lanes = 0;
+    }
+    sha1 = lanes > 0 ? new BatchSha1(lanes, key.length) : null;
+
+    checkAt = new int[checkBits > 0 ? chainLength : 0];
+    Arrays.fill(checkAt, -1);
+    for (int i = 0; i < checkBits; i++) {
+      if (walker.getCheckDistance(i) < chainLength) {
+        checkAt[walker.getCheckDistance(i)] = i;
+      }
+    }
+    heads = new long[lanes];
+    lengths = new int[lanes];
+    checks = new int[lanes];
+    busy = new boolean[lanes];
+    history = new long[checkBits > 0 && dpBits > 0 ? lanes : 0][(chainLength + 63) / 64];
+  }
+
+  /**
+   * Walks <code>count</code> chains, adding those kept to <code>chains</code>. Distinguished-point
+   * chains that end too soon, or don't end in time, are dropped.
+   * @param count Number of chains to walk
+   * @param nextHead Supplies the key space index of each chain-head key, in turn
+   * @param chains Receives the chains kept, with their lengths and check bits as it holds them
+   * @return Number of chains dropped
+   */
+  public int walk(int count, LongSupplier nextHead, ChainArray chains) {
+    if (sha1 == null) {
+      return walkEach(count, nextHead, chains);
+    }
+
+    int drawn = 0;
+    int active = 0;
+    int rejected = 0;
+    for (int lane = 0; lane < sha1.getLanes(); lane++) {
+      busy[lane] = drawn < count;
+      if (busy[lane]) {
+        start(lane, nextHead.getAsLong());
+        drawn++;
+        active++;
+      }
+    }
+
+    while (active > 0) {
+      sha1.compress();
+      hashCount += active;
+      for (int lane = 0; lane < sha1.getLanes(); lane++) {
+        if (!busy[lane]) {
+          continue;
+        }
+        int length = ++lengths[lane];
+        sha1.getHash(lane, hash);
+        boolean ended;
+        if (dpBits > 0) {
+          long end = sha1.truncated(lane);
+          remember(lane, length - 1);
+          ended = Tables.isDistinguished(end, dpBits);
+          if (ended && length >= minChainLength) {
+            chains.add(end, heads[lane], length, recall(lane, length));
+          } else if (ended || length == chainLength) {
+            // Too short, too long, or stuck in a loop
+            ended = true;
+            rejected++;
+          }
+        } else {
+          check(lane, chainLength - length);
+          ended = length == chainLength;
+          if (ended) {
+            chains.add(sha1.truncated(lane), heads[lane], 0, checks[lane]);
+          }
+        }
+
+        if (!ended) {
+          keyLength = Tables.hashToKey(hash, saltBase + (dpBits > 0 ? 0 : length - 1), cfg, key);
+          sha1.setKey(lane, key, keyLength);
+        } else if (drawn < count) {
+          start(lane, nextHead.getAsLong());
+          drawn++;
+        } else {
+          busy[lane] = false;
+          active--;
+        }
+      }
+    }
+
+    return rejected;
+  }
+
+  /**
+   * Number of hashes computed by this walker since it was created.
+   * @return Hash count
+   */
+  public long getHashCount() {
+    return hashCount + walker.getHashCount();
+  }
+
+  // PRIVATE
+  /**
+   * Walks <code>count</code> chains one at a time, as <code>walk()</code> does.
+   * @param count Number of chains to walk
+   * @param nextHead Supplies the key space index of each chain-head key, in turn
+   * @param chains Receives the chains kept
+   * @return Number of chains dropped
+   */
+  private int walkEach(int count, LongSupplier nextHead, ChainArray chains) {
+    int rejected = 0;
+    for (int i = 0; i < count; i++) {
+      long head = nextHead.getAsLong();
+      if (dpBits > 0) {
+        int length = walker.distinguishedChain(head);
+        if (length > 0) {
+          chains.add(walker.getEnd(), head, length, walker.getChecks());
+        } else {
+          rejected++;
+        }
+      } else {
+        long end = walker.chainEnd(head);
+        chains.add(end, head, 0, walker.getChecks());
+      }
+    }
+
+    return rejected;
+  }
+
+  /**
+   * Start <code>lane</code> on the chain that begins with the key at <code>head</code>.
+   * @param lane Lane
+   * @param head Key space index of the chain-head key
+   */
+  private void start(int lane, long head) {
+    heads[lane] = head;
+    lengths[lane] = 0;
+    checks[lane] = 0;
+    keyLength = Tables.indexToKey(head, cfg, key);
+    sha1.setKey(lane, key, keyLength);
+  }
+
+  /**
+   * Take the check bit, if any, from the hash just read out of <code>lane</code>, being
+   * <code>distance</code> steps from the end of its chain.
+   * @param lane Lane
+   * @param distance Steps from the end of the chain
+   */
+  private void check(int lane, int distance) {
+    if (checkBits > 0) {
+      int bit = checkAt[distance];
+      if (bit >= 0) {
+        checks[lane] |= (hash[hash.length - 1] & 1) << bit;
+      }
+    }
+  }
+
+  /**
+   * Hold the lowest bit of the hash just read out of <code>lane</code>, at <code>position</code>
+   * along its distinguished-point chain, until its distance from the end is known.
+   * @param lane Lane
+   * @param position Position, counting from 0 at the chain head
+   */
+  private void remember(int lane, int position) {
+    if (history.length > 0) {
+      long[] bits = history[lane];
+      if ((hash[hash.length - 1] & 1) != 0) {
+        bits[position >>> 6] |= 1L << position;
+      } else {
+        bits[position >>> 6] &= ~(1L << position);
+      }
+    }
+  }
+
+  /**
+   * Check bits of the distinguished-point chain of <code>length</code> hashes walked by
+   * <code>lane</code>.
+   * @param lane Lane
+   * @param length Hashes walked, the last being the end of the chain
+   * @return Check bits
+   */
+  private int recall(int lane, int length) {
+    int result = 0;
+    for (int i = 0; i < checkBits && walker.getCheckDistance(i) < length; i++) {
+      int position = length - 1 - walker.getCheckDistance(i);
+      result |= (int) (history[lane][position >>> 6] >>> position & 1) << i;
+    }
+    return result;
+  }
+}
@@ -0,0 +1,173 @@
+package RBT;
+
+import java.util.Arrays;
+
+/**
+ * The Merkle-Damgard structure shared by the MD4, MD5, SHA-1 and SHA-256 implementations: input
+ * is padded and split into 64-byte blocks, each read as sixteen 32-bit words and compressed into
+ * the state.<p>
+ * Keys are short and all of one length, so a key fits a single block, and every word past the
+ * key is the same from hash to hash. For inputs of the length given at construction, those words
+ * are left in place from the last hash, and only the words holding the key are written. The
+ * input is read straight into words, with none of <code>MessageDigest</code>'s buffering.</p>
+ * Other lengths go through a general path, padding a copy of the final block or two.
+ *
+ * @see HashFunction
+ */
+abstract class BlockHash implements HashFunction {
+  /** Bytes per block. */
+  static final int BLOCK_SIZE = 64;
+  /** Longest input that fits one block, along with its padding. */
+  static final int MAX_SHORT_INPUT = BLOCK_SIZE - 9;
+
+  /** Words of the block being compressed. */
+  protected final int[] w = new int[16];
+  /** Whether words are read, and the length written, most significant byte first. */
+  private final boolean bigEndian;
+  /** Input length whose padding is kept in place between hashes, or -1 if none. */
+  private final int fixedLength;
+  /** Whether <code>w</code> holds the padding of <code>fixedLength</code>. */
+  private boolean padded = false;
+  /** Final block or two of a general input, being padded. */
+  private final byte[] tail = new byte[BLOCK_SIZE * 2];
+
+  /**
+   * Constructs a block hash.
+   * @param bigEndian Whether words are read most significant byte first
+   * @param fixedLength Input length to hash fastest, or -1 if none
+   */
+  BlockHash(boolean bigEndian, int fixedLength) {
+    this.bigEndian = bigEndian;
+    this.fixedLength = fixedLength <= MAX_SHORT_INPUT ? fixedLength : -1;
+  }
+
+  @Override
+  public void hash(byte[] input, int offset, int length, byte[] out) {
+    reset();
+    if (length == fixedLength) {
+      if (!padded) {
+        Arrays.fill(w, 0);
+        putLength(length);
+        padded = true;
+      }
+      loadShort(input, offset, length);
+    } else {
+      padded = false;
+      int end = offset + length;
+      for (; end - offset >= BLOCK_SIZE; offset += BLOCK_SIZE) {
+        load(input, offset);
+        compress();
+      }
+      int remaining = end - offset;
+      int tailLength = remaining <= MAX_SHORT_INPUT ? BLOCK_SIZE : BLOCK_SIZE * 2;
+      System.arraycopy(input, offset, tail, 0, remaining);
+      tail[remaining] = (byte) 0x80;
+      Arrays.fill(tail, remaining + 1, tailLength, (byte) 0);
+      if (tailLength > BLOCK_SIZE) {
+        load(tail, 0);
+        compress();
+      }
+      load(tail, tailLength - BLOCK_SIZE);
+      putLength(length);
+    }
+    compress();
+    output(out);
+  }
+
+  // PROTECTED
+  /** Set the state to its initial value. */
+  protected abstract void reset();
+
+  /** Compress the block held in <code>w</code> into the state, leaving <code>w</code> as is. */
+  protected abstract void compress();
+
+  /**
+   * Write the state to <code>out</code> as the hash.
+   * @param out Receives the hash
+   */
+  protected abstract void output(byte[] out);
+
+  /**
+   * Write <code>value</code> to <code>out</code> at <code>offset</code>, in the byte order of
+   * the algorithm.
+   * @param value Word
+   * @param out Receives the word
+   * @param offset Position in 'out'
+   */
+  protected void putWord(int value, byte[] out, int offset) {
+    if (bigEndian) {
+      out[offset] = (byte) (value >>> 24);
+      out[offset + 1] = (byte) (value >>> 16);
+      out[offset + 2] = (byte) (value >>> 8);
+      out[offset + 3] = (byte) value;
+    } else {
+      out[offset] = (byte) value;
+      out[offset + 1] = (byte) (value >>> 8);
+      out[offset + 2] = (byte) (value >>> 16);
+      out[offset + 3] = (byte) (value >>> 24);
+    }
+  }
+
+  // PRIVATE
+  /**
+   * Read a whole block from <code>input</code> into <code>w</code>.
+   * @param input Bytes
+   * @param offset Position of the block
+   */
+  private void load(byte[] input, int offset) {
+    for (int i = 0; i < 16; i++, offset += 4) {
+      w[i] = word(input, offset);
+    }
+  }
+
+  /**
+   * Read a short input into the leading words of <code>w</code>, followed by the 0x80 byte that
+   * begins the padding. Words past that are left as they are.
+   * @param input Bytes
+   * @param offset Position of the first byte
+   * @param length Number of bytes, no more than MAX_SHORT_INPUT
+   */
+  private void loadShort(byte[] input, int offset, int length) {
+    int words = length >>> 2;
+    for (int i = 0; i < words; i++, offset += 4) {
+      w[i] = word(input, offset);
+    }
+    int last = 0;
+    int remaining = length & 3;
+    for (int k = 0; k <= remaining; k++) {
+      int b = k < remaining ? input[offset + k] & 0xff : 0x80;
+      last |= bigEndian ? b << (24 - 8 * k) : b << (8 * k);
+    }
+    w[words] = last;
+  }
+
+  /**
+   * Read the word at <code>offset</code>, in the byte order of the algorithm.
+   * @param input Bytes
+   * @param offset Position of the word
+   * @return Word
+   */
+  private int word(byte[] input, int offset) {
+    if (bigEndian) {
+      return (input[offset] & 0xff) << 24 | (input[offset + 1] & 0xff) << 16
+          | (input[offset + 2] & 0xff) << 8 | (input[offset + 3] & 0xff);
+    }
+    return (input[offset] & 0xff) | (input[offset + 1] & 0xff) << 8
+        | (input[offset + 2] & 0xff) << 16 | (input[offset + 3] & 0xff) << 24;
+  }
+
+  /**
+   * Write the input length, in bits, to the last two words of <code>w</code>.
+   * @param length Input length, in bytes
+   */
+  private void putLength(long length) {
+    long bits = length * 8;
+    if (bigEndian) {
+      w[14] = (int) (bits >>> 32);
+      w[15] = (int) bits;
+    } else {
+      w[14] = (int) bits;
+      w[15] = (int) (bits >>> 32);
+    }
+  }
+}
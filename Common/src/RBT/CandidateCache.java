@@ -0,0 +1,277 @@
+package RBT;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A bounded, least recently used cache of the candidate end-of-chain hashes computed while
+ * searching for a hash.<p>
+ * The candidates for a hash depend only on the hash and on the parameters chains are walked
+ * with, not on the chains held, so they're shared by every search for the same hash, against any
+ * table with the same parameters. Entries are keyed by the hash and a fingerprint of those
+ * parameters, so a cache file may be shared between table sets with different parameters. With
+ * <code>--salted-tables</code>, each reduction family has candidates, and a fingerprint, of its
+ * own.</p>
+ * Each entry is a vector of candidate ends, as far as the search that computed it went, each
+ * followed by the check bits seen computing it when <code>--check-bits</code> is set. For
+ * distinguished-point chains, the vector is the first distinguished point, its distance from the
+ * hash and the check bits seen, or empty if none was reached.<br>
+ * Searching more distinct hashes than the cache holds, in the same order each time, evicts every
+ * entry before it's used again, so the cache must hold every hash of a file searched again.
+ * <pre>
+ *   int    MAGIC
+ *   int    VERSION
+ *   int    entry count, least recently used first
+ *   each entry:
+ *     long   fingerprint
+ *     int    hash length, followed by the hash
+ *     int    candidate count, followed by the candidates
+ * </pre>
+ *
+ * @see Search#keyFromHash(String)
+ */
+public class CandidateCache {
+  /** Identifies a cache file, "RBCC". */
+  static final int MAGIC = 0x52424343;
+  /** Version of the format written. */
+  static final int VERSION = 1;
+
+  /** Most entries held. */
+  private final int capacity;
+  /** Fingerprint of the parameters candidates are computed with, by reduction family. */
+  private final long[] fingerprints;
+  /** Candidate ends, least recently used first. */
+  private final LinkedHashMap<Key, long[]> entries;
+  /** Lookups that found an entry. */
+  private long hits = 0;
+  /** Lookups that found no entry. */
+  private long misses = 0;
+
+  /**
+   * Constructs an empty cache of <code>--cache-size</code> entries, for candidates computed with
+   * the parameters in <code>cfg</code>.
+   * @param cfg Rainbow table 'Config' object
+   */
+  public CandidateCache(Config cfg) {
+    capacity = cfg.getCacheSize();
+    fingerprints = new long[cfg.isSaltedTables() ? cfg.getTblCount() : 1];
+    for (int family = 0; family < fingerprints.length; family++) {
+      fingerprints[family] = fingerprint(cfg, family);
+    }
+    entries = new LinkedHashMap<Key, long[]>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<Key, long[]> eldest) {
+        return size() > capacity;
+      }
+    };
+  }
+
+  // PUBLIC
+  /**
+   * Return the candidate ends held for <code>hash</code>.
+   * @param hash Hash searched for
+   * @return Candidate ends, or null if none held
+   */
+  public long[] get(byte[] hash) {
+    return get(0, hash);
+  }
+
+  /**
+   * Return the candidate ends held for <code>hash</code>, walked with reduction family
+   * <code>family</code>.
+   * @param family Reduction family, the table's index with --salted-tables
+   * @param hash Hash searched for
+   * @return Candidate ends, or null if none held
+   */
+  public synchronized long[] get(int family, byte[] hash) {
+    long[] ends = entries.get(new Key(fingerprints[family], hash));
+    if (ends == null) {
+      misses++;
+    } else {
+      hits++;
+    }
+    return ends;
+  }
+
+  /**
+   * Hold <code>ends</code> for <code>hash</code>, unless more candidates are already held.
+   * @param hash Hash searched for
+   * @param ends Candidate ends, not to be changed once held
+   */
+  public void put(byte[] hash, long[] ends) {
+    put(0, hash, ends);
+  }
+
+  /**
+   * Hold <code>ends</code> for <code>hash</code>, walked with reduction family
+   * <code>family</code>, unless more candidates are already held.
+   * @param family Reduction family, the table's index with --salted-tables
+   * @param hash Hash searched for
+   * @param ends Candidate ends, not to be changed once held
+   */
+  public synchronized void put(int family, byte[] hash, long[] ends) {
+    if (capacity == 0) {
+      return;
+    }
+    Key key = new Key(fingerprints[family], hash.clone());
+    long[] held = entries.get(key);
+    if (held == null || held.length < ends.length) {
+      entries.put(key, ends);
+    }
+  }
+
+  /**
+   * Return the number of lookups that found an entry.
+   * @return Hit count
+   */
+  public synchronized long getHits() {
+    return hits;
+  }
+
+  /**
+   * Return the number of lookups that found no entry.
+   * @return Miss count
+   */
+  public synchronized long getMisses() {
+    return misses;
+  }
+
+  /**
+   * Add the entries held in <code>file</code>, if it exists, least recently used first. Entries
+   * for other parameters are kept too, so they're written back by <code>save(Path)</code>.
+   * @param file Cache file
+   * @throws IOException Unable to read the file, or it isn't a cache file
+   */
+  public synchronized void load(Path file) throws IOException {
+    if (!Files.exists(file)) {
+      return;
+    }
+    try (DataInputStream in =
+        new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16))) {
+      if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+        throw new IOException("Not a candidate cache file: " + file);
+      }
+      int count = in.readInt();
+      for (int i = 0; i < count; i++) {
+        long entryFingerprint = in.readLong();
+        byte[] hash = new byte[in.readInt()];
+        in.readFully(hash);
+        long[] ends = new long[in.readInt()];
+        for (int j = 0; j < ends.length; j++) {
+          ends[j] = in.readLong();
+        }
+        entries.put(new Key(entryFingerprint, hash), ends);
+      }
+    }
+  }
+
+  /**
+   * Write every entry to <code>file</code>, replacing it. The file is written under a temporary
+   * name and moved into place, so an earlier file is only replaced by a complete one.
+   * @param file Cache file
+   * @throws IOException Unable to write the file
+   */
+  public synchronized void save(Path file) throws IOException {
+    Path part = Paths.get(file + ".part");
+    try (DataOutputStream out = new DataOutputStream(
+        new BufferedOutputStream(Files.newOutputStream(part), 1 << 16))) {
+      out.writeInt(MAGIC);
+      out.writeInt(VERSION);
+      out.writeInt(entries.size());
+      for (Map.Entry<Key, long[]> entry : entries.entrySet()) {
+        out.writeLong(entry.getKey().fingerprint);
+        out.writeInt(entry.getKey().hash.length);
+        out.write(entry.getKey().hash);
+        out.writeInt(entry.getValue().length);
+        for (long end : entry.getValue()) {
+          out.writeLong(end);
+        }
+      }
+    }
+    Files.move(part, file, StandardCopyOption.REPLACE_EXISTING);
+  }
+
+  // PROTECTED, STATIC
+  /**
+   * Return a fingerprint of the parameters in <code>cfg</code> that candidate ends depend on.
+   * The number of rows and tables aren't among them.
+   * @param cfg Rainbow table 'Config' object
+   * @return Fingerprint
+   */
+  static long fingerprint(Config cfg) {
+    return fingerprint(cfg, 0);
+  }
+
+  /**
+   * Return a fingerprint of the parameters in <code>cfg</code> that candidate ends of reduction
+   * family <code>family</code> depend on. Families walked with the same salts, such as the only
+   * family of unsalted tables and the first of salted tables, share a fingerprint.
+   * @param cfg Rainbow table 'Config' object
+   * @param family Reduction family, the table's index with --salted-tables
+   * @return Fingerprint
+   */
+  static long fingerprint(Config cfg, int family) {
+    int salt = Tables.familySalt(family, cfg);
+    String params =
+        "KL" + cfg.getKeyLen() +
+        "CL" + cfg.getChainLen() +
+        "DP" + cfg.getDpBits() +
+        (cfg.getHashType() != HashType.SHA1 ? "HF" + cfg.getHashType().getOptionName() : "") +
+        (cfg.getReduction() != Reduction.FOLD ? "RD" + cfg.getReduction().getOptionName() : "") +
+        (cfg.getCheckBits() > 0 ? "CB" + cfg.getCheckBits() : "") +
+        (cfg.getKeySpace().isFixedLength() ? "" : "KM" + cfg.getMinKeyLen()) +
+        "AC" + cfg.getKeySpace().charsetToString() +
+        (salt != 0 ? "FS" + salt : "");
+    try {
+      MessageDigest digest = MessageDigest.getInstance("SHA-1");
+      return Tables.truncateHash(digest.digest(params.getBytes(StandardCharsets.UTF_8)));
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /** A hash searched for, under the parameters its candidates were computed with. */
+  private static class Key {
+    /** Fingerprint of the parameters. */
+    final long fingerprint;
+    /** Hash searched for. */
+    final byte[] hash;
+
+    /**
+     * Constructs a key. <code>hash</code> is held, not copied.
+     * @param fingerprint Fingerprint of the parameters
+     * @param hash Hash searched for
+     */
+    Key(long fingerprint, byte[] hash) {
+      this.fingerprint = fingerprint;
+      this.hash = hash;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (!(o instanceof Key)) {
+        return false;
+      }
+      Key other = (Key) o;
+      return fingerprint == other.fingerprint && Arrays.equals(hash, other.hash);
+    }
+
+    @Override
+    public int hashCode() {
+      return Long.hashCode(fingerprint) * 31 + Arrays.hashCode(hash);
+    }
+  }
+}
@@ -0,0 +1,243 @@
+package RBT;
+
+import java.util.Arrays;
+import java.util.function.LongPredicate;
+
+/**
+ * An in-memory rainbow table held in two parallel, growable <code>long[]</code>'s, one of chain
+ * ends and one of chain heads. Tables of distinguished-point chains, whose lengths vary, also
+ * hold an <code>int[]</code> of chain lengths, and tables generated with <code>--check-bits</code>
+ * a <code>byte[]</code> of check bits. Rows are appended in any order, then put in order of their
+ * end with <code>sort()</code>, after which they can be searched.
+ *
+ * @see ChainIndex
+ * @see Table
+ */
+public class ChainArray implements ChainIndex {
+  /** Initial capacity, when none is given. */
+  static final int DEFAULT_CAPACITY = 1024;
+
+  /** Truncated end-of-chain hashes. */
+  private long[] ends;
+  /** Key space indexes of chain-head keys. */
+  private long[] heads;
+  /** Chain lengths, or null when chains are of a fixed length. */
+  private int[] lengths;
+  /** Check bits, or null when not held. */
+  private byte[] checks;
+  /** Rows held. */
+  private int size;
+
+  /** Constructs an empty <code>ChainArray</code>. */
+  public ChainArray() {
+    this(DEFAULT_CAPACITY);
+  }
+
+  /**
+   * Constructs an empty <code>ChainArray</code> able to hold <code>capacity</code> rows before
+   * growing.
+   * @param capacity Initial capacity
+   */
+  public ChainArray(int capacity) {
+    this(capacity, false);
+  }
+
+  /**
+   * Constructs an empty <code>ChainArray</code> able to hold <code>capacity</code> rows before
+   * growing, and optionally the length of each chain.
+   * @param capacity Initial capacity
+   * @param withLengths Whether chain lengths are held
+   */
+  public ChainArray(int capacity, boolean withLengths) {
+    this(capacity, withLengths, false);
+  }
+
+  /**
+   * Constructs an empty <code>ChainArray</code> able to hold <code>capacity</code> rows before
+   * growing, and optionally the length and check bits of each chain.
+   * @param capacity Initial capacity
+   * @param withLengths Whether chain lengths are held
+   * @param withChecks Whether check bits are held
+   */
+  public ChainArray(int capacity, boolean withLengths, boolean withChecks) {
+    ends = new long[Math.max(1, capacity)];
+    heads = new long[Math.max(1, capacity)];
+    if (withLengths) {
+      lengths = new int[Math.max(1, capacity)];
+    }
+    if (withChecks) {
+      checks = new byte[Math.max(1, capacity)];
+    }
+  }
+
+  /**
+   * Appends a row. Rows are not in order, and so can't be searched, until <code>sort()</code>
+   * is called.
+   * @param end Truncated end-of-chain hash
+   * @param head Key space index of the chain-head key
+   */
+  public void add(long end, long head) {
+    add(end, head, 0);
+  }
+
+  /**
+   * Appends a row of a chain whose length is held.
+   * @see #add(long, long)
+   * @param end Truncated end-of-chain hash
+   * @param head Key space index of the chain-head key
+   * @param length Chain length, ignored unless lengths are held
+   */
+  public void add(long end, long head, int length) {
+    add(end, head, length, 0);
+  }
+
+  /**
+   * Appends a row of a chain whose length and check bits are held.
+   * @see #add(long, long)
+   * @param end Truncated end-of-chain hash
+   * @param head Key space index of the chain-head key
+   * @param length Chain length, ignored unless lengths are held
+   * @param check Check bits, ignored unless check bits are held
+   */
+  public void add(long end, long head, int length, int check) {
+    if (size == ends.length) {
+      int capacity = (int) Math.min(Integer.MAX_VALUE - 8, (long) size * 2);
+      if (capacity == size) {
+        throw new IllegalStateException("ChainArray is full");
+      }
+      ends = Arrays.copyOf(ends, capacity);
+      heads = Arrays.copyOf(heads, capacity);
+      if (lengths != null) {
+        lengths = Arrays.copyOf(lengths, capacity);
+      }
+      if (checks != null) {
+        checks = Arrays.copyOf(checks, capacity);
+      }
+    }
+    ends[size] = end;
+    heads[size] = head;
+    if (lengths != null) {
+      lengths[size] = length;
+    }
+    if (checks != null) {
+      checks[size] = (byte) check;
+    }
+    size++;
+  }
+
+  /**
+   * Appends every row of <code>chains</code>.
+   * @param chains Rows to append
+   */
+  public void addAll(ChainArray chains) {
+    for (int i = 0; i < chains.size; i++) {
+      add(chains.ends[i], chains.heads[i], chains.getLength(i), chains.getChecks(i));
+    }
+  }
+
+  /**
+   * Removes every row whose end passes <code>filter</code>, keeping the order of the rest.
+   * @param filter Test applied to each row's end
+   * @return Number of rows removed
+   */
+  public int removeIf(LongPredicate filter) {
+    int kept = 0;
+    for (int i = 0; i < size; i++) {
+      if (!filter.test(ends[i])) {
+        move(i, kept++);
+      }
+    }
+    int removed = size - kept;
+    size = kept;
+
+    return removed;
+  }
+
+  /**
+   * Puts rows in order of their end, and removes every row whose end matches the one before it.
+   * Only the first of a run of chains that have merged is kept.
+   * @return Number of rows removed
+   */
+  public int sort() {
+    return sort(null);
+  }
+
+  /**
+   * Puts rows in order of their end, and moves every row whose end matches the one before it to
+   * <code>collided</code>, which then holds them in order of end too.
+   * @param collided Receives the rows removed, or null to drop them
+   * @return Number of rows removed
+   */
+  public int sort(ChainArray collided) {
+    Tables.sortChains(ends, heads, lengths, checks, 0, size);
+    int kept = 0;
+    for (int i = 0; i < size; i++) {
+      if (kept == 0 || ends[i] != ends[kept - 1]) {
+        move(i, kept++);
+      } else if (collided != null) {
+        collided.add(ends[i], heads[i], getLength(i), getChecks(i));
+      }
+    }
+    int removed = size - kept;
+    size = kept;
+
+    return removed;
+  }
+
+  /**
+   * Copies a row over another.
+   * @param from Row copied
+   * @param to Row overwritten
+   */
+  private void move(int from, int to) {
+    ends[to] = ends[from];
+    heads[to] = heads[from];
+    if (lengths != null) {
+      lengths[to] = lengths[from];
+    }
+    if (checks != null) {
+      checks[to] = checks[from];
+    }
+  }
+
+  @Override
+  public long size() {
+    return size;
+  }
+
+  @Override
+  public long find(long end) {
+    int row = Arrays.binarySearch(ends, 0, size, end);
+    return row < 0 ? NOT_FOUND : row;
+  }
+
+  @Override
+  public long getEnd(long row) {
+    return ends[(int) row];
+  }
+
+  @Override
+  public long getHead(long row) {
+    return heads[(int) row];
+  }
+
+  @Override
+  public boolean hasLengths() {
+    return lengths != null;
+  }
+
+  @Override
+  public int getLength(long row) {
+    return lengths == null ? 0 : lengths[(int) row];
+  }
+
+  @Override
+  public boolean hasChecks() {
+    return checks != null;
+  }
+
+  @Override
+  public int getChecks(long row) {
+    return checks == null ? 0 : checks[(int) row] & 0xff;
+  }
+}
@@ -0,0 +1,83 @@
+package RBT;
+
+/**
+ * A single rainbow table, as a searchable collection of chains. Each chain is held as a row
+ * pairing the end of the chain with its head.<br>
+ * The end of a chain is its final hash truncated to a <code>long</code>, as produced by
+ * {@link Tables#truncateHash(byte[])}. The head of a chain is the index of its plain-text key in
+ * the key space, as produced by {@link Tables#keyToIndex(String, Config)}.<p>
+ * Rows of sorted implementations are numbered from 0 to size()-1, in order of end. Other
+ * implementations may number rows however suits them, so rows should come from
+ * <code>find()</code>.</p>
+ *
+ * @see Table
+ * @see Tables
+ */
+public interface ChainIndex {
+  /** Returned by {@link #find(long)} when no chain ends with the requested value. */
+  long NOT_FOUND = -1L;
+
+  /**
+   * Number of chains (rows) held.
+   * @return Row count
+   */
+  long size();
+
+  /**
+   * Finds the row of the chain ending with <code>end</code>.
+   * @param end Truncated end-of-chain hash
+   * @return Row, or NOT_FOUND
+   */
+  long find(long end);
+
+  /**
+   * Truncated end-of-chain hash held in <code>row</code>.
+   * @param row Row
+   * @return Truncated hash
+   */
+  long getEnd(long row);
+
+  /**
+   * Key space index of the chain-head key held in <code>row</code>.
+   * @param row Row
+   * @return Key space index
+   */
+  long getHead(long row);
+
+  /**
+   * Whether the length of each chain is held, as it is for distinguished-point chains.
+   * Otherwise every chain is <code>--chain-length</code> long.
+   * @return Whether lengths are held
+   */
+  default boolean hasLengths() {
+    return false;
+  }
+
+  /**
+   * Length of the chain held in <code>row</code>, counted in keys (or hashes).
+   * @param row Row
+   * @return Chain length, or 0 when lengths aren't held
+   */
+  default int getLength(long row) {
+    return 0;
+  }
+
+  /**
+   * Whether check bits are held for each chain, as they are with <code>--check-bits</code>.
+   * @see ChainWalker#getChecks()
+   * @return Whether check bits are held
+   */
+  default boolean hasChecks() {
+    return false;
+  }
+
+  /**
+   * Check bits of the chain held in <code>row</code>, one bit of the hash found at each check
+   * position along the chain.
+   * @param row Row
+   * @return Check bits, or 0 when check bits aren't held
+   */
+  default int getChecks(long row) {
+    return 0;
+  }
+}
@@ -0,0 +1,378 @@
+package RBT;
+
+import java.util.Arrays;
+
+/**
+ * Steps along chains without allocating. A <code>ChainWalker</code> holds its own
+ * <code>HashFunction</code>, a key buffer that reductions are written into, and a hash buffer
+ * that hashes are written into, and reuses all three for every link.<br>
+ * The arrays returned are those buffers, so they are only valid until the next call. A
+ * <code>ChainWalker</code> must not be shared between threads; create one per thread instead.<p>
+ * Chains of a fixed length use a different reduction at each position. Distinguished-point
+ * chains use the same reduction at every position, since a search can't know its position
+ * along a chain of unknown length. With <code>--salted-tables</code>, each table's reductions are
+ * offset by its own salt, so a walker walks the chains of one reduction family.</p>
+ * With <code>--check-bits</code>, each walk also collects check bits: the lowest bit of the hash
+ * found at each of a few fixed distances from the end of the chain. Walks toward the end from
+ * anywhere along a chain see the same hashes at those distances, so a search's check bits must
+ * agree with those stored for any chain that truly holds the searched hash.
+ *
+ * @see Tables#hashToHashStep(byte[], int, Config)
+ * @see Tables#keyToKeyStep(String, int, Config)
+ */
+public class ChainWalker {
+  /**
+   * <code>Config</code> object that represents the chains walked.
+   * @see Config
+   */
+  private final Config cfg;
+  /** Length of the chains walked, or the longest allowed for distinguished-point chains. */
+  private final int chainLength;
+  /** Distinguished-point bits, or 0 for chains of a fixed length. */
+  private final int dpBits;
+  /** Shortest distinguished-point chain kept. */
+  private final int minChainLength;
+  /** Salt of the first reduction of the family walked. */
+  private final int saltBase;
+  /** Hash function used for every hash, chosen by <code>--hash</code>. */
+  private final HashFunction hashFunction;
+  /** Plain-text key produced by the most recent reduction. */
+  private final byte[] key;
+  /** Length of the plain-text key produced by the most recent reduction. */
+  private int keyLength;
+  /** Hash produced by the most recent digest. */
+  private final byte[] hash;
+  /** Hashes computed by this walker. */
+  private long hashCount;
+  /** Truncated end of the chain most recently walked by <code>distinguishedChain()</code>. */
+  private long end;
+  /** Check bits collected per walk, or 0 for none. */
+  private final int checkBits;
+  /** Distance from the end of the chain of each check bit, in ascending order. */
+  private final int[] checkDistances;
+  /** Check bit taken at each distance from the end of the chain, or -1 for none. */
+  private final int[] checkAt;
+  /** Lowest bit of each hash along the distinguished-point chain being walked, by position. */
+  private final long[] history;
+  /** Check bits collected by the most recent walk. */
+  private int checks;
+
+  /**
+   * Constructs a <code>ChainWalker</code> for chains described by <code>cfg</code>.
+   * @param cfg Rainbow table 'Config' object
+   */
+  public ChainWalker(Config cfg) {
+    this(cfg, 0);
+  }
+
+  /**
+   * Constructs a <code>ChainWalker</code> for the chains of reduction family <code>family</code>.
+   * @see Tables#familySalt(int, Config)
+   * @param cfg Rainbow table 'Config' object
+   * @param family Reduction family, the table's index with --salted-tables
+   */
+  public ChainWalker(Config cfg, int family) {
+    this.cfg = cfg;
+    chainLength = cfg.getChainLen();
+    dpBits = cfg.getDpBits();
+    minChainLength = cfg.getMinChainLen();
+    saltBase = Tables.familySalt(family, cfg);
+    key = new byte[cfg.getKeyLen()];
+    hashFunction = cfg.getHashType().newFunction(key.length);
+    hash = new byte[hashFunction.getDigestLength()];
+
+    // Spread check bits evenly toward the head, over a typical chain
+    checkBits = cfg.getCheckBits();
+    checkDistances = new int[checkBits];
+    checkAt = new int[checkBits > 0 ? chainLength : 0];
+    Arrays.fill(checkAt, -1);
+    long span = dpBits > 0 ? Math.min(chainLength, 1L << dpBits) : chainLength;
+    for (int i = 0; i < checkBits; i++) {
+      checkDistances[i] = (int) Math.max(1, (i + 1) * (span - 1) / checkBits);
+      if (checkDistances[i] < chainLength) {
+        checkAt[checkDistances[i]] = i;
+      }
+    }
+    history = new long[checkBits > 0 && dpBits > 0 ? (chainLength + 63) / 64 : 0];
+  }
+
+  /**
+   * Hashes the key held in the key buffer into the hash buffer.
+   * @return The hash buffer
+   */
+  private byte[] hashKey() {
+    hashCount++;
+    hashFunction.hash(key, 0, keyLength, hash);
+
+    return hash;
+  }
+
+  /**
+   * Salt of the reduction applied at <code>position</code> along a chain.
+   * @param position Position, counting from 0 at the chain head
+   * @return Salt passed to 'Tables.hashToKey()'
+   */
+  private int salt(int position) {
+    return saltBase + (dpBits > 0 ? 0 : position);
+  }
+
+  /**
+   * Take the check bit, if any, from a hash <code>distance</code> steps from the end of its chain.
+   * @param h Hash
+   * @param distance Steps from the end of the chain
+   */
+  private void check(byte[] h, int distance) {
+    if (checkBits > 0) {
+      int bit = checkAt[distance];
+      if (bit >= 0) {
+        checks |= (h[h.length - 1] & 1) << bit;
+      }
+    }
+  }
+
+  /**
+   * Hold the lowest bit of a hash at <code>position</code> along a distinguished-point chain,
+   * until its distance from the end is known.
+   * @param h Hash
+   * @param position Position, counting from 0 at the start of the walk
+   */
+  private void remember(byte[] h, int position) {
+    if (history.length > 0) {
+      if ((h[h.length - 1] & 1) != 0) {
+        history[position >>> 6] |= 1L << position;
+      } else {
+        history[position >>> 6] &= ~(1L << position);
+      }
+    }
+  }
+
+  /**
+   * Check bits of a walk of <code>length</code> hashes held by <code>remember()</code>, the last
+   * being the end of the chain.
+   * @param length Hashes walked
+   * @return Check bits
+   */
+  private int recall(int length) {
+    int result = 0;
+    for (int i = 0; i < checkBits && checkDistances[i] < length; i++) {
+      int position = length - 1 - checkDistances[i];
+      result |= (int) (history[position >>> 6] >>> position & 1) << i;
+    }
+    return result;
+  }
+
+  /**
+   * Hashes <code>plaintext</code>, which must be within the key lengths of the key space.
+   * @param plaintext Plain-text key, one byte per character
+   * @return The hash buffer
+   */
+  public byte[] hash(byte[] plaintext) {
+    return hash(plaintext, plaintext.length);
+  }
+
+  /**
+   * Hashes the first <code>length</code> bytes of <code>plaintext</code>.
+   * @param plaintext Plain-text key, one byte per character
+   * @param length Key length, no more than the longest of the key space
+   * @return The hash buffer
+   */
+  public byte[] hash(byte[] plaintext, int length) {
+    System.arraycopy(plaintext, 0, key, 0, length);
+    keyLength = length;
+    return hashKey();
+  }
+
+  /**
+   * Reduce then hash, <code>n</code> times, counting steps from the right side of the chain.
+   * Identical in result to {@link Tables#hashToHashStep(byte[], int, Config)}. Check bits of the
+   * hashes seen, <code>initialHash</code> included, are then available from
+   * <code>getChecks()</code>.
+   * @param initialHash Starting hash value
+   * @param n Number of times to hash, reduce
+   * @return 'initialHash' when 'n' is 0, otherwise the hash buffer
+   */
+  public byte[] hashToHashStep(byte[] initialHash, int n) {
+    checks = 0;
+    // Being asked to make 0 steps, which is just 'initialHash'
+    if (n == 0) {
+      return initialHash;
+    }
+    // Prevent stepping off the end of the chain
+    if (n > chainLength - 1) {
+      throw new IllegalArgumentException("Trying to hash/reduce off chain");
+    }
+    int position = chainLength - n - 1; // Present chain location
+    check(initialHash, n);
+    keyLength = Tables.hashToKey(initialHash, salt(position++), cfg, key);
+    check(hashKey(), n - 1);
+    for (int i = 1; i < n; i++) {
+      keyLength = Tables.hashToKey(hash, salt(position++), cfg, key);
+      check(hashKey(), n - 1 - i);
+    }
+
+    return hash;
+  }
+
+  /**
+   * Hash, reduce, <code>n</code> times, along a chain that starts with the key at
+   * <code>head</code> in the key space. Identical in result to
+   * {@link Tables#keyToKeyStep(String, int, Config)}.
+   * @param head Key space index of the chain-head key
+   * @param n Number of times to hash, reduce
+   * @return The key buffer, holding a key of <code>getKeyLength()</code> bytes
+   */
+  public byte[] keyToKeyStep(long head, int n) {
+    // Prevent stepping off the end of the chain
+    if (n > chainLength - 1) {
+      throw new IllegalArgumentException("Trying to reduce/hash off chain");
+    }
+    keyLength = Tables.indexToKey(head, cfg, key);
+    for (int i = 0; i < n; i++) {
+      keyLength = Tables.hashToKey(hashKey(), salt(i), cfg, key);
+    }
+
+    return key;
+  }
+
+  /**
+   * Walks the full length of the chain that starts with the key at <code>head</code> in the key
+   * space, and returns the end of the chain as it is held in a table. The chain's check bits are
+   * then available from <code>getChecks()</code>.
+   * @see Tables#truncateHash(byte[])
+   * @param head Key space index of the chain-head key
+   * @return Truncated end-of-chain hash
+   */
+  public long chainEnd(long head) {
+    checks = 0;
+    keyLength = Tables.indexToKey(head, cfg, key);
+    for (int i = 0; i < chainLength - 1; i++) {
+      check(hashKey(), chainLength - 1 - i);
+      keyLength = Tables.hashToKey(hash, salt(i), cfg, key);
+    }
+
+    return Tables.truncateHash(hashKey());
+  }
+
+  /**
+   * Reduce then hash, once, as done at every link of a distinguished-point chain.
+   * @param initialHash Starting hash value
+   * @return The hash buffer
+   */
+  public byte[] step(byte[] initialHash) {
+    keyLength = Tables.hashToKey(initialHash, salt(0), cfg, key);
+    return hashKey();
+  }
+
+  /**
+   * Walks the chain that starts with the key at <code>head</code> in the key space until it
+   * reaches a distinguished point. The end of the chain, and its check bits, are then available
+   * from <code>getEnd()</code> and <code>getChecks()</code>.
+   * @see Tables#isDistinguished(long, int)
+   * @param head Key space index of the chain-head key
+   * @return Chain length, or 0 if the chain is shorter than --min-chain-length, or no
+   *     distinguished point was reached within --chain-length
+   */
+  public int distinguishedChain(long head) {
+    keyLength = Tables.indexToKey(head, cfg, key);
+    end = Tables.truncateHash(hashKey());
+    remember(hash, 0);
+    int length = 1;
+    while (!Tables.isDistinguished(end, dpBits)) {
+      if (length == chainLength) {
+        // Too long, or stuck in a loop
+        return 0;
+      }
+      end = Tables.truncateHash(step(hash));
+      remember(hash, length);
+      length++;
+    }
+    checks = recall(length);
+
+    return length < minChainLength ? 0 : length;
+  }
+
+  /**
+   * Follows the chain through <code>initialHash</code> to its first distinguished point. Its
+   * truncated hash, and the check bits of the hashes walked, <code>initialHash</code> included,
+   * are then available from <code>getEnd()</code> and <code>getChecks()</code>.
+   * @see Tables#isDistinguished(long, int)
+   * @param initialHash Starting hash value
+   * @return Steps taken to reach the distinguished point, or -1 if none was reached within
+   *     --chain-length
+   */
+  public int distinguishedPoint(byte[] initialHash) {
+    byte[] curHash = initialHash;
+    for (int s = 0; s < chainLength; s++) {
+      if (s > 0) {
+        curHash = step(curHash);
+      }
+      remember(curHash, s);
+      end = Tables.truncateHash(curHash);
+      if (Tables.isDistinguished(end, dpBits)) {
+        checks = recall(s + 1);
+        return s;
+      }
+    }
+
+    return -1;
+  }
+
+  /**
+   * Truncated end of the chain most recently walked by <code>distinguishedChain()</code> or
+   * <code>distinguishedPoint()</code>.
+   * @return Truncated end-of-chain hash
+   */
+  public long getEnd() {
+    return end;
+  }
+
+  /**
+   * Length of the key held in the key buffer, as produced by the most recent reduction.
+   * @return Key length
+   */
+  public int getKeyLength() {
+    return keyLength;
+  }
+
+  /**
+   * Check bits collected by the most recent walk. Bit <code>i</code> is the lowest bit of the
+   * hash found the <code>i</code>th check distance from the end of the chain, or 0 if the walk
+   * didn't reach that far back.
+   * @see #checkMask(int)
+   * @return Check bits
+   */
+  public int getChecks() {
+    return checks;
+  }
+
+  /**
+   * Check bits collected by any walk that starts <code>distance</code> steps from the end of a
+   * chain, being those at no more than <code>distance</code> steps.
+   * @param distance Steps from the end of the chain
+   * @return Mask of the check bits compared
+   */
+  public int checkMask(int distance) {
+    int mask = 0;
+    for (int i = 0; i < checkBits && checkDistances[i] <= distance; i++) {
+      mask |= 1 << i;
+    }
+    return mask;
+  }
+
+  /**
+   * Distance from the end of the chain of check bit <code>i</code>.
+   * @param i Check bit, below --check-bits
+   * @return Steps from the end of the chain
+   */
+  int getCheckDistance(int i) {
+    return checkDistances[i];
+  }
+
+  /**
+   * Number of hashes computed by this walker since it was created.
+   * @return Hash count
+   */
+  public long getHashCount() {
+    return hashCount;
+  }
+}
@@ -0,0 +1,184 @@
+package RBT;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The progress of a table being generated, written beside its run files so that generation can
+ * be resumed after the program stops.<p>
+ * Holds which runs have been spilled or merged for each table, along with the random seed and
+ * counters that generation carries from run to run. Every run is generated from a seed derived
+ * from <code>seed</code> and the run's number, so no other random state needs to be kept.</p>
+ * <pre>
+ *   int    MAGIC
+ *   int    VERSION
+ *   long   seed, runs generated, collisions, hashes computed, chains rejected, seconds elapsed
+ *   int    run files named so far
+ *   int    table count (N)
+ *   N times:
+ *     long rows merged
+ *     long chains dropped by the table, chains moved into the table from another
+ *     double share of the chains last merged into the table that it kept
+ *     UTF  merged file name, empty if not merged
+ *     int  run files not yet merged (R)
+ *     R times: UTF run file name, long rows
+ * </pre>
+ *
+ * @see TableWriter
+ * @see Table#generateTable(long)
+ */
+class Checkpoint {
+  /** Identifies a checkpoint file, "RBCP". */
+  static final int MAGIC = 0x52424350;
+  /** Version of the format written. */
+  static final int VERSION = 1;
+
+  /** Seed that each run's seed is derived from. */
+  long seed;
+  /** Runs generated so far. */
+  long runs;
+  /** Chains removed so far, for sharing an end with another. */
+  long collisions;
+  /** Hashes computed so far. */
+  long hashes;
+  /** Distinguished-point chains rejected so far. */
+  long rejected;
+  /** Seconds spent generating so far. */
+  long elapsed;
+  /** Run files named so far. */
+  int runNumber;
+  /** Rows held by each table's merged file. */
+  long[] rowCounts;
+  /** Chains dropped by each table so far, for sharing an end with another, and not moved. */
+  long[] tableCollisions;
+  /** Chains moved into each table so far, after colliding in another. */
+  long[] tablePlaced;
+  /** Share of the chains last merged into each table that it kept, 1 until first merged. */
+  double[] tableYields;
+  /** Name of each table's merged file, or null if not yet merged. */
+  String[] merged;
+  /** Names of each table's run files that are not yet merged. */
+  List<List<String>> runFiles;
+  /** Rows held by each of <code>runFiles</code>. */
+  List<List<Long>> runRows;
+
+  /**
+   * Constructs an empty checkpoint for <code>tableCount</code> tables.
+   * @param tableCount Number of tables
+   */
+  Checkpoint(int tableCount) {
+    rowCounts = new long[tableCount];
+    tableCollisions = new long[tableCount];
+    tablePlaced = new long[tableCount];
+    tableYields = new double[tableCount];
+    Arrays.fill(tableYields, 1.0);
+    merged = new String[tableCount];
+    runFiles = new ArrayList<>(tableCount);
+    runRows = new ArrayList<>(tableCount);
+    for (int i = 0; i < tableCount; i++) {
+      runFiles.add(new ArrayList<>());
+      runRows.add(new ArrayList<>());
+    }
+  }
+
+  // PROTECTED
+  /**
+   * Write the checkpoint to <code>file</code>. It's written under a temporary name, forced to
+   * disk and moved into place, so an earlier checkpoint is only replaced by a complete one.
+   * @param file Checkpoint file
+   * @throws IOException Unable to write the file
+   */
+  void write(Path file) throws IOException {
+    Path part = Paths.get(file + ".part");
+    try (FileChannel channel = FileChannel.open(part, StandardOpenOption.CREATE,
+        StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+      DataOutputStream out =
+          new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)));
+      out.writeInt(MAGIC);
+      out.writeInt(VERSION);
+      out.writeLong(seed);
+      out.writeLong(runs);
+      out.writeLong(collisions);
+      out.writeLong(hashes);
+      out.writeLong(rejected);
+      out.writeLong(elapsed);
+      out.writeInt(runNumber);
+      out.writeInt(rowCounts.length);
+      for (int i = 0; i < rowCounts.length; i++) {
+        out.writeLong(rowCounts[i]);
+        out.writeLong(tableCollisions[i]);
+        out.writeLong(tablePlaced[i]);
+        out.writeDouble(tableYields[i]);
+        out.writeUTF(merged[i] == null ? "" : merged[i]);
+        out.writeInt(runFiles.get(i).size());
+        for (int j = 0; j < runFiles.get(i).size(); j++) {
+          out.writeUTF(runFiles.get(i).get(j));
+          out.writeLong(runRows.get(i).get(j));
+        }
+      }
+      out.flush();
+      channel.force(true);
+    }
+    Files.move(part, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  // PROTECTED, STATIC
+  /**
+   * Read a checkpoint written by <code>write(Path)</code>.
+   * @param file Checkpoint file
+   * @return Checkpoint read
+   * @throws IOException Unable to read the file, or it isn't a checkpoint
+   */
+  static Checkpoint read(Path file) throws IOException {
+    try (DataInputStream in =
+        new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+      if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+        throw new IOException("Not a checkpoint file: " + file);
+      }
+      long seed = in.readLong();
+      long runs = in.readLong();
+      long collisions = in.readLong();
+      long hashes = in.readLong();
+      long rejected = in.readLong();
+      long elapsed = in.readLong();
+      int runNumber = in.readInt();
+
+      Checkpoint cp = new Checkpoint(in.readInt());
+      cp.seed = seed;
+      cp.runs = runs;
+      cp.collisions = collisions;
+      cp.hashes = hashes;
+      cp.rejected = rejected;
+      cp.elapsed = elapsed;
+      cp.runNumber = runNumber;
+      for (int i = 0; i < cp.rowCounts.length; i++) {
+        cp.rowCounts[i] = in.readLong();
+        cp.tableCollisions[i] = in.readLong();
+        cp.tablePlaced[i] = in.readLong();
+        cp.tableYields[i] = in.readDouble();
+        String name = in.readUTF();
+        cp.merged[i] = name.isEmpty() ? null : name;
+        int count = in.readInt();
+        for (int j = 0; j < count; j++) {
+          cp.runFiles.get(i).add(in.readUTF());
+          cp.runRows.get(i).add(in.readLong());
+        }
+      }
+
+      return cp;
+    }
+  }
+}
@@ -1,7 +1,11 @@
 package RBT;
 
-import java.security.MessageDigest;
+import java.io.File;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import org.apache.commons.cli.CommandLine;
 import org.apache.commons.cli.CommandLineParser;
@@ -24,18 +28,45 @@ public class Config {
   // Configuration defaults
   /** Default key length */
   public static final String DEFAULT_KEY_LEN = "5";
+  /** Default charset keys are drawn from, by name */
+  public static final String DEFAULT_CHARSET = "alnum";
   /** Default chain length */
   public static final String DEFAULT_CHAIN_LEN = "10";
   /** Default total number of rows to compute */
   public static final String DEFAULT_ROW_COUNT = "10000";
   /** Default number of tables */
   public static final String DEFAULT_TBL_COUNT = "1";
+  /** Default number of distinguished-point bits, where 0 gives chains of a fixed length */
+  public static final String DEFAULT_DP_BITS = "0";
+  /** Default hash function chains are built with */
+  public static final String DEFAULT_HASH = "sha1";
+  /** Default reduction function chains are built with */
+  public static final String DEFAULT_REDUCTION = "fold";
+  /** Default placement of chains over the tables during generation */
+  public static final String DEFAULT_PLACEMENT = "round-robin";
+  /** Default shortest distinguished-point chain kept */
+  public static final String DEFAULT_MIN_CHAIN_LEN = "1";
+  /** Default number of check bits stored per chain, where 0 is none */
+  public static final String DEFAULT_CHECK_BITS = "0";
+  /** Most check bits stored per chain, being one byte */
+  public static final int MAX_CHECK_BITS = 8;
+  /** Default index used to search tables */
+  public static final String DEFAULT_INDEX = "sorted";
+  /** Default rows generated and sorted in memory before being written to disk */
+  public static final String DEFAULT_RUN_SIZE = "4194304";
+  /** Default number of chains walked at once by each generation thread, where 1 is one at a time */
+  public static final String DEFAULT_HASH_LANES = "64";
+  /** Default most tables held open at once, where 0 is no limit */
+  public static final String DEFAULT_OPEN_TABLES = "0";
+  /** Default number of candidate end vectors cached between searches, where 0 is none */
+  public static final String DEFAULT_CACHE_SIZE = "4096";
+  /** Default number of worker threads, being every available core */
+  public static final String DEFAULT_THREAD_COUNT =
+      Integer.toString(Runtime.getRuntime().availableProcessors());
 
-  /** Key length as a member variable. */
+  /** Key length as a member variable, being the longest when keys vary in length. */
   public int KEYLENGTH;
-  /** Length of the hash generated by the hashing algorithm (SHA-1). */
-  public static final int HASHLEN = 40;
-  /** Allowable characters in the plain-text key space. */
+  /** Allowable characters in the default plain-text key space, the 'alnum' charset. */
   public static final Character[] ALLOWABLE_CHARS = {
       'a', 'b', 'c', 'd', 'e', 'f', 'g', 'h', 'i', 'j', 'k', 'l', 'm', 'n', 'o', 'p', 'q', 'r', 's',
       't', 'u', 'v', 'w', 'x', 'y', 'z',
@@ -44,8 +75,15 @@ public class Config {
       '0', '1', '2', '3', '4', '5', '6', '7', '8', '9'
   };
 
-  /** Single <code>MessageDigest</code> used for SHA-1 hashing */
-  protected MessageDigest shaHash;
+  /** Single <code>HashFunction</code> used by callers that don't hold their own */
+  protected HashFunction hashFunction;
+  /** Reduction function chosen by <code>--reduction</code>, held here as it's read every link */
+  protected Reduction reduction;
+  /**
+   * Key space given by <code>--charset</code>, <code>--min-length</code> and
+   * <code>--max-length</code>, held here as it's read every link
+   */
+  protected KeySpace keySpace;
 
   /** <code>Map</code> of CLI flags and corresponding arguments. */
   private final Map<String,String> cmdArgs;
@@ -58,12 +96,10 @@ public class Config {
    */
   public Config(String[] args) {
     cmdArgs = getOptionMap(new Options(), args);
-    KEYLENGTH = Integer.decode(cmdArgs.get("key-length"));
-    try {
-      shaHash = MessageDigest.getInstance("SHA-1");
-    } catch(Exception e) {
-      System.exit(-1);
-    }
+    reduction = createReduction();
+    keySpace = createKeySpace();
+    KEYLENGTH = keySpace.getMaxLength();
+    hashFunction = createHashFunction();
   }
 
   /**
@@ -75,12 +111,10 @@ public class Config {
    */
   public Config(Options opt, String[] args) {
     cmdArgs = getOptionMap(opt, args);
-    KEYLENGTH = Integer.decode(cmdArgs.get("key-length"));
-    try {
-      shaHash = MessageDigest.getInstance("SHA-1");
-    } catch(Exception e) {
-      System.exit(-1);
-    }
+    reduction = createReduction();
+    keySpace = createKeySpace();
+    KEYLENGTH = keySpace.getMaxLength();
+    hashFunction = createHashFunction();
   }
 
   // PUBLIC
@@ -112,6 +146,77 @@ public class Config {
     return Integer.decode(cmdArgs.get("chain-length"));
   }
 
+  /**
+   * Return the number of low bits that must be 0 for a hash to be a distinguished point, which
+   * ends a chain. When 0, chains are all of <code>--chain-length</code> instead, and
+   * <code>--chain-length</code> is otherwise the longest chain allowed. Exits if it's out of
+   * range.
+   * @return Distinguished-point bits, from 0 to 63
+   */
+  public int getDpBits() {
+    int dpBits = Integer.decode(cmdArgs.get("dp-bits"));
+    if (dpBits < 0 || dpBits > 63) {
+      System.out.println("--dp-bits must be from 0 to 63");
+      System.exit(-1);
+    }
+    return dpBits;
+  }
+
+  /**
+   * Return the hash algorithm chains are built with, and that searched hashes are of.
+   * @return Hash type
+   */
+  public HashType getHashType() {
+    return HashType.forName(cmdArgs.get("hash"));
+  }
+
+  /**
+   * Return the length of a hash in hex form, as searched for.
+   * @return Hex characters per hash
+   */
+  public int getHashLen() {
+    return getHashType().getDigestLength() * 2;
+  }
+
+  /**
+   * Return the reduction function chains are built with.
+   * @see Tables#hashToKey(byte[], int, Config, byte[])
+   * @return Reduction
+   */
+  public Reduction getReduction() {
+    return reduction;
+  }
+
+  /**
+   * Return the length of the shortest distinguished-point chain kept. With distinguished points,
+   * exits unless it's from 1 to <code>--chain-length</code>, as no chain would be kept.
+   * @return Shortest chain length
+   */
+  public int getMinChainLen() {
+    int minChainLen = Integer.decode(cmdArgs.get("min-chain-length"));
+    if (getDpBits() > 0 && (minChainLen < 1 || minChainLen > getChainLen())) {
+      System.out.println("--min-chain-length must be from 1 to --chain-length");
+      System.exit(-1);
+    }
+    return minChainLen;
+  }
+
+  /**
+   * Return the number of check bits stored with each chain, each one bit of the hash at a
+   * position along the chain. They let a search reject most false alarms without walking the
+   * chain from its head. Exits if it's out of range.
+   * @see ChainWalker#getChecks()
+   * @return Check bits, from 0 to MAX_CHECK_BITS
+   */
+  public int getCheckBits() {
+    int checkBits = Integer.decode(cmdArgs.get("check-bits"));
+    if (checkBits < 0 || checkBits > MAX_CHECK_BITS) {
+      System.out.println("--check-bits must be from 0 to " + MAX_CHECK_BITS);
+      System.exit(-1);
+    }
+    return checkBits;
+  }
+
   /**
    * Return the plain-text passed via the <code>--key</code> flag, if any.
    * @return Key
@@ -122,13 +227,31 @@ public class Config {
 
   /**
    * Return length of plain-text keys. Changed to global variable, because when implemented like
-   * the other "get" methods, it was a little slow.
+   * the other "get" methods, it was a little slow.<br>
+   * When keys vary in length, this is the longest, as key buffers are sized by it.
    * @return Key length
    */
   public int getKeyLen() {
     return KEYLENGTH;
   }
 
+  /**
+   * Return the length of the shortest plain-text keys.
+   * @return Shortest key length
+   */
+  public int getMinKeyLen() {
+    return keySpace.getMinLength();
+  }
+
+  /**
+   * Return the key space chains are built over.
+   * @see KeySpace
+   * @return Key space
+   */
+  public KeySpace getKeySpace() {
+    return keySpace;
+  }
+
   /**
    * Return the number of total rows to generate.
    * @return Total rows to generate
@@ -143,6 +266,142 @@ public class Config {
    */
   public int getTblCount() { return Integer.decode(cmdArgs.get("table-count")); }
 
+  /**
+   * Return how chains are placed over the tables during generation, exiting if there's no such
+   * placement.
+   * @see Placement
+   * @return Placement
+   */
+  public Placement getPlacement() {
+    try {
+      return Placement.forName(cmdArgs.get("placement"));
+    } catch(IllegalArgumentException e) {
+      System.out.println("Unknown placement: " + cmdArgs.get("placement"));
+      System.exit(-1);
+      return null;
+    }
+  }
+
+  /**
+   * Return the type of index tables are searched with, either "sorted" or "hash", exiting if
+   * there's no such index.
+   * @see ChainIndex
+   * @return Index type
+   */
+  public String getIndexType() {
+    String index = cmdArgs.get("index");
+    if (!index.equals("sorted") && !index.equals("hash")) {
+      System.out.println("Unknown index: " + index);
+      System.exit(-1);
+    }
+    return index;
+  }
+
+  /**
+   * Return the directories passed via <code>--table-dir</code>, which may be repeated. When any
+   * are passed, each table is held in a file of its own, and the files are spread over the
+   * directories in turn. When none are, every table is held in one file in the working directory.
+   * @return Table directories, empty if none passed
+   */
+  public List<Path> getTableDirs() {
+    List<Path> dirs = new ArrayList<>();
+    if (cmdArgs.containsKey("table-dir")) {
+      for (String dir : cmdArgs.get("table-dir").split(File.pathSeparator)) {
+        dirs.add(Paths.get(dir));
+      }
+    }
+    return dirs;
+  }
+
+  /**
+   * Return the number of searches whose candidate end-of-chain hashes are cached, so that
+   * searching for the same hash again skips computing them.<br>
+   * The least recently used are evicted first, so searching a file of more distinct hashes than
+   * this evicts each before it's searched again. To re-search a file, it must be at least the
+   * number of distinct hashes in it.
+   * @see CandidateCache
+   * @return Cache size, or 0 for no cache
+   */
+  public int getCacheSize() {
+    return Math.max(0, Integer.decode(cmdArgs.get("cache-size")));
+  }
+
+  /**
+   * Return the file the candidate cache is loaded from and saved to, if any.
+   * @see CandidateCache
+   * @return Cache file, or null if the cache isn't kept between runs
+   */
+  public String getCacheFile() {
+    return cmdArgs.getOrDefault("cache-file", null);
+  }
+
+  /**
+   * Return the most tables held open at once while searching, over every table file. Tables are
+   * opened when first searched, and the least recently searched are closed to stay within the
+   * limit.
+   * @see LazyTable
+   * @return Most tables open, or 0 for no limit
+   */
+  public int getOpenTables() {
+    return Math.max(0, Integer.decode(cmdArgs.get("open-tables")));
+  }
+
+  /**
+   * Return whether a perfect table, one where no two chains share an end, was requested.
+   * @return Perfect table requested
+   */
+  public boolean isPerfect() {
+    return cmdArgs.containsKey("perfect");
+  }
+
+  /**
+   * Return whether each table has a reduction family of its own, the table's index being mixed
+   * into the salt of every reduction.
+   * @see Tables#familySalt(int, Config)
+   * @return Salted tables requested
+   */
+  public boolean isSaltedTables() {
+    return cmdArgs.containsKey("salted-tables");
+  }
+
+  /**
+   * Return the number of rows generated and sorted in memory at a time during table generation,
+   * before being spilled to disk. Bounds the memory taken, whatever the size of the table.
+   * @see TableWriter
+   * @return Rows per run
+   */
+  public int getRunSize() {
+    return Math.max(1, Integer.decode(cmdArgs.get("run-size")));
+  }
+
+  /**
+   * Return the number of chains each thread walks at once during table generation, hashing a
+   * key of each per step.
+   * @see BatchWalker
+   * @return Chains walked at once
+   */
+  public int getHashLanes() {
+    return Math.max(1, Integer.decode(cmdArgs.get("hash-lanes")));
+  }
+
+  /**
+   * Return whether generation should continue from the checkpoint left by an earlier attempt,
+   * rather than start over.
+   * @see Checkpoint
+   * @return Resume requested
+   */
+  public boolean isResume() {
+    return cmdArgs.containsKey("resume");
+  }
+
+  /**
+   * Return the number of worker threads used for table generation and searching.
+   * @return Number of worker threads
+   */
+  public int getThreadCount() {
+    return Math.max(1, Integer.decode(cmdArgs.get("threads")));
+  }
+
 
   // PROTECTED
   /**
@@ -163,6 +422,34 @@ public class Config {
             .required(false)
             .build()
     );
+    options.addOption(
+        Option.builder()
+            .longOpt("min-length")
+            .desc("Shortest key length, for keys of several lengths (default: --key-length)")
+            .hasArg()
+            .argName("NUM")
+            .required(false)
+            .build()
+    );
+    options.addOption(
+        Option.builder()
+            .longOpt("max-length")
+            .desc("Longest key length, for keys of several lengths (default: --key-length)")
+            .hasArg()
+            .argName("NUM")
+            .required(false)
+            .build()
+    );
+    options.addOption(
+        Option.builder()
+            .longOpt("charset")
+            .desc("Characters keys are drawn from, either one of " + KeySpace.charsetNames() +
+                ", or the characters themselves (default: " + DEFAULT_CHARSET + ")")
+            .hasArg()
+            .argName("CHARS")
+            .required(false)
+            .build()
+    );
     options.addOption(
         Option.builder()
             .longOpt("row-count")
@@ -190,6 +477,189 @@ public class Config {
             .required(false)
             .build()
     );
+    options.addOption(
+        Option.builder()
+            .longOpt("placement")
+            .desc("How chains are placed over the tables: 'sequential', 'round-robin' or " +
+                "'least-full', the last two moving a chain that collides in one table to another " +
+                "(default: " + DEFAULT_PLACEMENT + ")")
+            .hasArg()
+            .argName("NAME")
+            .required(false)
+            .build()
+    );
+
+    options.addOption(
+        Option.builder()
+            .longOpt("threads")
+            .desc("Worker threads used for table generation and searching (default: " +
+                DEFAULT_THREAD_COUNT + ")")
+            .hasArg()
+            .argName("NUM")
+            .required(false)
+            .build()
+    );
+
+    options.addOption(
+        Option.builder()
+            .longOpt("run-size")
+            .desc("Rows generated and sorted in memory at a time, before being written to disk " +
+                "(default: " + DEFAULT_RUN_SIZE + ")")
+            .hasArg()
+            .argName("NUM")
+            .required(false)
+            .build()
+    );
+
+    options.addOption(
+        Option.builder()
+            .longOpt("hash-lanes")
+            .desc("Chains each thread generates at once, hashing a batch of keys per step. " +
+                "Batches are only hashed together for sha1, 1 walks one chain at a time " +
+                "(default: " + DEFAULT_HASH_LANES + ")")
+            .hasArg()
+            .argName("NUM")
+            .required(false)
+            .build()
+    );
+
+    options.addOption(
+        Option.builder()
+            .longOpt("resume")
+            .desc("Continue generating a table from the checkpoint left by an earlier attempt")
+            .hasArg(false)
+            .required(false)
+            .build()
+    );
+
+    options.addOption(
+        Option.builder()
+            .longOpt("index")
+            .desc("Search tables in place on disk with 'sorted', or load them into an in-memory " +
+                "'hash' index (default: " + DEFAULT_INDEX + ")")
+            .hasArg()
+            .argName("TYPE")
+            .required(false)
+            .build()
+    );
+
+    options.addOption(
+        Option.builder()
+            .longOpt("table-dir")
+            .desc("Hold each table in a file of its own, spread over every DIR passed. May be " +
+                "repeated, to spread tables over several disks (default: one file in the " +
+                "working directory)")
+            .hasArg()
+            .argName("DIR")
+            .required(false)
+            .build()
+    );
+
+    options.addOption(
+        Option.builder()
+            .longOpt("open-tables")
+            .desc("Most tables held open at once while searching, over every table file. Below " +
+                "--table-count, tables are opened again as they're searched (default: " +
+                DEFAULT_OPEN_TABLES + ", no limit)")
+            .hasArg()
+            .argName("NUM")
+            .required(false)
+            .build()
+    );
+
+    options.addOption(
+        Option.builder()
+            .longOpt("cache-size")
+            .desc("Searches whose candidate end-of-chain hashes are cached, so a repeated " +
+                "search skips computing them, 0 for none. To re-search a --search-file, use at " +
+                "least as many as its distinct hashes, or none are kept until searched again " +
+                "(default: " + DEFAULT_CACHE_SIZE + ")")
+            .hasArg()
+            .argName("NUM")
+            .required(false)
+            .build()
+    );
+    options.addOption(
+        Option.builder()
+            .longOpt("cache-file")
+            .desc("Load cached candidate end-of-chain hashes from FILE, and save them back " +
+                "once searching is done")
+            .hasArg()
+            .argName("FILE")
+            .required(false)
+            .build()
+    );
+
+    options.addOption(
+        Option.builder()
+            .longOpt("hash")
+            .desc("Hash function chains are built with: sha1, md5, sha256 or ntlm (default: " +
+                DEFAULT_HASH + ")")
+            .hasArg()
+            .argName("NAME")
+            .required(false)
+            .build()
+    );
+    options.addOption(
+        Option.builder()
+            .longOpt("reduction")
+            .desc("Reduction function chains are built with: 'fold', or 'mix' which covers " +
+                "the key space more evenly (default: " + DEFAULT_REDUCTION + ")")
+            .hasArg()
+            .argName("NAME")
+            .required(false)
+            .build()
+    );
+    options.addOption(
+        Option.builder()
+            .longOpt("dp-bits")
+            .desc("End chains at distinguished points, hashes whose lowest NUM bits are 0. " +
+                "--chain-length becomes the longest chain allowed (default: " +
+                DEFAULT_DP_BITS + ", off)")
+            .hasArg()
+            .argName("NUM")
+            .required(false)
+            .build()
+    );
+    options.addOption(
+        Option.builder()
+            .longOpt("min-chain-length")
+            .desc("Shortest distinguished-point chain kept (default: " +
+                DEFAULT_MIN_CHAIN_LEN + ")")
+            .hasArg()
+            .argName("NUM")
+            .required(false)
+            .build()
+    );
+    options.addOption(
+        Option.builder()
+            .longOpt("check-bits")
+            .desc("Store NUM bits (up to " + MAX_CHECK_BITS + ") sampled along each chain, " +
+                "used to reject false alarms without walking the chain (default: " +
+                DEFAULT_CHECK_BITS + ", off)")
+            .hasArg()
+            .argName("NUM")
+            .required(false)
+            .build()
+    );
+    options.addOption(
+        Option.builder()
+            .longOpt("perfect")
+            .desc("Generate a perfect table, removing every chain that merges with another")
+            .hasArg(false)
+            .required(false)
+            .build()
+    );
+    options.addOption(
+        Option.builder()
+            .longOpt("salted-tables")
+            .desc("Give each table a reduction family of its own, so that chains of different " +
+                "tables never merge. Searches then walk each table's candidates separately. " +
+                "Needs --reduction mix.")
+            .hasArg(false)
+            .required(false)
+            .build()
+    );
 
     options.addOption("h", "help", false, "Print this message.");
 
@@ -223,13 +693,27 @@ public class Config {
     // Put command line arguments into a Map
     Map<String,String> cmdArgs = new HashMap<>();
     for(Option opt : cmd.getOptions()) {
-      cmdArgs.put(opt.getLongOpt(), opt.getValue());
+      if ("table-dir".equals(opt.getLongOpt()) && cmdArgs.containsKey("table-dir")) {
+        // Repeated, so every directory is kept
+        cmdArgs.put("table-dir", cmdArgs.get("table-dir") + File.pathSeparator + opt.getValue());
+      } else {
+        cmdArgs.put(opt.getLongOpt(), opt.getValue());
+      }
     }
 
     // If not provided we insert the default values
     if(!cmdArgs.containsKey("key-length")) {
       cmdArgs.put("key-length", DEFAULT_KEY_LEN);
     }
+    if(!cmdArgs.containsKey("min-length")) {
+      cmdArgs.put("min-length", cmdArgs.get("key-length"));
+    }
+    if(!cmdArgs.containsKey("max-length")) {
+      cmdArgs.put("max-length", cmdArgs.get("key-length"));
+    }
+    if(!cmdArgs.containsKey("charset")) {
+      cmdArgs.put("charset", DEFAULT_CHARSET);
+    }
     if(!cmdArgs.containsKey("chain-length")) {
       cmdArgs.put("chain-length", DEFAULT_CHAIN_LEN);
     }
@@ -239,10 +723,120 @@ public class Config {
     if(!cmdArgs.containsKey("table-count")) {
       cmdArgs.put("table-count", DEFAULT_TBL_COUNT);
     }
+    if(!cmdArgs.containsKey("placement")) {
+      cmdArgs.put("placement", DEFAULT_PLACEMENT);
+    }
+    if(!cmdArgs.containsKey("hash")) {
+      cmdArgs.put("hash", DEFAULT_HASH);
+    }
+    if(!cmdArgs.containsKey("reduction")) {
+      cmdArgs.put("reduction", DEFAULT_REDUCTION);
+    }
+    if(!cmdArgs.containsKey("dp-bits")) {
+      cmdArgs.put("dp-bits", DEFAULT_DP_BITS);
+    }
+    if(!cmdArgs.containsKey("min-chain-length")) {
+      cmdArgs.put("min-chain-length", DEFAULT_MIN_CHAIN_LEN);
+    }
+    if(!cmdArgs.containsKey("check-bits")) {
+      cmdArgs.put("check-bits", DEFAULT_CHECK_BITS);
+    }
+    if(!cmdArgs.containsKey("index")) {
+      cmdArgs.put("index", DEFAULT_INDEX);
+    }
+    if(!cmdArgs.containsKey("cache-size")) {
+      cmdArgs.put("cache-size", DEFAULT_CACHE_SIZE);
+    }
+    if(!cmdArgs.containsKey("open-tables")) {
+      cmdArgs.put("open-tables", DEFAULT_OPEN_TABLES);
+    }
+    if(!cmdArgs.containsKey("run-size")) {
+      cmdArgs.put("run-size", DEFAULT_RUN_SIZE);
+    }
+    if(!cmdArgs.containsKey("hash-lanes")) {
+      cmdArgs.put("hash-lanes", DEFAULT_HASH_LANES);
+    }
+    if(!cmdArgs.containsKey("threads")) {
+      cmdArgs.put("threads", DEFAULT_THREAD_COUNT);
+    }
 
     return cmdArgs;
   }
 
+  /**
+   * Creates the <code>HashFunction</code> chosen by <code>--hash</code>, for keys of
+   * <code>KEYLENGTH</code>, exiting if there's no such hash.
+   * @return Hash function
+   */
+  protected HashFunction createHashFunction() {
+    try {
+      return getHashType().newFunction(KEYLENGTH);
+    } catch(IllegalArgumentException e) {
+      System.out.println("Unknown hash: " + cmdArgs.get("hash"));
+      System.exit(-1);
+      return null;
+    }
+  }
+
+  /**
+   * Creates the <code>KeySpace</code> given by <code>--charset</code>, <code>--min-length</code>
+   * and <code>--max-length</code>, exiting if it isn't valid.<br>
+   * The 'fold' reduction builds keys a character at a time, so it can't choose a key's length,
+   * and needs keys of one length. It also folds at least one byte of the hash into each
+   * character, so it needs keys no longer than the hash.
+   * @return Key space
+   */
+  protected KeySpace createKeySpace() {
+    KeySpace space;
+    try {
+      space = new KeySpace(KeySpace.parseCharset(cmdArgs.get("charset")),
+          Integer.decode(cmdArgs.get("min-length")), Integer.decode(cmdArgs.get("max-length")));
+    } catch(IllegalArgumentException e) {
+      System.out.println("Invalid key space: " + e.getMessage());
+      System.exit(-1);
+      return null;
+    }
+    if (reduction == Reduction.FOLD) {
+      if (!space.isFixedLength()) {
+        System.out.println("Keys of several lengths need --reduction mix");
+        System.exit(-1);
+      }
+      try {
+        HashType type = getHashType();
+        if (space.getMaxLength() > type.getDigestLength()) {
+          System.out.println("Keys longer than the " + type.getDigestLength() + "-byte " +
+              type.getOptionName() + " hash need --reduction mix");
+          System.exit(-1);
+        }
+      } catch(IllegalArgumentException e) {
+        // An unknown hash is reported by createHashFunction()
+      }
+    }
+    return space;
+  }
+
+  /**
+   * Looks up the <code>Reduction</code> chosen by <code>--reduction</code>, exiting if there's no
+   * such reduction.<br>
+   * The 'fold' reduction only uses its salt modulo the charset size, so salts offset by a table
+   * don't give it a new reduction family, and salted tables need 'mix'.
+   * @return Reduction
+   */
+  protected Reduction createReduction() {
+    try {
+      Reduction chosen = Reduction.forName(cmdArgs.get("reduction"));
+      if (chosen == Reduction.FOLD && isSaltedTables()) {
+        System.out.println("--salted-tables needs --reduction mix");
+        System.exit(-1);
+      }
+      return chosen;
+    } catch(IllegalArgumentException e) {
+      System.out.println("Unknown reduction: " + cmdArgs.get("reduction"));
+      System.exit(-1);
+      return null;
+    }
+  }
+
   /**
    * Prints the Apache commons-cli help for the passed 'options', then exits.
    * @see HelpFormatter
@@ -0,0 +1,69 @@
+package RBT;
+
+import java.nio.charset.StandardCharsets;
+import java.security.DigestException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * A hash function built on the JCA's <code>MessageDigest</code>, as every hash was before the
+ * hand-rolled implementations. Kept for comparison against them.
+ *
+ * @see HashType#newDigestFunction()
+ */
+class DigestHash implements HashFunction {
+  /** Hash algorithm implemented. */
+  private final HashType type;
+  /** Underlying digest. */
+  private final MessageDigest digest;
+  /** UTF-16LE encoding of the input, for NTLM. */
+  private byte[] encoded = new byte[0];
+
+  /**
+   * Constructs a hash function for <code>type</code>.
+   * @param type Hash algorithm
+   * @throws IllegalStateException No installed provider implements the algorithm
+   */
+  DigestHash(HashType type) {
+    this.type = type;
+    try {
+      digest = MessageDigest.getInstance(type.getJcaName());
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("No provider for " + type.getJcaName(), e);
+    }
+  }
+
+  @Override
+  public HashType getType() {
+    return type;
+  }
+
+  @Override
+  public void hash(byte[] input, int offset, int length, byte[] out) {
+    if (type == HashType.NTLM) {
+      if (encoded.length < length * 2) {
+        encoded = new byte[length * 2];
+      }
+      for (int i = 0; i < length; i++) {
+        encoded[i * 2] = input[offset + i];
+        encoded[i * 2 + 1] = 0;
+      }
+      digest.update(encoded, 0, length * 2);
+    } else {
+      digest.update(input, offset, length);
+    }
+    try {
+      digest.digest(out, 0, getDigestLength());
+    } catch (DigestException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  @Override
+  public byte[] hash(String plaintext) {
+    if (type == HashType.NTLM) {
+      return digest.digest(plaintext.getBytes(StandardCharsets.UTF_16LE));
+    }
+    return digest.digest(plaintext.getBytes(StandardCharsets.UTF_8));
+  }
+}
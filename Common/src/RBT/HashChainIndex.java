@@ -0,0 +1,178 @@
+package RBT;
+
+/**
+ * A rainbow table held in memory as an open-addressing hash table, built from primitive
+ * <code>long[]</code>'s. Chains are placed by their truncated end, and found with linear probing,
+ * so a lookup is normally one or two array reads no matter how many rows are held.<br>
+ * A slot whose end is 0 is empty. A chain that does end with 0 is held outside of the slots.
+ * Rows are numbered by slot, so they are not in order of end.
+ *
+ * @see ChainIndex
+ * @see Table
+ */
+public class HashChainIndex implements ChainIndex {
+  /** Largest number of slots, limited by the largest Java array. */
+  static final int MAX_CAPACITY = 1 << 30;
+  /** Multiplier used to spread ends over the slots (2<sup>64</sup> divided by phi). */
+  private static final long SPREAD = 0x9E3779B97F4A7C15L;
+
+  /** Truncated end-of-chain hashes, by slot. */
+  private final long[] ends;
+  /** Key space indexes of chain-head keys, by slot. */
+  private final long[] heads;
+  /** Chain lengths by slot, or null when chains are of a fixed length. */
+  private final int[] lengths;
+  /** Check bits by slot, or null when not held. */
+  private final byte[] checks;
+  /** Bits taken from the spread end to pick a slot. */
+  private final int shift;
+  /** Slot count, less one. */
+  private final int mask;
+  /** Rows held, including any with an end of 0. */
+  private long size;
+  /** Whether a chain ending with 0 is held. */
+  private boolean hasZeroEnd;
+  /** Head of the chain ending with 0, if any. */
+  private long zeroEndHead;
+  /** Length of the chain ending with 0, if any. */
+  private int zeroEndLength;
+  /** Check bits of the chain ending with 0, if any. */
+  private int zeroEndChecks;
+
+  /**
+   * Constructs a <code>HashChainIndex</code> holding every row of <code>table</code>.
+   * The table is read once, in order, and not kept.
+   * @param table Table to copy
+   */
+  public HashChainIndex(ChainIndex table) {
+    // At most half of the slots are used, keeping probe sequences short
+    long wanted = Math.max(2, table.size() * 2);
+    if (wanted > MAX_CAPACITY) {
+      throw new IllegalArgumentException("Too many rows for a HashChainIndex: " + table.size());
+    }
+    int capacity = Integer.highestOneBit((int) wanted - 1) << 1;
+    ends = new long[capacity];
+    heads = new long[capacity];
+    lengths = table.hasLengths() ? new int[capacity] : null;
+    checks = table.hasChecks() ? new byte[capacity] : null;
+    mask = capacity - 1;
+    shift = 64 - Integer.numberOfTrailingZeros(capacity);
+
+    for (long row = 0; row < table.size(); row++) {
+      put(table.getEnd(row), table.getHead(row), table.getLength(row), table.getChecks(row));
+    }
+  }
+
+  /**
+   * Adds a row, unless a row with the same end is already held.
+   * @param end Truncated end-of-chain hash
+   * @param head Key space index of the chain-head key
+   * @param length Chain length, ignored unless lengths are held
+   * @param check Check bits, ignored unless check bits are held
+   * @return Success or failure
+   */
+  private boolean put(long end, long head, int length, int check) {
+    if (end == 0) {
+      if (hasZeroEnd) {
+        return false;
+      }
+      hasZeroEnd = true;
+      zeroEndHead = head;
+      zeroEndLength = length;
+      zeroEndChecks = check;
+      size++;
+      return true;
+    }
+    int slot = slot(end);
+    while (ends[slot] != 0) {
+      if (ends[slot] == end) {
+        return false;
+      }
+      slot = (slot + 1) & mask;
+    }
+    ends[slot] = end;
+    heads[slot] = head;
+    if (lengths != null) {
+      lengths[slot] = length;
+    }
+    if (checks != null) {
+      checks[slot] = (byte) check;
+    }
+    size++;
+
+    return true;
+  }
+
+  /**
+   * First slot probed for <code>end</code>.
+   * @param end Truncated end-of-chain hash
+   * @return Slot
+   */
+  private int slot(long end) {
+    return (int) ((end * SPREAD) >>> shift);
+  }
+
+  @Override
+  public long size() {
+    return size;
+  }
+
+  /**
+   * Finds the slot of the chain ending with <code>end</code>. The chain ending with 0, if any,
+   * is given the row one past the last slot.
+   * @param end Truncated end-of-chain hash
+   * @return Row, or NOT_FOUND
+   */
+  @Override
+  public long find(long end) {
+    if (end == 0) {
+      return hasZeroEnd ? ends.length : NOT_FOUND;
+    }
+    int slot = slot(end);
+    long slotEnd;
+    while ((slotEnd = ends[slot]) != 0) {
+      if (slotEnd == end) {
+        return slot;
+      }
+      slot = (slot + 1) & mask;
+    }
+
+    return NOT_FOUND;
+  }
+
+  @Override
+  public long getEnd(long row) {
+    return row == ends.length ? 0 : ends[(int) row];
+  }
+
+  @Override
+  public long getHead(long row) {
+    return row == ends.length ? zeroEndHead : heads[(int) row];
+  }
+
+  @Override
+  public boolean hasLengths() {
+    return lengths != null;
+  }
+
+  @Override
+  public int getLength(long row) {
+    if (lengths == null) {
+      return 0;
+    }
+    return row == ends.length ? zeroEndLength : lengths[(int) row];
+  }
+
+  @Override
+  public boolean hasChecks() {
+    return checks != null;
+  }
+
+  @Override
+  public int getChecks(long row) {
+    if (checks == null) {
+      return 0;
+    }
+    return row == ends.length ? zeroEndChecks : checks[(int) row] & 0xff;
+  }
+}
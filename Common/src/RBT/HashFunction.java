@@ -0,0 +1,59 @@
+package RBT;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A hash function that chains are built with, as chosen by <code>--hash</code>. Plain-text keys
+ * are hashed as one byte per character.<br>
+ * Implementations hold working buffers, and so aren't safe to share between threads; create one
+ * per thread from its <code>HashType</code> instead.
+ *
+ * @see HashType
+ * @see ChainWalker
+ */
+public interface HashFunction {
+  /**
+   * Return the hash algorithm implemented.
+   * @return Hash type
+   */
+  HashType getType();
+
+  /**
+   * Return the length of each hash, in bytes.
+   * @return Digest length
+   */
+  default int getDigestLength() {
+    return getType().getDigestLength();
+  }
+
+  /**
+   * Hash <code>length</code> bytes of <code>input</code>, starting at <code>offset</code>, into
+   * the first <code>getDigestLength()</code> bytes of <code>out</code>.
+   * @param input Plain-text, one byte per character
+   * @param offset Position of the first byte hashed
+   * @param length Number of bytes hashed
+   * @param out Receives the hash
+   */
+  void hash(byte[] input, int offset, int length, byte[] out);
+
+  /**
+   * Hash every byte of <code>input</code> into a new array.
+   * @param input Plain-text, one byte per character
+   * @return Hash
+   */
+  default byte[] hash(byte[] input) {
+    byte[] out = new byte[getDigestLength()];
+    hash(input, 0, input.length, out);
+
+    return out;
+  }
+
+  /**
+   * Hash <code>plaintext</code>, encoded as UTF-8, or as the algorithm defines for text.
+   * @param plaintext Plain-text
+   * @return Hash
+   */
+  default byte[] hash(String plaintext) {
+    return hash(plaintext.getBytes(StandardCharsets.UTF_8));
+  }
+}
@@ -0,0 +1,148 @@
+package RBT;
+
+/**
+ * The hash algorithms chains may be built with, as chosen by <code>--hash</code>. Each has an id,
+ * recorded in the table file, and a name, as passed on the command line.<p>
+ * <code>newFunction()</code> gives the hand-rolled implementation, which works on 32-bit words
+ * directly and, for inputs that fit a single block, reuses the padding of one input length from
+ * hash to hash. <code>newDigestFunction()</code> gives one built on the JCA's
+ * <code>MessageDigest</code>, for comparison.</p>
+ * NTLM is MD4 over the UTF-16LE encoding of the plain-text.
+ *
+ * @see HashFunction
+ * @see TableFile
+ */
+public enum HashType {
+  /** SHA-1, the original and default. */
+  SHA1(1, "sha1", "SHA-1", 20),
+  /** MD5. */
+  MD5(2, "md5", "MD5", 16),
+  /** SHA-256. */
+  SHA256(3, "sha256", "SHA-256", 32),
+  /** NTLM, being MD4 over UTF-16LE. */
+  NTLM(4, "ntlm", "MD4", 16);
+
+  /** Id recorded in the table file. */
+  private final int id;
+  /** Name passed to <code>--hash</code>. */
+  private final String optionName;
+  /** Name of the underlying algorithm in the JCA. */
+  private final String jcaName;
+  /** Length of each hash, in bytes. */
+  private final int digestLength;
+
+  /**
+   * Constructs a hash type.
+   * @param id Id recorded in the table file
+   * @param optionName Name passed to --hash
+   * @param jcaName Name of the underlying algorithm in the JCA
+   * @param digestLength Length of each hash, in bytes
+   */
+  HashType(int id, String optionName, String jcaName, int digestLength) {
+    this.id = id;
+    this.optionName = optionName;
+    this.jcaName = jcaName;
+    this.digestLength = digestLength;
+  }
+
+  // PUBLIC
+  /**
+   * Return the id recorded in the table file.
+   * @return Id
+   */
+  public int getId() {
+    return id;
+  }
+
+  /**
+   * Return the name passed to <code>--hash</code>.
+   * @return Option name
+   */
+  public String getOptionName() {
+    return optionName;
+  }
+
+  /**
+   * Return the name of the underlying algorithm in the JCA.
+   * @return JCA algorithm name
+   */
+  public String getJcaName() {
+    return jcaName;
+  }
+
+  /**
+   * Return the length of each hash, in bytes.
+   * @return Digest length
+   */
+  public int getDigestLength() {
+    return digestLength;
+  }
+
+  /**
+   * Create a hand-rolled implementation, fastest for inputs of <code>inputLength</code>
+   * characters, though any length may be hashed.
+   * @param inputLength Length of most inputs, such as the key length, or -1 if none
+   * @return Hash function
+   */
+  public HashFunction newFunction(int inputLength) {
+    switch (this) {
+      case MD5:
+        return new Md5Hash(inputLength);
+      case SHA256:
+        return new Sha256Hash(inputLength);
+      case NTLM:
+        return new NtlmHash(inputLength);
+      default:
+        return new Sha1Hash(inputLength);
+    }
+  }
+
+  /**
+   * Create a hand-rolled implementation for inputs of any length.
+   * @return Hash function
+   */
+  public HashFunction newFunction() {
+    return newFunction(-1);
+  }
+
+  /**
+   * Create an implementation built on the JCA's <code>MessageDigest</code>.
+   * @return Hash function
+   * @throws IllegalStateException No installed provider implements the algorithm, as is usual
+   *     for MD4
+   */
+  public HashFunction newDigestFunction() {
+    return new DigestHash(this);
+  }
+
+  // PUBLIC, STATIC
+  /**
+   * Return the hash type passed to <code>--hash</code> as <code>name</code>.
+   * @param name Option name, in any case
+   * @return Hash type
+   * @throws IllegalArgumentException No hash type has that name
+   */
+  public static HashType forName(String name) {
+    for (HashType type : values()) {
+      if (type.optionName.equalsIgnoreCase(name)) {
+        return type;
+      }
+    }
+    throw new IllegalArgumentException("Unknown hash: " + name);
+  }
+
+  /**
+   * Return the hash type recorded in a table file as <code>id</code>.
+   * @param id Id
+   * @return Hash type
+   * @throws IllegalArgumentException No hash type has that id
+   */
+  public static HashType forId(int id) {
+    for (HashType type : values()) {
+      if (type.id == id) {
+        return type;
+      }
+    }
+    throw new IllegalArgumentException("Unknown hash id: " + id);
+  }
+}
@@ -0,0 +1,162 @@
+package RBT;
+
+import java.util.Arrays;
+
+/**
+ * Converts hashes between bytes and hex, through lookup tables, without allocating.<p>
+ * Decoding validates and decodes in one pass, straight from a <code>CharSequence</code>, or from
+ * ASCII bytes, into a caller's buffer, and accepts either case. Encoding writes lower-case hex,
+ * into a caller's <code>char[]</code> or <code>byte[]</code>. Only <code>toHexString()</code>
+ * allocates, for the <code>String</code> it returns.</p>
+ * Every method is stateless, and safe to call from any thread.
+ *
+ * @see Tables#hexStringToByteArray(String)
+ * @see Tables#byteArrayToHexString(byte[])
+ * @see Tables#isValidHexHash(String, Config)
+ */
+public class Hex {
+  /** Lower-case hex digits, indexed by value. */
+  private static final char[] DIGITS = "0123456789abcdef".toCharArray();
+  /** Both hex digits of each byte value, high digit first, indexed by the byte times 2. */
+  private static final char[] PAIRS = new char[512];
+  /** Value of each ASCII character as a hex digit, or -1 if it isn't one. */
+  private static final byte[] VALUES = new byte[128];
+
+  static {
+    for (int b = 0; b < 256; b++) {
+      PAIRS[b * 2] = DIGITS[b >>> 4];
+      PAIRS[b * 2 + 1] = DIGITS[b & 0xf];
+    }
+    Arrays.fill(VALUES, (byte) -1);
+    for (int i = 0; i < 16; i++) {
+      VALUES[DIGITS[i]] = (byte) i;
+      VALUES[Character.toUpperCase(DIGITS[i])] = (byte) i;
+    }
+  }
+
+  // PROTECTED, STATIC
+  /**
+   * Decodes <code>s</code>, which must be exactly the hex of <code>out.length</code> bytes, into
+   * <code>out</code>.
+   * @param s Hex, two characters per byte, in either case
+   * @param out Receives the bytes; its contents are undefined if 's' isn't valid
+   * @return True if 's' was valid, and decoded
+   */
+  static boolean decode(CharSequence s, byte[] out) {
+    return decode(s, 0, s.length(), out);
+  }
+
+  /**
+   * Decodes the characters of <code>s</code> from <code>start</code> to <code>end</code>, which
+   * must be exactly the hex of <code>out.length</code> bytes, into <code>out</code>.
+   * @param s Characters holding the hex
+   * @param start Index of the first character
+   * @param end Index after the last character
+   * @param out Receives the bytes; its contents are undefined if the hex isn't valid
+   * @return True if the hex was valid, and decoded
+   */
+  static boolean decode(CharSequence s, int start, int end, byte[] out) {
+    if (end - start != out.length * 2) {
+      return false;
+    }
+    int bad = 0;
+    for (int i = 0, j = start; i < out.length; i++, j += 2) {
+      int hi = value(s.charAt(j));
+      int lo = value(s.charAt(j + 1));
+      // Any invalid digit is -1, which sets the sign bit
+      bad |= hi | lo;
+      out[i] = (byte) (hi << 4 | lo);
+    }
+    return bad >= 0;
+  }
+
+  /**
+   * Decodes <code>length</code> ASCII bytes of <code>src</code> from <code>offset</code>, which
+   * must be exactly the hex of <code>out.length</code> bytes, into <code>out</code>.
+   * @param src ASCII bytes holding the hex, such as a line read from a file
+   * @param offset Index of the first byte of hex
+   * @param length Bytes of hex
+   * @param out Receives the bytes; its contents are undefined if the hex isn't valid
+   * @return True if the hex was valid, and decoded
+   */
+  static boolean decode(byte[] src, int offset, int length, byte[] out) {
+    if (length != out.length * 2) {
+      return false;
+    }
+    int bad = 0;
+    for (int i = 0, j = offset; i < out.length; i++, j += 2) {
+      int hi = value((char) (src[j] & 0xff));
+      int lo = value((char) (src[j + 1] & 0xff));
+      bad |= hi | lo;
+      out[i] = (byte) (hi << 4 | lo);
+    }
+    return bad >= 0;
+  }
+
+  /**
+   * Return whether <code>s</code> is exactly <code>length</code> hex characters.
+   * @param s Characters to check
+   * @param length Hex characters expected
+   * @return True if 's' is valid hex of that length
+   */
+  static boolean isHex(CharSequence s, int length) {
+    if (s.length() != length) {
+      return false;
+    }
+    int bad = 0;
+    for (int i = 0; i < length; i++) {
+      bad |= value(s.charAt(i));
+    }
+    return bad >= 0;
+  }
+
+  /**
+   * Encodes <code>b</code> as lower-case hex into <code>out</code>, from <code>offset</code>.
+   * @param b Bytes, such as a hash
+   * @param out Receives two characters per byte
+   * @param offset Index of the first character written
+   */
+  static void encode(byte[] b, char[] out, int offset) {
+    for (int i = 0; i < b.length; i++) {
+      int pair = (b[i] & 0xff) * 2;
+      out[offset++] = PAIRS[pair];
+      out[offset++] = PAIRS[pair + 1];
+    }
+  }
+
+  /**
+   * Encodes <code>b</code> as lower-case ASCII hex into <code>out</code>, from
+   * <code>offset</code>.
+   * @param b Bytes, such as a hash
+   * @param out Receives two ASCII bytes per byte
+   * @param offset Index of the first byte written
+   */
+  static void encode(byte[] b, byte[] out, int offset) {
+    for (int i = 0; i < b.length; i++) {
+      int pair = (b[i] & 0xff) * 2;
+      out[offset++] = (byte) PAIRS[pair];
+      out[offset++] = (byte) PAIRS[pair + 1];
+    }
+  }
+
+  /**
+   * Return <code>b</code> as a lower-case hex <code>String</code>.
+   * @param b Bytes, such as a hash
+   * @return Hex, two characters per byte
+   */
+  static String toHexString(byte[] b) {
+    char[] hex = new char[b.length * 2];
+    encode(b, hex, 0);
+    return new String(hex);
+  }
+
+  // PRIVATE, STATIC
+  /**
+   * Value of <code>c</code> as a hex digit.
+   * @param c Character
+   * @return 0 to 15, or -1 if 'c' isn't a hex digit
+   */
+  private static int value(char c) {
+    return c < 128 ? VALUES[c] : -1;
+  }
+}
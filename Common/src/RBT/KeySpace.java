@@ -0,0 +1,281 @@
+package RBT;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+/**
+ * The plain-text keys a table covers: every key of <code>--min-length</code> to
+ * <code>--max-length</code> characters drawn from <code>--charset</code>. Each key has an index
+ * in the key space. Shorter keys come first, and keys of one length are numbered as numbers in
+ * base N, N being the charset size, with the first character most significant.<p>
+ * Place values, N<sup>i</sup>, and the index of the first key of each length are precomputed, so
+ * converting between an index and a key takes no <code>Math.pow()</code>. The charset is held as
+ * the bytes that are hashed, along with a table from byte back to digit.</p>
+ * A <code>KeySpace</code> is immutable, and safe to share between threads.
+ *
+ * @see Config#getKeySpace()
+ * @see Tables#indexToKey(long, Config, byte[])
+ */
+public class KeySpace {
+  /** Charsets that may be named on the command line, and their characters. */
+  private static final String[][] NAMED_CHARSETS = {
+      {"alnum", "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789"},
+      {"alpha", "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ"},
+      {"lower", "abcdefghijklmnopqrstuvwxyz"},
+      {"upper", "ABCDEFGHIJKLMNOPQRSTUVWXYZ"},
+      {"digits", "0123456789"},
+      {"lower-digits", "abcdefghijklmnopqrstuvwxyz0123456789"},
+      {"printable", " !\"#$%&'()*+,-./0123456789:;<=>?@ABCDEFGHIJKLMNOPQRSTUVWXYZ[\\]^_`" +
+          "abcdefghijklmnopqrstuvwxyz{|}~"}
+  };
+
+  /** Characters of the key space, as the bytes that are hashed. */
+  private final byte[] charset;
+  /** Position of each byte in <code>charset</code>, indexed by the byte, or -1 if absent. */
+  private final int[] digits = new int[256];
+  /** Shortest key length. */
+  private final int minLength;
+  /** Longest key length. */
+  private final int maxLength;
+  /** N<sup>i</sup>, for i from 0 to maxLength. */
+  private final long[] placeValues;
+  /** Index of the first key of each length, from 0 to maxLength + 1. */
+  private final long[] offsets;
+  /** Number of keys. */
+  private final long size;
+  /**
+   * Key characters the 'mix' reduction reads off each 64-bit word, as many as keep it within
+   * 2<sup>56</sup> keys, so that at least 8 bits are spare and any bias is below 2<sup>-8</sup>.
+   */
+  private final int mixDigits;
+
+  /**
+   * Constructs the key space of every key of <code>minLength</code> to <code>maxLength</code>
+   * characters drawn from <code>charset</code>.
+   * @param charset Characters, as the bytes that are hashed, in the order keys are numbered
+   * @param minLength Shortest key length
+   * @param maxLength Longest key length
+   * @throws IllegalArgumentException The charset repeats a character, the lengths are out of
+   *     order, or there are more keys than a long holds
+   */
+  public KeySpace(byte[] charset, int minLength, int maxLength) {
+    if (charset.length < 2) {
+      throw new IllegalArgumentException("Charset needs at least 2 characters");
+    }
+    if (minLength < 1 || maxLength < minLength) {
+      throw new IllegalArgumentException(
+          "Key lengths must satisfy 1 <= min <= max: " + minLength + ", " + maxLength);
+    }
+    this.charset = charset.clone();
+    this.minLength = minLength;
+    this.maxLength = maxLength;
+    Arrays.fill(digits, -1);
+    for (int i = 0; i < charset.length; i++) {
+      if (digits[charset[i] & 0xff] >= 0) {
+        throw new IllegalArgumentException("Charset repeats '" + (char) charset[i] + "'");
+      }
+      digits[charset[i] & 0xff] = i;
+    }
+
+    placeValues = new long[maxLength + 1];
+    offsets = new long[maxLength + 2];
+    placeValues[0] = 1;
+    try {
+      for (int i = 1; i <= maxLength; i++) {
+        placeValues[i] = Math.multiplyExact(placeValues[i - 1], (long) charset.length);
+      }
+      for (int length = minLength; length <= maxLength; length++) {
+        offsets[length + 1] = Math.addExact(offsets[length], placeValues[length]);
+      }
+    } catch (ArithmeticException e) {
+      throw new IllegalArgumentException("Key space too large, over " + Long.MAX_VALUE + " keys");
+    }
+    size = offsets[maxLength + 1];
+
+    int mix = 0;
+    for (long keys = charset.length; keys <= 1L << 56; keys *= charset.length) {
+      mix++;
+    }
+    mixDigits = mix;
+  }
+
+  // PUBLIC
+  /**
+   * Return the number of keys.
+   * @return Key space size
+   */
+  public long size() {
+    return size;
+  }
+
+  /**
+   * Return the number of characters in the charset.
+   * @return Charset size, N
+   */
+  public int getCharsetSize() {
+    return charset.length;
+  }
+
+  /**
+   * Return the character with digit <code>digit</code>.
+   * @param digit Position in the charset
+   * @return Character, as the byte that is hashed
+   */
+  public byte getChar(int digit) {
+    return charset[digit];
+  }
+
+  /**
+   * Return the shortest key length.
+   * @return Shortest key length
+   */
+  public int getMinLength() {
+    return minLength;
+  }
+
+  /**
+   * Return the longest key length.
+   * @return Longest key length
+   */
+  public int getMaxLength() {
+    return maxLength;
+  }
+
+  /**
+   * Return whether every key is of one length.
+   * @return True if the shortest and longest key lengths are equal
+   */
+  public boolean isFixedLength() {
+    return minLength == maxLength;
+  }
+
+  /**
+   * Return the number of keys of <code>length</code> characters.
+   * @param length Key length
+   * @return N<sup>length</sup>
+   */
+  public long getPlaceValue(int length) {
+    return placeValues[length];
+  }
+
+  /**
+   * Return the key characters the 'mix' reduction reads off each 64-bit word.
+   * @see Tables#mixToKey(byte[], int, Config, byte[])
+   * @return Digits per word
+   */
+  public int getMixDigits() {
+    return mixDigits;
+  }
+
+  /**
+   * Converts an index in the key space to its key, writing it into <code>key</code>.
+   * @param index Index, between 0 and (size - 1)
+   * @param key Receives the key, one byte per character, in its first bytes
+   * @return Key length
+   */
+  public int indexToKey(long index, byte[] key) {
+    int length = minLength;
+    while (index >= offsets[length + 1]) {
+      length++;
+    }
+    index -= offsets[length];
+    for (int i = 0; i < length; i++) {
+      long place = placeValues[length - 1 - i];
+      int digit = (int) (index / place);
+      key[i] = charset[digit];
+      index -= digit * place;
+    }
+
+    return length;
+  }
+
+  /**
+   * Converts a key to its index in the key space.
+   * @param key Key, one byte per character, in its first 'length' bytes
+   * @param length Key length
+   * @return Index, between 0 and (size - 1), or -1 if the key isn't in the key space
+   */
+  public long keyToIndex(byte[] key, int length) {
+    if (length < minLength || length > maxLength) {
+      return -1;
+    }
+    long index = 0;
+    for (int i = 0; i < length; i++) {
+      int digit = digits[key[i] & 0xff];
+      if (digit < 0) {
+        return -1;
+      }
+      index = index * charset.length + digit;
+    }
+
+    return offsets[length] + index;
+  }
+
+  /**
+   * Converts a key to its index in the key space.
+   * @param key Key
+   * @return Index, between 0 and (size - 1), or -1 if the key isn't in the key space
+   */
+  public long keyToIndex(String key) {
+    byte[] bytes = key.getBytes(StandardCharsets.ISO_8859_1);
+    return keyToIndex(bytes, bytes.length);
+  }
+
+  /**
+   * Return a checksum of the charset, recorded in the table file.
+   * @return CRC-32 of the charset bytes
+   */
+  public int getCharsetChecksum() {
+    CRC32 crc = new CRC32();
+    crc.update(charset, 0, charset.length);
+    return (int) crc.getValue();
+  }
+
+  /**
+   * Return the charset listed as <code>Arrays.toString()</code> lists a <code>Character[]</code>.
+   * @return Charset, such as "[a, b, c]"
+   */
+  public String charsetToString() {
+    StringBuilder sb = new StringBuilder("[");
+    for (int i = 0; i < charset.length; i++) {
+      sb.append(i > 0 ? ", " : "").append((char) (charset[i] & 0xff));
+    }
+    return sb.append(']').toString();
+  }
+
+  // PUBLIC, STATIC
+  /**
+   * Return the characters of the charset passed to <code>--charset</code>, either one of the
+   * named charsets, or the characters themselves.
+   * @param charset Charset name, or characters
+   * @return Characters, as the bytes that are hashed
+   * @throws IllegalArgumentException A character is outside of printable ASCII
+   */
+  public static byte[] parseCharset(String charset) {
+    for (String[] named : NAMED_CHARSETS) {
+      if (named[0].equalsIgnoreCase(charset)) {
+        return named[1].getBytes(StandardCharsets.US_ASCII);
+      }
+    }
+    for (int i = 0; i < charset.length(); i++) {
+      if (charset.charAt(i) < 0x20 || charset.charAt(i) > 0x7e) {
+        throw new IllegalArgumentException(
+            "Charset characters must be printable ASCII: " + charset);
+      }
+    }
+    return charset.getBytes(StandardCharsets.US_ASCII);
+  }
+
+  /**
+   * Return the names of the charsets that may be named on the command line.
+   * @return Charset names, separated by ", "
+   */
+  public static String charsetNames() {
+    StringBuilder sb = new StringBuilder();
+    for (String[] named : NAMED_CHARSETS) {
+      sb.append(sb.length() > 0 ? ", " : "").append(named[0]);
+    }
+    return sb.toString();
+  }
+}
@@ -0,0 +1,173 @@
+package RBT;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A rainbow table held in a table file, mapped only when first searched. Until then, nothing but
+ * the table file's header has been read, so a search touching few tables opens few tables.<p>
+ * Every table searched shares a <code>Pool</code>, whichever table file it's held in, and the
+ * pool may limit how many are held mapped at once. Once over the limit, a table not searched
+ * since the pool last looked is closed, as in the CLOCK page replacement policy, and is mapped
+ * again if searched again.
+ * A closed table's pages are released once its mapping is garbage collected.</p>
+ *
+ * @see ChainIndex
+ * @see MappedTable
+ * @see TableFile#open(Path, Config, int)
+ */
+class LazyTable implements ChainIndex {
+  /** Table file holding the table. */
+  private final Path file;
+  /** Position of the first record in the file. */
+  private final long offset;
+  /** Rows held. */
+  private final long size;
+  /** Optional fields held by each record. */
+  private final int flags;
+  /** Pool of tables the table is opened and closed within. */
+  private final Pool pool;
+  /** Mapped table, or null while closed. */
+  private volatile MappedTable mapped;
+  /** Set each time the table is searched, cleared by the pool as it looks for one to close. */
+  private boolean used;
+
+  /**
+   * Prepares to map <code>rows</code> records that begin at <code>offset</code> in
+   * <code>file</code>. Nothing is read yet.
+   * @param file Table file
+   * @param offset Position of the first record in the file
+   * @param rows Number of records
+   * @param flags Optional fields held by each record
+   * @param pool Pool of tables the table is opened and closed within, shared by every file
+   */
+  LazyTable(Path file, long offset, long rows, int flags, Pool pool) {
+    this.file = file;
+    this.offset = offset;
+    this.size = rows;
+    this.flags = flags;
+    this.pool = pool;
+  }
+
+  @Override
+  public long size() {
+    return size;
+  }
+
+  @Override
+  public long find(long end) {
+    return table().find(end);
+  }
+
+  @Override
+  public long getEnd(long row) {
+    return table().getEnd(row);
+  }
+
+  @Override
+  public long getHead(long row) {
+    return table().getHead(row);
+  }
+
+  @Override
+  public boolean hasLengths() {
+    return (flags & TableFile.FLAG_LENGTHS) != 0;
+  }
+
+  @Override
+  public int getLength(long row) {
+    return table().getLength(row);
+  }
+
+  @Override
+  public boolean hasChecks() {
+    return (flags & TableFile.FLAG_CHECKS) != 0;
+  }
+
+  @Override
+  public int getChecks(long row) {
+    return table().getChecks(row);
+  }
+
+  // PRIVATE
+  /**
+   * Return the mapped table, mapping it first if it's closed.
+   * @return Mapped table
+   */
+  private MappedTable table() {
+    MappedTable table = mapped;
+    if (table == null) {
+      table = open();
+    }
+    used = true;
+
+    return table;
+  }
+
+  /**
+   * Map the table, unless another thread just did, and add it to the pool.
+   * @return Mapped table
+   */
+  private synchronized MappedTable open() {
+    if (mapped == null) {
+      try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+        mapped = new MappedTable(channel, offset, size, flags);
+      } catch (IOException e) {
+        throw new UncheckedIOException("Unable to read table file: " + file, e);
+      }
+      pool.opened(this);
+    }
+
+    return mapped;
+  }
+
+  /**
+   * Drop the mapping. A thread still searching the table keeps its own reference until done.
+   */
+  private void close() {
+    mapped = null;
+  }
+
+  /** Tables held open, among those opened from every table file sharing the pool. */
+  static class Pool {
+    /** Most tables held open at once, or 0 for no limit. */
+    private final int maxOpen;
+    /** Tables held open, in the order they were opened. */
+    private final List<LazyTable> open = new ArrayList<>();
+    /** Position in <code>open</code> where the next look for a table to close starts. */
+    private int hand = 0;
+
+    /**
+     * Constructs an empty pool.
+     * @param maxOpen Most tables held open at once, or 0 for no limit
+     */
+    Pool(int maxOpen) {
+      this.maxOpen = maxOpen;
+    }
+
+    /**
+     * Add a newly opened table, then close tables until the pool is within its limit. Tables
+     * searched since the last look are passed over once, clearing their mark.
+     * @param table Table just opened
+     */
+    synchronized void opened(LazyTable table) {
+      open.add(table);
+      while (maxOpen > 0 && open.size() > maxOpen) {
+        hand %= open.size();
+        LazyTable candidate = open.get(hand);
+        if (candidate == table || candidate.used) {
+          candidate.used = false;
+          hand++;
+        } else {
+          candidate.close();
+          open.remove(hand);
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,121 @@
+package RBT;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * A rainbow table held in a table file, read in place through memory mapping rather than loaded.
+ * Rows are fixed-width records, in order of their end, so a lookup is a binary search over the
+ * mapped pages. Pages are brought in by the operating system as they are touched, and are not
+ * part of the Java heap.<br>
+ * A single mapping is limited to 2GB, so large tables are mapped as several segments.
+ *
+ * @see ChainIndex
+ * @see TableFile
+ */
+class MappedTable implements ChainIndex {
+  /** Mapped segments of the table's records. */
+  private final MappedByteBuffer[] segments;
+  /** Rows held by every segment but the last. */
+  private final long segmentRows;
+  /** Bytes taken by each record. */
+  private final int recordSize;
+  /** Whether each record holds the chain's length. */
+  private final boolean hasLengths;
+  /** Whether each record holds the chain's check bits. */
+  private final boolean hasChecks;
+  /** Position of the check bits within each record. */
+  private final int checksOffset;
+  /** Rows held. */
+  private final long size;
+
+  /**
+   * Maps <code>rows</code> records that begin at <code>offset</code> in <code>channel</code>.
+   * @param channel Open table file
+   * @param offset Position of the first record in the file
+   * @param rows Number of records
+   * @param flags Optional fields held by each record
+   * @throws IOException Unable to map the file
+   */
+  MappedTable(FileChannel channel, long offset, long rows, int flags)
+      throws IOException {
+    size = rows;
+    hasLengths = (flags & TableFile.FLAG_LENGTHS) != 0;
+    hasChecks = (flags & TableFile.FLAG_CHECKS) != 0;
+    checksOffset = TableFile.recordSize(flags & TableFile.FLAG_LENGTHS);
+    recordSize = TableFile.recordSize(flags);
+    segmentRows = Integer.MAX_VALUE / recordSize;
+    segments = new MappedByteBuffer[(int) ((rows + segmentRows - 1) / segmentRows)];
+    for (int i = 0; i < segments.length; i++) {
+      long mappedRows = Math.min(segmentRows, rows - i * segmentRows);
+      segments[i] = channel.map(FileChannel.MapMode.READ_ONLY,
+          offset + i * segmentRows * recordSize,
+          mappedRows * recordSize);
+    }
+  }
+
+  @Override
+  public long size() {
+    return size;
+  }
+
+  @Override
+  public long find(long end) {
+    long low = 0;
+    long high = size - 1;
+    while (low <= high) {
+      long mid = (low + high) >>> 1;
+      long midEnd = getEnd(mid);
+      if (midEnd < end) {
+        low = mid + 1;
+      } else if (midEnd > end) {
+        high = mid - 1;
+      } else {
+        return mid;
+      }
+    }
+
+    return NOT_FOUND;
+  }
+
+  @Override
+  public long getEnd(long row) {
+    return segments[(int) (row / segmentRows)]
+        .getLong((int) (row % segmentRows) * recordSize);
+  }
+
+  @Override
+  public long getHead(long row) {
+    return segments[(int) (row / segmentRows)]
+        .getLong((int) (row % segmentRows) * recordSize + 8);
+  }
+
+  @Override
+  public boolean hasLengths() {
+    return hasLengths;
+  }
+
+  @Override
+  public int getLength(long row) {
+    if (!hasLengths) {
+      return 0;
+    }
+    return segments[(int) (row / segmentRows)]
+        .getInt((int) (row % segmentRows) * recordSize + 16);
+  }
+
+  @Override
+  public boolean hasChecks() {
+    return hasChecks;
+  }
+
+  @Override
+  public int getChecks(long row) {
+    if (!hasChecks) {
+      return 0;
+    }
+    return segments[(int) (row / segmentRows)]
+        .get((int) (row % segmentRows) * recordSize + checksOffset) & 0xff;
+  }
+}
@@ -0,0 +1,74 @@
+package RBT;
+
+/**
+ * Hand-rolled MD4 (RFC 1320). Not offered as a hash of its own, but as the basis of NTLM.
+ *
+ * @see BlockHash
+ * @see NtlmHash
+ */
+class Md4Hash extends BlockHash {
+  /** Order words are read in by the third round. */
+  private static final int[] ROUND3 = {0, 8, 4, 12, 2, 10, 6, 14, 1, 9, 5, 13, 3, 11, 7, 15};
+
+  /** Chaining state. */
+  private int a0, b0, c0, d0;
+
+  /**
+   * Constructs an MD4 hash function.
+   * @param fixedLength Input length to hash fastest, or -1 if none
+   */
+  Md4Hash(int fixedLength) {
+    super(false, fixedLength);
+  }
+
+  @Override
+  public HashType getType() {
+    return HashType.NTLM;
+  }
+
+  @Override
+  protected void reset() {
+    a0 = 0x67452301;
+    b0 = 0xefcdab89;
+    c0 = 0x98badcfe;
+    d0 = 0x10325476;
+  }
+
+  @Override
+  protected void compress() {
+    int a = a0;
+    int b = b0;
+    int c = c0;
+    int d = d0;
+    for (int i = 0; i < 16; i += 4) {
+      a = Integer.rotateLeft(a + ((b & c) | (~b & d)) + w[i], 3);
+      d = Integer.rotateLeft(d + ((a & b) | (~a & c)) + w[i + 1], 7);
+      c = Integer.rotateLeft(c + ((d & a) | (~d & b)) + w[i + 2], 11);
+      b = Integer.rotateLeft(b + ((c & d) | (~c & a)) + w[i + 3], 19);
+    }
+    for (int i = 0; i < 4; i++) {
+      a = Integer.rotateLeft(a + ((b & c) | (b & d) | (c & d)) + w[i] + 0x5A827999, 3);
+      d = Integer.rotateLeft(d + ((a & b) | (a & c) | (b & c)) + w[i + 4] + 0x5A827999, 5);
+      c = Integer.rotateLeft(c + ((d & a) | (d & b) | (a & b)) + w[i + 8] + 0x5A827999, 9);
+      b = Integer.rotateLeft(b + ((c & d) | (c & a) | (d & a)) + w[i + 12] + 0x5A827999, 13);
+    }
+    for (int i = 0; i < 16; i += 4) {
+      a = Integer.rotateLeft(a + (b ^ c ^ d) + w[ROUND3[i]] + 0x6ED9EBA1, 3);
+      d = Integer.rotateLeft(d + (a ^ b ^ c) + w[ROUND3[i + 1]] + 0x6ED9EBA1, 9);
+      c = Integer.rotateLeft(c + (d ^ a ^ b) + w[ROUND3[i + 2]] + 0x6ED9EBA1, 11);
+      b = Integer.rotateLeft(b + (c ^ d ^ a) + w[ROUND3[i + 3]] + 0x6ED9EBA1, 15);
+    }
+    a0 += a;
+    b0 += b;
+    c0 += c;
+    d0 += d;
+  }
+
+  @Override
+  protected void output(byte[] out) {
+    putWord(a0, out, 0);
+    putWord(b0, out, 4);
+    putWord(c0, out, 8);
+    putWord(d0, out, 12);
+  }
+}
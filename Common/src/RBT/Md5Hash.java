@@ -0,0 +1,87 @@
+package RBT;
+
+/**
+ * Hand-rolled MD5 (RFC 1321).
+ *
+ * @see BlockHash
+ * @see HashType#MD5
+ */
+class Md5Hash extends BlockHash {
+  /** Per-round shift amounts. */
+  private static final int[] S = {
+      7, 12, 17, 22, 5, 9, 14, 20, 4, 11, 16, 23, 6, 10, 15, 21
+  };
+  /** Round constants, the integer part of 2<sup>32</sup> * abs(sin(i + 1)). */
+  private static final int[] T = new int[64];
+  static {
+    for (int i = 0; i < 64; i++) {
+      T[i] = (int) (long) (Math.abs(Math.sin(i + 1)) * 4294967296.0);
+    }
+  }
+
+  /** Chaining state. */
+  private int a0, b0, c0, d0;
+
+  /**
+   * Constructs an MD5 hash function.
+   * @param fixedLength Input length to hash fastest, or -1 if none
+   */
+  Md5Hash(int fixedLength) {
+    super(false, fixedLength);
+  }
+
+  @Override
+  public HashType getType() {
+    return HashType.MD5;
+  }
+
+  @Override
+  protected void reset() {
+    a0 = 0x67452301;
+    b0 = 0xefcdab89;
+    c0 = 0x98badcfe;
+    d0 = 0x10325476;
+  }
+
+  @Override
+  protected void compress() {
+    int a = a0;
+    int b = b0;
+    int c = c0;
+    int d = d0;
+    for (int i = 0; i < 64; i++) {
+      int f;
+      int g;
+      if (i < 16) {
+        f = (b & c) | (~b & d);
+        g = i;
+      } else if (i < 32) {
+        f = (d & b) | (~d & c);
+        g = (5 * i + 1) & 15;
+      } else if (i < 48) {
+        f = b ^ c ^ d;
+        g = (3 * i + 5) & 15;
+      } else {
+        f = c ^ (b | ~d);
+        g = (7 * i) & 15;
+      }
+      int temp = d;
+      d = c;
+      c = b;
+      b += Integer.rotateLeft(a + f + T[i] + w[g], S[(i >>> 4) << 2 | (i & 3)]);
+      a = temp;
+    }
+    a0 += a;
+    b0 += b;
+    c0 += c;
+    d0 += d;
+  }
+
+  @Override
+  protected void output(byte[] out) {
+    putWord(a0, out, 0);
+    putWord(b0, out, 4);
+    putWord(c0, out, 8);
+    putWord(d0, out, 12);
+  }
+}
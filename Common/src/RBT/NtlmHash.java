@@ -0,0 +1,45 @@
+package RBT;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Hand-rolled NTLM, being MD4 over the UTF-16LE encoding of the plain-text. Key bytes are read
+ * as ISO-8859-1 characters, so each becomes the byte followed by a 0.
+ *
+ * @see Md4Hash
+ * @see HashType#NTLM
+ */
+class NtlmHash extends Md4Hash {
+  /** UTF-16LE encoding of the input. */
+  private byte[] encoded;
+
+  /**
+   * Constructs an NTLM hash function.
+   * @param fixedLength Input length, in characters, to hash fastest, or -1 if none
+   */
+  NtlmHash(int fixedLength) {
+    super(fixedLength < 0 ? -1 : fixedLength * 2);
+    encoded = new byte[Math.max(0, fixedLength) * 2];
+  }
+
+  @Override
+  public void hash(byte[] input, int offset, int length, byte[] out) {
+    if (encoded.length < length * 2) {
+      encoded = new byte[length * 2];
+    }
+    for (int i = 0; i < length; i++) {
+      encoded[i * 2] = input[offset + i];
+      encoded[i * 2 + 1] = 0;
+    }
+    super.hash(encoded, 0, length * 2, out);
+  }
+
+  @Override
+  public byte[] hash(String plaintext) {
+    byte[] utf16 = plaintext.getBytes(StandardCharsets.UTF_16LE);
+    byte[] out = new byte[getDigestLength()];
+    super.hash(utf16, 0, utf16.length, out);
+
+    return out;
+  }
+}
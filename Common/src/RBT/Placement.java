@@ -0,0 +1,122 @@
+package RBT;
+
+/**
+ * How chains are placed over the tables during generation, as chosen by <code>--placement</code>.
+ * <p>
+ * <code>SEQUENTIAL</code> fills each table in turn, and a chain whose end is already held by its
+ * table is dropped, along with every hash spent walking it. <code>ROUND_ROBIN</code> generates
+ * runs for each table in turn, and <code>LEAST_FULL</code> for the table with the most rows still
+ * missing. Both offer a chain that collides in one table to another table with room, in the same
+ * order, so the chain is only lost when no other table can take it.</p>
+ * A chain is moved at most once, which bounds the work. Perfect tables drop any end held by
+ * another table, so chains are never moved for them. Nor are they with
+ * <code>--salted-tables</code>, where a chain is only valid in the table it was walked for, and
+ * the placement then only chooses the order tables are generated in.
+ *
+ * @see Table#generateTable(long)
+ * @see TableWriter#place(int, ChainIndex, long)
+ */
+public enum Placement {
+  /** One table after another, dropping collisions. */
+  SEQUENTIAL("sequential"),
+  /** Tables in turn, moving collisions to the next table with room. */
+  ROUND_ROBIN("round-robin"),
+  /** The table missing the most rows, moving collisions to the table missing the most rows. */
+  LEAST_FULL("least-full");
+
+  /** Name passed to <code>--placement</code>. */
+  private final String optionName;
+
+  /**
+   * Constructs a placement.
+   * @param optionName Name passed to --placement
+   */
+  Placement(String optionName) {
+    this.optionName = optionName;
+  }
+
+  // PUBLIC
+  /**
+   * Return the name passed to <code>--placement</code>.
+   * @return Option name
+   */
+  public String getOptionName() {
+    return optionName;
+  }
+
+  /**
+   * Return whether chains that collide in one table are moved to another.
+   * @return False for SEQUENTIAL
+   */
+  public boolean movesCollisions() {
+    return this != SEQUENTIAL;
+  }
+
+  /**
+   * Return the next table to generate chains for, or merge, after <code>previous</code>.
+   * A table is complete once it's missing no rows and has no runs left to merge.
+   * @param missing Rows each table is still missing, not counting rows spilled but not merged
+   * @param spilled Rows spilled for each table, and not yet merged
+   * @param previous Table last worked on, or -1 at the start
+   * @return Index of the table, or -1 if every table is complete
+   */
+  public int nextTable(long[] missing, long[] spilled, int previous) {
+    int tables = missing.length;
+    if (this == LEAST_FULL) {
+      int best = -1;
+      for (int t = 0; t < tables; t++) {
+        if (missing[t] > 0 && (best < 0 || missing[t] > missing[best])) {
+          best = t;
+        }
+      }
+      if (best >= 0) {
+        return best;
+      }
+    }
+    // Sequential stays with a table until it's complete, round-robin moves on each time
+    int start = this == SEQUENTIAL ? 0 : previous + 1;
+    for (int i = 0; i < tables; i++) {
+      int t = (start + i) % tables;
+      if (missing[t] > 0 || spilled[t] > 0) {
+        return t;
+      }
+    }
+
+    return -1;
+  }
+
+  /**
+   * Return the table that chains colliding in <code>from</code> are moved to.
+   * @param missing Rows each table is still missing, not counting rows spilled but not merged
+   * @param from Table the chains collided in
+   * @return Index of a table with room, or -1 if chains aren't moved or no other table has room
+   */
+  public int overflowTable(long[] missing, int from) {
+    int tables = missing.length;
+    int best = -1;
+    for (int i = 1; i < tables && this != SEQUENTIAL; i++) {
+      int t = (from + i) % tables;
+      if (missing[t] > 0 && (best < 0 || (this == LEAST_FULL && missing[t] > missing[best]))) {
+        best = t;
+      }
+    }
+
+    return best;
+  }
+
+  // PUBLIC, STATIC
+  /**
+   * Return the placement passed to <code>--placement</code> as <code>name</code>.
+   * @param name Option name, in any case
+   * @return Placement
+   * @throws IllegalArgumentException No placement has that name
+   */
+  public static Placement forName(String name) {
+    for (Placement placement : values()) {
+      if (placement.optionName.equalsIgnoreCase(name)) {
+        return placement;
+      }
+    }
+    throw new IllegalArgumentException("Unknown placement: " + name);
+  }
+}
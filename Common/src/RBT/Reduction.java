@@ -0,0 +1,68 @@
+package RBT;
+
+/**
+ * The reduction functions chains may be built with, as chosen by <code>--reduction</code>. Each
+ * has an id, recorded in the table file, and a name, as passed on the command line.<p>
+ * <code>FOLD</code> XORs the hash bytes into one bucket per key character and maps each bucket
+ * into the character set with a modulo, which favours some characters over others.
+ * <code>MIX</code> mixes the hash and salt into 64 bits, then reads key characters off as the
+ * digits of that value as a fraction, in base N, N being the charset size, covering the
+ * key space evenly.</p>
+ *
+ * @see Tables#hashToKey(byte[], int, Config, byte[])
+ * @see TableFile
+ */
+public enum Reduction {
+  /** Byte folding, the original and default. */
+  FOLD(1, "fold"),
+  /** 64-bit mixing with base-N digit extraction. */
+  MIX(2, "mix");
+
+  /** Id recorded in the table file. */
+  private final int id;
+  /** Name passed to <code>--reduction</code>. */
+  private final String optionName;
+
+  /**
+   * Constructs a reduction.
+   * @param id Id recorded in the table file
+   * @param optionName Name passed to --reduction
+   */
+  Reduction(int id, String optionName) {
+    this.id = id;
+    this.optionName = optionName;
+  }
+
+  // PUBLIC
+  /**
+   * Return the id recorded in the table file.
+   * @return Id
+   */
+  public int getId() {
+    return id;
+  }
+
+  /**
+   * Return the name passed to <code>--reduction</code>.
+   * @return Option name
+   */
+  public String getOptionName() {
+    return optionName;
+  }
+
+  // PUBLIC, STATIC
+  /**
+   * Return the reduction passed to <code>--reduction</code> as <code>name</code>.
+   * @param name Option name, in any case
+   * @return Reduction
+   * @throws IllegalArgumentException No reduction has that name
+   */
+  public static Reduction forName(String name) {
+    for (Reduction reduction : values()) {
+      if (reduction.optionName.equalsIgnoreCase(name)) {
+        return reduction;
+      }
+    }
+    throw new IllegalArgumentException("Unknown reduction: " + name);
+  }
+}
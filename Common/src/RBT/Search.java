@@ -1,6 +1,8 @@
 package RBT;
 
+import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Scanner;
 
 /**
@@ -22,6 +24,29 @@ public class Search {
    * @see Config
    */
   private Config cfg;
+  /**
+   * Walk chains for this <code>Search</code>, which is why it isn't safe to share between
+   * threads. One per reduction family: one per table with <code>--salted-tables</code>,
+   * otherwise a single walker for every table.
+   * @see ChainWalker
+   */
+  private ChainWalker[] walkers;
+  /** Whether each table has a reduction family of its own, and a walker of its own. */
+  private boolean salted;
+  /**
+   * Candidate ends computed by earlier searches, possibly shared with other <code>Search</code>
+   * objects, or null to compute every candidate.
+   * @see CandidateCache
+   */
+  private CandidateCache cache;
+  /** Hashes computed during the most recent search. */
+  private long hashCount;
+  /** Reductions computed during the most recent search. */
+  private long reductionCount;
+  /** End-of-chain matches that failed to produce the key during the most recent search. */
+  private long falseAlarmCount;
+  /** End-of-chain matches rejected by their check bits during the most recent search. */
+  private long rejectedCount;
 
   /**
    * Constructs a <code>Search</code> object that works against the provided rainbow table.
@@ -31,12 +56,31 @@ public class Search {
    * @param cfg Rainbow table 'Config' object
    */
   public Search(Table rbt, Config cfg) {
+    this(rbt, cfg, null);
+  }
+
+  /**
+   * Constructs a <code>Search</code> object that works against the provided rainbow table, and
+   * reuses the candidate ends held in <code>cache</code>.
+   * @see CandidateCache
+   * @param rbt Rainbow table, as represented by 'Table' object
+   * @param cfg Rainbow table 'Config' object
+   * @param cache Candidate ends shared between searches, or null for none
+   */
+  public Search(Table rbt, Config cfg, CandidateCache cache) {
     this.rbt = rbt;
     this.cfg = cfg;
+    this.cache = cache;
+    salted = cfg.isSaltedTables();
+    walkers = new ChainWalker[salted ? rbt.tables.size() : 1];
+    for (int family = 0; family < walkers.length; family++) {
+      walkers[family] = new ChainWalker(cfg, family);
+    }
   }
 
   /**
-   * Presents user with prompt that accepts hashes in 40-character hex form.
+   * Presents user with prompt that accepts hashes in hex form, of the length given by
+   * <code>--hash</code>.
    * For each provided hash an attempt is made to find the corresponding plain-text key.
    */
   public void searchUserInterface() {
@@ -53,6 +97,9 @@ public class Search {
         long searchTime = System.currentTimeMillis();
         System.out.println(keyFromHash(inputHash));
         System.out.println((System.currentTimeMillis()-searchTime) + " milliseconds to complete.");
+        System.out.format("%,d hashes, %,d reductions, %,d false alarms, " +
+            "%,d rejected by check bits.%n",
+            hashCount, reductionCount, falseAlarmCount, rejectedCount);
       } else if (!inputHash.equals("q")) {
         System.out.println("Inappropriate hash. Try again.\n");
       }
@@ -63,36 +110,243 @@ public class Search {
    * Attempt to find plain-text key that corresponds to hash provided by user.<br>
    * Starting from the far right (end) chain, we work our way towards the front of the chain, one
    * step at a time, running each location in the chain through <code>hashToHashStep()</code>, and
-   * check the resulting hash for a match against <code>searchHash</code>.
-   * @param searchHash 40-character hex-form hash
+   * check the resulting hash for a match against <code>searchHash</code>.<p>
+   * Each candidate end-of-chain hash is computed once, and probed against every table in a single
+   * pass. Since the reduction used at each link depends on its position in the chain, the walk
+   * from one position shares no links with the walk from another, so no partial work can be
+   * carried between positions. A lookup costs about chainLength<sup>2</sup>/2 hash/reduce steps,
+   * regardless of the number of tables.</p><p>
+   * With <code>--salted-tables</code>, each table has a reduction family of its own, so each has
+   * its own candidates, and a lookup costs that much per table. Tables are searched together,
+   * one position at a time, so the cheapest positions of every table are still tried first.</p>
+   * Candidates held by the cache, if any, aren't computed again, and those computed are added to
+   * it, so a repeated search costs only the walks from chain heads.<br>
+   * With <code>--check-bits</code>, the check bits seen while computing each candidate are kept
+   * beside it. A matching chain whose stored check bits disagree can't hold the hash, so it's
+   * rejected without the walk from its head.<br>
+   * Work done is available from {@link #getHashCount()}, {@link #getReductionCount()},
+   * {@link #getFalseAlarmCount()} and {@link #getRejectedCount()} until the next call.
+   * @param searchHash Hex-form hash
    * @return The plain-text key, or blank if not found
    */
   protected String keyFromHash(String searchHash) {
-    // Loop through each position in the chain
-    byte[] curHash = null; // Hash being examined
-    byte[] searchHash_bytes = Tables.hexStringToByteArray(searchHash);
-
-    // We can either step through the chain, and search each rainbow table, or search each
-    // rainbow table, stepping through the chain for each. Stepping through the chain only once
-    // has the advantage of only having to reduce/hash chainLength times. It's possible though
-    // that by searching each table for each link in the chain, we continually are pushing
-    // tables out of the cache (if that's even an issue).
-    // Pick a table...
-    for(int i = 0; i < rbt.tableCount; i++) {
-      // Run through the chain...
-      for (int j = 0; j < rbt.chainLength; j++) {
-        curHash = Tables.hashToHashStep(searchHash_bytes, j, cfg);
-        if(rbt.containsHash(curHash)) {
-          String chainHeadKey = rbt.getHeadKey(curHash);
-          String targetKey = Tables.keyToKeyStep(chainHeadKey, (rbt.chainLength - j - 1), cfg);
-          if (Arrays.equals(Tables.createShaHash(targetKey, cfg), searchHash_bytes)) {
-            return targetKey;
+    return keyFromHash(Tables.hexStringToByteArray(searchHash));
+  }
+
+  /**
+   * Attempt to find the plain-text key that corresponds to <code>searchHash_bytes</code>, as
+   * decoded by the caller.
+   * @see #keyFromHash(String)
+   * @param searchHash_bytes Hash in byte[] form, of the length given by --hash
+   * @return The plain-text key, or blank if not found
+   */
+  protected String keyFromHash(byte[] searchHash_bytes) {
+    hashCount = 0;
+    reductionCount = 0;
+    falseAlarmCount = 0;
+    rejectedCount = 0;
+    if (cfg.getDpBits() > 0) {
+      return keyFromHashDistinguished(searchHash_bytes);
+    }
+
+    // Each candidate end is followed by its check bits, if any are held
+    int stride = cfg.getCheckBits() > 0 ? 2 : 1;
+    int families = walkers.length;
+    long[][] cached = new long[families][];
+    long[][] candidates = new long[families][]; // Candidate ends known, one per position
+    int[] known = new int[families];
+    for (int f = 0; f < families; f++) {
+      cached[f] = cache == null ? null : cache.get(f, searchHash_bytes);
+      candidates[f] = cached[f];
+      known[f] = cached[f] == null ? 0 : cached[f].length / stride;
+    }
+    String key = "";
+
+    // Run through the chain, cheapest position (the end) first...
+    search:
+    for (int j = 0; j < rbt.chainLength; j++) {
+      for (int f = 0; f < families; f++) {
+        ChainWalker walker = walkers[f];
+        long curEnd;
+        int curChecks;
+        if (j < known[f]) {
+          curEnd = candidates[f][j * stride];
+          curChecks = stride > 1 ? (int) candidates[f][j * stride + 1] : 0;
+        } else {
+          curEnd = Tables.truncateHash(walker.hashToHashStep(searchHash_bytes, j));
+          curChecks = walker.getChecks();
+          hashCount += j;
+          reductionCount += j;
+          if (cache != null) {
+            if (candidates[f] == cached[f]) {
+              // Copied, since the cached vector may be in use by other searches
+              candidates[f] = cached[f] == null ? new long[rbt.chainLength * stride]
+                  : Arrays.copyOf(cached[f], rbt.chainLength * stride);
+            }
+            candidates[f][j * stride] = curEnd;
+            if (stride > 1) {
+              candidates[f][j * stride + 1] = curChecks;
+            }
+            known[f] = j + 1;
           }
         }
+        int checkMask = walker.checkMask(j); // Check bits seen from this position
+        // ...and check every table of the family for this candidate
+        for (ChainIndex table : familyTables(f)) {
+          long row = table.find(curEnd);
+          if (row == ChainIndex.NOT_FOUND) {
+            continue;
+          }
+          if (table.hasChecks() && ((table.getChecks(row) ^ curChecks) & checkMask) != 0) {
+            // The chain doesn't pass through the hashes seen, so it can't hold this hash
+            rejectedCount++;
+            continue;
+          }
+          int steps = rbt.chainLength - j - 1; // Position of the target key from the chain head
+          byte[] targetKey = walker.keyToKeyStep(table.getHead(row), steps);
+          hashCount += steps + 1;
+          reductionCount += steps;
+          int targetLength = walker.getKeyLength();
+          if (Arrays.equals(walker.hash(targetKey, targetLength), searchHash_bytes)) {
+            key = new String(targetKey, 0, targetLength, StandardCharsets.US_ASCII);
+            break search;
+          }
+          // Chain merged with another, or the hash simply isn't in this chain
+          falseAlarmCount++;
+        }
+      }
+    }
+
+    for (int f = 0; f < families; f++) {
+      if (candidates[f] != cached[f]) {
+        cache.put(f, searchHash_bytes, Arrays.copyOf(candidates[f], known[f] * stride));
+      }
+    }
+    // Blank if not found
+    return key;
+  }
+
+  /**
+   * Attempt to find the plain-text key that corresponds to <code>searchHash</code> in tables of
+   * distinguished-point chains.<br>
+   * Every link of such a chain uses the same reduction, so the chain through
+   * <code>searchHash</code> can be followed forward from the hash itself. The first
+   * distinguished point reached is the end of any stored chain that holds the hash, and its
+   * stored length gives the hash's position. A lookup costs at most chainLength hash/reduce
+   * steps to find the end, plus one walk from the head for each matching chain whose check bits
+   * agree. With a cache, the end, and its distance from the hash, are only ever found once.<br>
+   * With <code>--salted-tables</code>, the chain through the hash differs in each table, so the
+   * end is found, and costs as much, once per table.
+   * @param searchHash Hash in byte[] form
+   * @return The plain-text key, or blank if not found
+   */
+  private String keyFromHashDistinguished(byte[] searchHash) {
+    for (int f = 0; f < walkers.length; f++) {
+      ChainWalker walker = walkers[f];
+      long[] candidate = cache == null ? null : cache.get(f, searchHash);
+      if (candidate == null) {
+        candidate = findDistinguished(searchHash, walker);
+        if (cache != null) {
+          cache.put(f, searchHash, candidate);
+        }
+      }
+      if (candidate.length == 0) {
+        continue;
+      }
+      long curEnd = candidate[0];
+      int s = (int) candidate[1];
+      int curChecks = candidate.length > 2 ? (int) candidate[2] : 0;
+      int checkMask = walker.checkMask(s); // Check bits seen from the hash
+
+      // 's' steps from the end, check every table of the family for a chain ending here
+      for (ChainIndex table : familyTables(f)) {
+        long row = table.find(curEnd);
+        if (row == ChainIndex.NOT_FOUND) {
+          continue;
+        }
+        int steps = table.getLength(row) - s - 1; // Position of the target key from the head
+        if (steps >= 0 && table.hasChecks()
+            && ((table.getChecks(row) ^ curChecks) & checkMask) != 0) {
+          // The chain doesn't pass through the hashes seen, so it can't hold this hash
+          rejectedCount++;
+          continue;
+        }
+        if (steps >= 0) {
+          byte[] targetKey = walker.keyToKeyStep(table.getHead(row), steps);
+          hashCount += steps + 1;
+          reductionCount += steps;
+          int targetLength = walker.getKeyLength();
+          if (Arrays.equals(walker.hash(targetKey, targetLength), searchHash)) {
+            return new String(targetKey, 0, targetLength, StandardCharsets.US_ASCII);
+          }
+        }
+        // Chain merged with another, or the hash simply isn't in this chain
+        falseAlarmCount++;
       }
     }
 
     // Not found
     return "";
   }
+
+  /**
+   * Follow the chain through <code>searchHash</code> to its first distinguished point. No stored
+   * chain can continue past its first distinguished point, so that's the only candidate end.
+   * @param searchHash Hash in byte[] form
+   * @param walker Walker of the reduction family searched
+   * @return The distinguished point, its distance from the hash in steps and the check bits
+   * seen, or empty if none is reached within the longest chain allowed
+   */
+  private long[] findDistinguished(byte[] searchHash, ChainWalker walker) {
+    int s = walker.distinguishedPoint(searchHash);
+    int steps = s < 0 ? rbt.chainLength - 1 : s;
+    hashCount += steps;
+    reductionCount += steps;
+
+    return s < 0 ? new long[0] : new long[] {walker.getEnd(), s, walker.getChecks()};
+  }
+
+  /**
+   * Tables whose chains are walked with reduction family <code>family</code>: table
+   * <code>family</code> alone with <code>--salted-tables</code>, otherwise every table.
+   * @param family Reduction family
+   * @return Tables of the family
+   */
+  private List<ChainIndex> familyTables(int family) {
+    return salted ? rbt.tables.subList(family, family + 1) : rbt.tables;
+  }
+
+  /**
+   * Number of hashes computed by the last call to <code>keyFromHash()</code>.
+   * @return Hash count
+   */
+  public long getHashCount() {
+    return hashCount;
+  }
+
+  /**
+   * Number of reductions computed by the last call to <code>keyFromHash()</code>.
+   * @return Reduction count
+   */
+  public long getReductionCount() {
+    return reductionCount;
+  }
+
+  /**
+   * Number of end-of-chain matches, from the last call to <code>keyFromHash()</code>, that turned
+   * out not to contain the searched for hash.
+   * @return False alarm count
+   */
+  public long getFalseAlarmCount() {
+    return falseAlarmCount;
+  }
+
+  /**
+   * Number of end-of-chain matches, from the last call to <code>keyFromHash()</code>, that were
+   * rejected by their check bits, without walking the chain.
+   * @return Rejected match count
+   */
+  public long getRejectedCount() {
+    return rejectedCount;
+  }
 }
\ No newline at end of file
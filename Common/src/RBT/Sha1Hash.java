@@ -0,0 +1,98 @@
+package RBT;
+
+/**
+ * Hand-rolled SHA-1 (FIPS 180-4).
+ *
+ * @see BlockHash
+ * @see HashType#SHA1
+ */
+class Sha1Hash extends BlockHash {
+  /** Chaining state. */
+  private int h0, h1, h2, h3, h4;
+  /** Message schedule. */
+  private final int[] schedule = new int[80];
+
+  /**
+   * Constructs a SHA-1 hash function.
+   * @param fixedLength Input length to hash fastest, or -1 if none
+   */
+  Sha1Hash(int fixedLength) {
+    super(true, fixedLength);
+  }
+
+  @Override
+  public HashType getType() {
+    return HashType.SHA1;
+  }
+
+  @Override
+  protected void reset() {
+    h0 = 0x67452301;
+    h1 = 0xEFCDAB89;
+    h2 = 0x98BADCFE;
+    h3 = 0x10325476;
+    h4 = 0xC3D2E1F0;
+  }
+
+  @Override
+  protected void compress() {
+    int[] s = schedule;
+    System.arraycopy(w, 0, s, 0, 16);
+    for (int t = 16; t < 80; t++) {
+      s[t] = Integer.rotateLeft(s[t - 3] ^ s[t - 8] ^ s[t - 14] ^ s[t - 16], 1);
+    }
+
+    int a = h0;
+    int b = h1;
+    int c = h2;
+    int d = h3;
+    int e = h4;
+    int t = 0;
+    for (; t < 20; t++) {
+      int temp = Integer.rotateLeft(a, 5) + ((b & c) | (~b & d)) + e + 0x5A827999 + s[t];
+      e = d;
+      d = c;
+      c = Integer.rotateLeft(b, 30);
+      b = a;
+      a = temp;
+    }
+    for (; t < 40; t++) {
+      int temp = Integer.rotateLeft(a, 5) + (b ^ c ^ d) + e + 0x6ED9EBA1 + s[t];
+      e = d;
+      d = c;
+      c = Integer.rotateLeft(b, 30);
+      b = a;
+      a = temp;
+    }
+    for (; t < 60; t++) {
+      int temp = Integer.rotateLeft(a, 5) + ((b & c) | (b & d) | (c & d)) + e + 0x8F1BBCDC + s[t];
+      e = d;
+      d = c;
+      c = Integer.rotateLeft(b, 30);
+      b = a;
+      a = temp;
+    }
+    for (; t < 80; t++) {
+      int temp = Integer.rotateLeft(a, 5) + (b ^ c ^ d) + e + 0xCA62C1D6 + s[t];
+      e = d;
+      d = c;
+      c = Integer.rotateLeft(b, 30);
+      b = a;
+      a = temp;
+    }
+    h0 += a;
+    h1 += b;
+    h2 += c;
+    h3 += d;
+    h4 += e;
+  }
+
+  @Override
+  protected void output(byte[] out) {
+    putWord(h0, out, 0);
+    putWord(h1, out, 4);
+    putWord(h2, out, 8);
+    putWord(h3, out, 12);
+    putWord(h4, out, 16);
+  }
+}
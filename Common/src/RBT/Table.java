@@ -1,21 +1,24 @@
 package RBT;
 
 import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Comparator;
 import java.util.List;
-import java.util.LinkedList;
-import java.util.Map;
-import java.util.Set;
-import java.util.TreeMap;
-import java.util.TreeSet;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
 import org.msgpack.core.MessagePack;
-import org.msgpack.core.MessagePacker;
 import org.msgpack.core.MessageUnpacker;
 
 /**
@@ -30,18 +33,19 @@ import org.msgpack.core.MessageUnpacker;
 public class Table {
   /** Displays extra table generation data. */
   static final boolean DEBUG = true;
+  /** Largest number of chains handed to a worker thread at once during generation. */
+  static final int MAX_BATCH_SIZE = 10000;
+  /** Seconds between lines of progress output during generation. */
+  static final long PRINT_INTERVAL = 15;
+  /** Seconds between checkpoints during generation. */
+  static final long CHECKPOINT_INTERVAL = 60;
 
   /**
-   * A running list of plain-text keys that have been used as chain-heads
-   * @see java.util.TreeSet
+   * The rainbow tables that are searched, one <code>ChainIndex</code> per table. While a table
+   * is read from a legacy file, these are <code>ChainArray</code>'s until written to disk.
+   * @see ChainIndex
    */
-  Set<String> keysHashed = new TreeSet<>();
-  /**
-   * LinkedList of <code>TreeMap</code>'s that contain hashes in <code>byte[]</code> form to
-   * plain-text keys.
-   * @see java.util.TreeMap
-   */
-  List<TreeMap<byte[], String>> hashToKeyMap = new LinkedList<>();
+  List<ChainIndex> tables = new ArrayList<>();
 
   /** Simple name for a default parameter from <code>Config</code> object. */
   int allowableLength;
@@ -53,14 +57,75 @@ public class Table {
   long rowCount;
   /** Simple name for a default parameter from <code>Config</code> object. */
   int tableCount;
+  /** Simple name for a default parameter from <code>Config</code> object. */
+  boolean perfect;
+  /** Simple name for a default parameter from <code>Config</code> object. */
+  boolean salted;
+  /** Simple name for a default parameter from <code>Config</code> object. */
+  int dpBits;
+  /** Simple name for a default parameter from <code>Config</code> object. */
+  int minChainLength;
+  /** Simple name for a default parameter from <code>Config</code> object. */
+  int checkBits;
+  /** Hashes computed while generating, over all threads. */
+  LongAdder hashesComputed = new LongAdder();
+  /** Distinguished-point chains rejected for their length while generating. */
+  LongAdder chainsRejected = new LongAdder();
+  /**
+   * Rows the tables still lack, as far as progress output is concerned, counting rows spilled
+   * but not merged by the share of them expected to be kept. Recounted after each run is spilled
+   * or merged, so it rises again when a merge keeps fewer than expected.
+   */
+  long rowsRemaining;
+  /** Chains generated, over every run. */
+  long rowsGenerated;
+  /** Chains removed while generating, for sharing an end with another, and not moved. */
+  long totalCollisions;
+  /** Chains removed from each table while generating, and not moved to another. */
+  long[] tableCollisions;
+  /** Chains moved into each table while generating, after colliding in another. */
+  long[] tablePlaced;
+  /** Share of the chains last merged into each table that it kept, 1 until first merged. */
+  double[] tableYields;
+  /** Time generation started, in seconds. */
+  private long startTime;
+  /** Time the last progress line was printed, in seconds. */
+  private long curTime;
+  /** Hashes computed as of the last progress line. */
+  private long prevHashes;
+  /** Collisions as of the last progress line. */
+  private long prevCollisions;
+  /** Chains generated as of the last progress line. */
+  private long prevGenerated;
+  /** Checkpoints written while generating. */
+  private long checkpoints;
+  /** Time the last checkpoint was written, or generation started, in seconds. */
+  private long checkpointTime;
+  /** Time spent writing checkpoints, in nanoseconds. */
+  private long checkpointNanos;
+  /** Time spent writing checkpoints as of the last progress line, in nanoseconds. */
+  private long prevCheckpointNanos;
   /**
-   * A count of all possible keys, given <code>KEYLENGTH</code> and <code>ALLOWABLE_CHARS</code>.
+   * A count of all possible keys, given the key lengths and charset.
    * @see #keyLength
-   * @see Config#ALLOWABLE_CHARS
+   * @see Config#getKeySpace()
    * */
   long keySpace;
-  /** File location of the serialized <code>TreeMap</code> tables. */
+  /**
+   * File location of the tables, when held in a single file.
+   * @see TableFile
+   */
   String fileName;
+  /**
+   * Files the tables are held in. Either <code>fileName</code>, or, when sharded over
+   * <code>--table-dir</code>, one file per table.
+   * @see Config#getTableDirs()
+   */
+  List<Path> tableFiles = new ArrayList<>();
+  /** Directory holding run files while the tables are generated. */
+  Path runDir;
+  /** File location of the serialized <code>TreeMap</code> tables, as previously written. */
+  String legacyFileName;
   /**
    * <code>Config</code> object that represents the table to be generated.
    * @see Config
@@ -79,14 +144,13 @@ public class Table {
     chainLength = cfg.getChainLen();
     rowCount = cfg.getRowCount();
     tableCount = cfg.getTblCount();
-    allowableLength = cfg.ALLOWABLE_CHARS.length;
-    keySpace = (long) Math.pow(allowableLength, keyLength);
-
-    // Add the requested (tableCount) number of empty TreeMap's.
-    // The TreeMap(s) are the "rainbow tables"
-    for(int i = 0; i < tableCount; i++) {
-      hashToKeyMap.add(new TreeMap<>(new ByteArrayComparator()));
-    }
+    perfect = cfg.isPerfect();
+    salted = cfg.isSaltedTables();
+    dpBits = cfg.getDpBits();
+    minChainLength = cfg.getMinChainLen();
+    checkBits = cfg.getCheckBits();
+    allowableLength = cfg.getKeySpace().getCharsetSize();
+    keySpace = cfg.getKeySpace().size();
 
     /*
      * Generate the file name a previously generated rainbow table would have
@@ -96,52 +160,69 @@ public class Table {
     String cfgString =
         "AC" + allowableLength +
         "KL" + keyLength +
+        (cfg.getMinKeyLen() != keyLength ? "KM" + cfg.getMinKeyLen() : "") +
+        (cfg.getKeySpace().getCharsetChecksum() != TableFile.DEFAULT_CHARSET_CHECKSUM
+            ? "CS" + Integer.toHexString(cfg.getKeySpace().getCharsetChecksum()) : "") +
         "CL" + chainLength +
         "RC" + rowCount +
-        "TC" + tableCount;
-    fileName = cfgString + ".ser";
-
-    // Load the rainbow table represented by 'cfgString', if it exists, otherwise compute it.
-    if (existsTableFile()) {
-      readTableFile();
+        "TC" + tableCount +
+        (dpBits > 0 ? "DP" + dpBits + "MN" + minChainLength : "") +
+        (checkBits > 0 ? "CB" + checkBits : "") +
+        (cfg.getHashType() != HashType.SHA1 ? "HF" + cfg.getHashType().getOptionName() : "") +
+        (cfg.getReduction() != Reduction.FOLD ? "RD" + cfg.getReduction().getOptionName() : "") +
+        (perfect ? "PF" : "") +
+        (salted ? "ST" : "");
+    fileName = cfgString + ".rbt";
+    legacyFileName = cfgString + ".ser";
+
+    // Hold every table in one file, or each in a file of its own, spread over table directories
+    List<Path> dirs = cfg.getTableDirs();
+    if (dirs.isEmpty()) {
+      tableFiles.add(Paths.get(fileName));
+      runDir = Paths.get(fileName + ".runs");
     } else {
-      // Create and load table
-      generateTable(rowCount);
-      // Put new table on disk for next time
-      writeTableFile();
+      for (int i = 0; i < tableCount; i++) {
+        tableFiles.add(dirs.get(i % dirs.size()).resolve(cfgString + ".t" + i + ".rbt"));
+      }
+      runDir = dirs.get(0).resolve(fileName + ".runs");
     }
-  }
 
-  // PROTECTED, STATIC
-  /**
-   * Add a hash and key to the table.
-   * @param b Hash
-   * @param key Plain-text key
-   * @return Success or failure
-   */
-  protected boolean add(byte[] b, String key) {
-    // Choose a random starting table for attempted insert
-    int tbl = ThreadLocalRandom.current().nextInt(0, tableCount);
-    // Attempt insert on each table, if necessary
-    for(int i = 0; i < tableCount; i++) {
-      if(!hashToKeyMap.get(tbl).containsKey(b)) {
-        hashToKeyMap.get(tbl).put(b, key);
-        return true;
+    // Checked before generating, rather than once the tables are built
+    boolean hashIndex = cfg.getIndexType().equals("hash");
+
+    // Load the rainbow table represented by 'cfgString', if it exists, otherwise compute it.
+    if (!existsTableFile()) {
+      if (existsLegacyTableFile()) {
+        // Convert a previously serialized table
+        readTableFile();
+        // Put new table on disk for next time
+        if (!writeTableFile()) {
+          // Search the tables in memory instead
+          return;
+        }
+      } else {
+        // Create the table, written to disk as it's generated
+        generateTable(rowCount);
       }
     }
-
-    return false;
+    // Search the tables in place on disk, each opened when first searched
+    openTableFile();
+    if (hashIndex) {
+      // Or in memory, to keep lookups to a single probe as tables grow
+      buildHashIndexes();
+    }
   }
 
+  // PROTECTED, STATIC
   /**
    * Checks available tables for the passed hash.
    * @param b Hash to search tables for
    * @return Success or failure
    */
   protected boolean containsHash(byte[] b) {
-    // TODO: Value in randomizing?
-    for(int i = 0; i < tableCount; i++) {
-      if(hashToKeyMap.get(i).containsKey(b)) {
+    long end = Tables.truncateHash(b);
+    for(ChainIndex table : tables) {
+      if(table.find(end) != ChainIndex.NOT_FOUND) {
         return true;
       }
     }
@@ -155,14 +236,28 @@ public class Table {
    * @return Head key, or blank if existent
    */
   protected String getHeadKey(byte[] b) {
-    // TODO: Benefit from randomizing?
-    for(int i = 0; i < tableCount; i++) {
-      if(hashToKeyMap.get(i).containsKey(b)) {
-        return hashToKeyMap.get(i).get(b);
+    List<String> keys = getHeadKeys(b);
+    return keys.isEmpty() ? "" : keys.get(0);
+  }
+
+  /**
+   * Returns every chain-head key paired with the passed hash, probing each table once. The same
+   * end-of-chain hash may be held by more than one table, each time with a different head.
+   * @param b Hash corresponding the key(s)
+   * @return Head keys, empty if none found
+   */
+  protected List<String> getHeadKeys(byte[] b) {
+    long end = Tables.truncateHash(b);
+    List<String> keys = new ArrayList<>(1);
+    for(ChainIndex table : tables) {
+      long row = table.find(end);
+      if(row != ChainIndex.NOT_FOUND) {
+        // The plain-text key is only rebuilt on a match
+        keys.add(Tables.indexToKey(table.getHead(row), cfg));
       }
     }
 
-    return "";
+    return keys;
   }
 
   // PUBLIC
@@ -172,8 +267,23 @@ public class Table {
     System.out.println("  Configured -");
     System.out.printf("    * %20s: %,d%n", "Total rows", rowCount);
     System.out.printf("    * %20s: %,d%n", "Table count", tableCount);
+    System.out.printf("    * %20s: %,d%n", "Table files", tableFiles.size());
     System.out.printf("    * %20s: %,d%n", "Chain length", chainLength);
-    System.out.printf("    * %20s: %,d%n", "Key length", keyLength);
+    if (cfg.getMinKeyLen() != keyLength) {
+      System.out.printf("    * %20s: %,d to %,d%n", "Key length", cfg.getMinKeyLen(), keyLength);
+    } else {
+      System.out.printf("    * %20s: %,d%n", "Key length", keyLength);
+    }
+    System.out.printf("    * %20s: %s%n", "Hash", cfg.getHashType().getOptionName());
+    System.out.printf("    * %20s: %s%n", "Reduction", cfg.getReduction().getOptionName() +
+        (salted ? ", salted per table" : ""));
+    if (dpBits > 0) {
+      System.out.printf("    * %20s: %,d%n", "Distinguished bits", dpBits);
+      System.out.printf("    * %20s: %,d%n", "Min chain length", minChainLength);
+    }
+    if (checkBits > 0) {
+      System.out.printf("    * %20s: %,d%n", "Check bits", checkBits);
+    }
     System.out.println();
     System.out.println("  Static -");
     System.out.printf("    * %20s: %,d%n", "Average table size", (rowCount/tableCount));
@@ -181,72 +291,458 @@ public class Table {
     System.out.printf("    * %20s:%n", "Character set");
     // TODO: I know this output looks bad, but it appears the effort to wrap the output is more
     // trouble than it's worth right now.
-    System.out.println(Arrays.deepToString(cfg.ALLOWABLE_CHARS));
+    System.out.println(cfg.getKeySpace().charsetToString());
     System.out.println();
   }
 
   // PROTECTED
   /**
-   * Create a rainbow table of length <code>num</code>.
+   * Create a rainbow table of length <code>num</code>, split evenly over the tables, and write it
+   * to <code>tableFiles</code>.<br>
+   * Each table is generated in runs of at most <code>--run-size</code> rows, so memory is bounded
+   * by the run size rather than the table size. A run's chains are computed by a pool of
+   * <code>--threads</code> workers, each walking chains with its own <code>ChainWalker</code>.
+   * The run is sorted, chains whose end matches another are removed, and the rest are spilled to
+   * disk. Once the table's runs are spilled, they're merged with any earlier merge of the table,
+   * and any chain whose end matches another is removed again. Rows lost to collisions are
+   * generated in another set of runs, until the table is full. Each set is made larger by the
+   * share of chains the table's last merge removed, so the table is rewritten only a few times,
+   * and any chains beyond its rows are dropped.<p>
+   * Which table each run is generated for is chosen by <code>--placement</code>. Unless it's
+   * 'sequential', a chain removed from one table is first offered to another with room, so the
+   * hashes spent walking it aren't lost, and fewer chains are generated in all.</p><p>
+   * With <code>--salted-tables</code>, each table's chains are walked with its own reduction
+   * family. A chain is then only valid in the table it was walked for, so chains are never moved,
+   * and chains of different tables never merge.</p><p>
+   * When a perfect table is requested, a chain whose end is held by any earlier table is removed
+   * too, not just one held by the table it's added to. No two chains then share an end, so no two
+   * chains have merged. Tables are then filled one after another, and chains are never moved.
+   * Salted tables can't merge with each other, so each perfect table only drops its own
+   * collisions.</p><p>
+   * A table can hold only so many chains that don't collide, so perfect tables larger than that
+   * are refused before generating, and generation gives up once a run's worth of chains merged
+   * into a table, or a table's worth if less, finds no new ends.</p>
+   * A checkpoint is written after a run is spilled or merged, once <code>CHECKPOINT_INTERVAL</code>
+   * seconds have passed since the last. With <code>--resume</code>, generation continues from the
+   * last checkpoint of an earlier attempt, losing at most the work done since.
+   * @see #generateChains(int, BatchWalker, SplittableRandom)
+   * @see Checkpoint
+   * @see Placement
+   * @see TableWriter
    * @param num Length of table generated
    */
   protected void generateTable(long num) {
-    // Mostly for debugging
-    long startTime = currentTimeSeconds();
-    long curTime = startTime; // Time since current round was started
-    long printTime = 15; // Print every X seconds
-    int totalCollisions = 0;
-    int prevCollisions = 0; // Key collisions from the previous round
-    long prevNum = num; // 'num' from previous round
+    checkRowCount(num);
+    int threads = cfg.getThreadCount();
+    int runSize = Math.min(cfg.getRunSize(), Integer.MAX_VALUE - 8);
+    // Per-thread 'BatchWalker' objects, so that each worker has its own lanes and 'HashFunction'.
+    // Salted tables each have a reduction family, and so a walker, of their own.
+    ThreadLocal<BatchWalker[]> walkers =
+        ThreadLocal.withInitial(() -> new BatchWalker[salted ? tableCount : 1]);
+    ExecutorService pool = Executors.newFixedThreadPool(threads);
+    CompletionService<ChainArray> completion = new ExecutorCompletionService<>(pool);
 
-    if(DEBUG) {
-      System.out.format("Generating table of size %,d%n", num);
-      System.out.format("%s\t%s\t%s\t%s\t%s%n",
-          "Elapsed", "Rows remaining", "Rows complete/time", "Collisions", "Successful H/s");
+    // Mostly for debugging
+    long sessionStart = System.nanoTime(); // Unlike 'startTime', not moved back on resuming
+    startTime = currentTimeSeconds();
+    curTime = startTime;
+    checkpointTime = startTime;
+    rowsRemaining = num;
+    tableCollisions = new long[tableCount];
+    tablePlaced = new long[tableCount];
+    tableYields = new double[tableCount];
+    Arrays.fill(tableYields, 1.0);
+    long[] targets = new long[tableCount]; // Rows each table is to hold
+    long[] missing = new long[tableCount]; // Rows each table lacks, not counting those spilled
+    long[] spilled = new long[tableCount]; // Rows spilled for each table, not yet merged
+    long[] stalled = new long[tableCount]; // Rows merged since the table last grew
+    for (int tbl = 0; tbl < tableCount; tbl++) {
+      targets[tbl] = num / tableCount + (tbl < num % tableCount ? 1 : 0);
     }
+    // Earlier tables must be complete for a perfect table to drop the ends they hold
+    boolean exclusive = perfect && !salted;
+    Placement placement = exclusive ? Placement.SEQUENTIAL : cfg.getPlacement();
+    // A salted table's chains are only valid in the table they were walked for
+    boolean moves = placement.movesCollisions() && !salted;
 
-    while (num > 0) {
-
-      /*
-       * START DEBUGGING - DEBUG is set and time since last round started is >= printTime
-       */
-      if(DEBUG && ((currentTimeSeconds())-curTime) >= printTime) {
-        // "Elapsed", "Rows remaining", "Rows complete/time", "Collisions", "Successful H/s"
-        System.out.format("%d\t%d\t%d\t%d\t%d%n",
-            currentTimeSeconds() - startTime,
-            num,
-            prevNum-num,
-            totalCollisions-prevCollisions,
-            (prevNum-num)*chainLength/(currentTimeSeconds() - curTime));
-        curTime = currentTimeSeconds();
-        prevCollisions = totalCollisions;
-        prevNum = num;
+    try {
+      if (!cfg.isResume() && TableWriter.hasCheckpoint(runDir)) {
+        System.out.println("Discarding the checkpoint of an earlier attempt. " +
+            "Use --resume to continue from it.");
       }
-      /*
-       * END DEBUGGING
-       */
-
-      // Generate key
-      String key = generateKey(); // Starting chain key
-      // Produce hash from the end of a chain of length 'chainLength' that starts with 'key'
-      byte[] hash = Tables.hashToHashStep(
-          Tables.createShaHash(key, cfg),
-          (chainLength - 1),
-          cfg);
-      // Try to place the new 'key' and 'hash' in one of the available tables.
-      if(add(hash, key)) {
-        num--;
+      TableWriter writer =
+          new TableWriter(runDir, tableFiles, tableCount, recordFlags(), cfg.isResume());
+      Checkpoint cp = writer.getResumed();
+      if (cp == null) {
+        cp = new Checkpoint(tableCount);
+        cp.seed = ThreadLocalRandom.current().nextLong();
       } else {
-        if(DEBUG) {
-          totalCollisions++;
+        // Carry on counting from where the checkpoint left off
+        totalCollisions = cp.collisions;
+        System.arraycopy(cp.tableCollisions, 0, tableCollisions, 0, tableCount);
+        System.arraycopy(cp.tablePlaced, 0, tablePlaced, 0, tableCount);
+        System.arraycopy(cp.tableYields, 0, tableYields, 0, tableCount);
+        hashesComputed.add(cp.hashes);
+        chainsRejected.add(cp.rejected);
+        startTime -= cp.elapsed;
+        countRowsRemaining(writer, targets);
+        prevHashes = hashesComputed.sum();
+        prevCollisions = totalCollisions;
+      }
+
+      if(DEBUG) {
+        System.out.format("Generating %stable of size %,d using %d thread(s), %,d rows per run, " +
+            "placed %s%n", perfect ? "perfect " : "", num, threads, runSize,
+            placement.getOptionName());
+        if (writer.getResumed() != null) {
+          System.out.format("Resuming from checkpoint, %,d rows complete%n", num - rowsRemaining);
+        }
+        // Collisions are counted as each run is sorted, and as the runs of a table merge
+        System.out.format("%s\t%s\t%s\t%s\t%s\t%s%n", "Elapsed", "Rows remaining",
+            "Rows generated/time", "Collisions sorted/merged", "Successful H/s", "Checkpoint ms");
+      }
+
+      int tbl = -1;
+      while (true) {
+        for (int t = 0; t < tableCount; t++) {
+          spilled[t] = writer.getSpilledRows(t);
+          missing[t] = targets[t] - writer.getRowCount(t) - (long) (spilled[t] * tableYields[t]);
+        }
+        tbl = placement.nextTable(missing, spilled, tbl);
+        if (tbl < 0) {
+          // Every table is full
+          break;
+        }
+        if (missing[tbl] > 0) {
+          // Spill enough runs to fill the table, if as many of their chains collide as did in
+          // its last merge, so that it's merged, and rewritten, no more often than needed. Each
+          // run has its own seed, so a run lost before its checkpoint is generated again the
+          // same way.
+          int size = (int) Math.min(runSize, chainsFor(tbl, missing[tbl]));
+          ChainArray run = generateRun(size, new SplittableRandom(cp.seed + cp.runs), threads,
+              completion, walkers, tbl);
+          cp.runs++;
+          if (run.size() == 0) {
+            // Every chain was rejected, so no merge will find new ends either
+            stalled[tbl] += size;
+            checkStalled(tbl, stalled[tbl], Math.min(runSize, targets[tbl]),
+                writer.getRowCount(tbl), targets[tbl]);
+          }
+          // Remove collisions within the run, offering them to another table
+          ChainArray collided = moves ? new ChainArray(0, dpBits > 0, checkBits > 0) : null;
+          int removed = run.sort(collided);
+          writer.spill(tbl, run);
+          spilled[tbl] += run.size();
+          missing[tbl] =
+              targets[tbl] - writer.getRowCount(tbl) - (long) (spilled[tbl] * tableYields[tbl]);
+          long placed = 0;
+          int to = moves ? placement.overflowTable(missing, tbl) : -1;
+          if (collided != null && to >= 0) {
+            placed = Math.min(collided.size(), chainsFor(to, missing[to]));
+            writer.place(to, collided, placed);
+            tablePlaced[to] += placed;
+          }
+          countCollisions(tbl, removed - placed);
+        } else {
+          // Remove collisions with other runs, offering them to another table. Those not taken
+          // are then requested again.
+          long held = writer.getRowCount(tbl);
+          int to = moves ? placement.overflowTable(missing, tbl) : -1;
+          long merged = writer.merge(tbl, exclusive, targets[tbl], to,
+              to < 0 ? 0 : chainsFor(to, missing[to]));
+          long placed = writer.getOverflowRows();
+          long surplus = writer.getSurplusRows();
+          if (to >= 0) {
+            tablePlaced[to] += placed;
+          }
+          countCollisions(tbl, held + spilled[tbl] - merged - placed - surplus);
+          tableYields[tbl] = Math.min(1.0, Math.max(1, merged - held) / (double) spilled[tbl]);
+          // Once a run's worth of chains, or a table's worth if less, has merged with those
+          // already held, the table is as full as it can be made
+          stalled[tbl] = merged > held ? 0 : stalled[tbl] + spilled[tbl];
+          checkStalled(tbl, stalled[tbl], Math.min(runSize, targets[tbl]), merged, targets[tbl]);
         }
+        // Forcing every file to disk is slow, so it isn't done after every run
+        if (currentTimeSeconds() - checkpointTime >= CHECKPOINT_INTERVAL) {
+          checkpoint(writer, cp);
+        }
+        countRowsRemaining(writer, targets);
+        printProgress();
+      }
+      writer.finish(cfg);
+      for (int t = 0; t < tableCount; t++) {
+        targets[t] = writer.getRowCount(t);
       }
+    } catch (IOException e) {
+      System.out.println("Unable to write table file(s): " + tableFiles);
+      e.printStackTrace();
+      System.exit(-1);
+    } catch (InterruptedException | ExecutionException e) {
+      System.out.println("Table generation failed.");
+      e.printStackTrace();
+      System.exit(-1);
+    } finally {
+      pool.shutdownNow();
     }
+
     if(DEBUG) {
       System.out.println("Collisions: " + totalCollisions);
+      long held = 0;
+      long moved = 0;
+      for (int t = 0; t < tableCount; t++) {
+        held += targets[t];
+        moved += tablePlaced[t];
+      }
+      if (moves) {
+        System.out.println("Collisions moved to another table: " + moved);
+      }
+      // Every chain dropped took as many hashes, on average, as one kept
+      System.out.format("Chains wasted on collisions: %.2f%% of those generated%n",
+          totalCollisions * 100.0 / Math.max(1, held + totalCollisions));
+      if (tableCount > 1) {
+        System.out.format("%8s %16s %16s %16s%n", "Table", "Rows", "Collisions", "Moved in");
+        for (int t = 0; t < tableCount; t++) {
+          System.out.format("%8d %,16d %,16d %,16d%n", t, targets[t], tableCollisions[t],
+              tablePlaced[t]);
+        }
+      }
+      if (dpBits > 0) {
+        System.out.println("Chains rejected for length: " + chainsRejected.sum());
+      }
+      long elapsed = Math.max(1, System.nanoTime() - sessionStart);
+      System.out.format("Checkpoints: %d, taking %,d ms (%.2f%% of elapsed)%n",
+          checkpoints, checkpointNanos / 1000000, checkpointNanos * 100.0 / elapsed);
+      if (perfect) {
+        double covered = estimateCoverage(held);
+        System.out.format("Estimated unique keys covered: %,.0f (%.2f%% of key space)%n",
+            covered, covered / keySpace * 100);
+      }
     }
   }
 
+  /**
+   * Computes a run of <code>size</code> chains over the worker pool. Work is split into batches,
+   * small enough that every worker gets a share and the progress output stays current, large
+   * enough that hand-off overhead doesn't matter.<br>
+   * Each batch draws its head keys from a generator split from <code>random</code>, so the run's
+   * chains depend only on <code>random</code>'s seed, given the same number of threads.
+   * @param size Number of chains requested
+   * @param random Generator the run's head keys are drawn from
+   * @param threads Number of worker threads
+   * @param completion Completion service of the worker pool
+   * @param walkers Per-thread 'BatchWalker' objects, one per reduction family
+   * @param table Table the run is generated for
+   * @return Unsorted chains, fewer than requested if any were rejected
+   * @throws InterruptedException Interrupted waiting on a worker
+   * @throws ExecutionException A worker failed
+   */
+  protected ChainArray generateRun(int size, SplittableRandom random, int threads,
+      CompletionService<ChainArray> completion, ThreadLocal<BatchWalker[]> walkers, int table)
+      throws InterruptedException, ExecutionException {
+    final int family = salted ? table : 0;
+    int batchSize = Math.max(1, Math.min(MAX_BATCH_SIZE, size / threads));
+    int batches = 0;
+    for (int pending = size; pending > 0; pending -= batchSize) {
+      final int count = Math.min(batchSize, pending);
+      final SplittableRandom batchRandom = random.split();
+      completion.submit(() -> generateChains(count, walkerFor(walkers.get(), family), batchRandom));
+      batches++;
+    }
+
+    // Gather the run's chains as each batch completes
+    ChainArray run = new ChainArray(size, dpBits > 0, checkBits > 0);
+    for (int i = 0; i < batches; i++) {
+      ChainArray batch = completion.take().get();
+      run.addAll(batch);
+      rowsGenerated += batch.size();
+      printProgress();
+    }
+
+    return run;
+  }
+
+  /**
+   * Write a checkpoint of generation so far, counting the time taken as checkpoint overhead.
+   * @param writer Writer of the table being generated
+   * @param cp Checkpoint to fill in and write
+   * @throws IOException Unable to write the checkpoint
+   */
+  protected void checkpoint(TableWriter writer, Checkpoint cp) throws IOException {
+    long start = System.nanoTime();
+    cp.collisions = totalCollisions;
+    System.arraycopy(tableCollisions, 0, cp.tableCollisions, 0, tableCount);
+    System.arraycopy(tablePlaced, 0, cp.tablePlaced, 0, tableCount);
+    System.arraycopy(tableYields, 0, cp.tableYields, 0, tableCount);
+    cp.hashes = hashesComputed.sum();
+    cp.rejected = chainsRejected.sum();
+    cp.elapsed = currentTimeSeconds() - startTime;
+    writer.checkpoint(cp);
+    checkpointNanos += System.nanoTime() - start;
+    checkpoints++;
+    checkpointTime = currentTimeSeconds();
+  }
+
+  /**
+   * Return the chains to add to <code>table</code> for it to gain <code>rows</code> rows, if as
+   * many of them collide as did in its last merge.
+   * @param table Index of the table
+   * @param rows Rows the table lacks
+   * @return Chains to generate or move
+   */
+  protected long chainsFor(int table, long rows) {
+    return (long) Math.ceil(rows / tableYields[table]);
+  }
+
+  /**
+   * Checks that tables of <code>num</code> rows can be generated, exiting if they can't.<br>
+   * No two chains of a table share an end. With distinguished points, every end is one of the
+   * about N/2<sup>d</sup> keys of N whose hash is a distinguished point, and each table may hold
+   * no more than that.<br>
+   * A perfect table also drops every chain that merges with another, and however many are
+   * generated, no more than about 2N/(t+2) chains of t links can be found that don't merge.
+   * Salted tables may each hold that many, and others hold that many between them, as no two
+   * share an end. Tables that aren't perfect are only stopped by the stall check while
+   * generating.
+   * @param num Length of table generated
+   */
+  protected void checkRowCount(long num) {
+    if (dpBits > 0) {
+      // Rows of the largest table
+      long rows = (num + tableCount - 1) / tableCount;
+      long capacity = keySpace >> Math.min(dpBits, 63);
+      if (rows > capacity) {
+        System.out.println("--row-count is more than each table can hold with this key space " +
+            "and --dp-bits, about " + capacity + " rows per table");
+        System.exit(-1);
+      }
+    }
+    if (perfect) {
+      long rows = salted ? (num + tableCount - 1) / tableCount : num;
+      long capacity = (long) (2.0 * keySpace / (chainLength + 2));
+      if (rows > capacity) {
+        System.out.println("--row-count is more than " + (salted ? "each table" : "the tables") +
+            " can hold with --perfect, this key space and --chain-length, about " + capacity +
+            (salted ? " rows per table" : " rows"));
+        System.exit(-1);
+      }
+    }
+  }
+
+  /**
+   * Exits once <code>stalled</code> chains generated for <code>table</code> in a row, at least
+   * <code>limit</code>, have found no new chain ends, as the table is then as full as it can be
+   * made. Chains rejected as they're walked count toward it, as well as those that collide.
+   * @param table Index of the table
+   * @param stalled Chains generated since the table last grew
+   * @param limit Chains generated without growth before giving up
+   * @param held Rows held by the table
+   * @param target Rows the table is to hold
+   */
+  protected void checkStalled(int table, long stalled, long limit, long held, long target) {
+    if (stalled >= limit) {
+      System.out.println("Unable to fill table " + table + ": the last " + stalled +
+          " chains generated for it found no new chain ends, leaving it " + held + " of " +
+          target + " rows. Use a smaller --row-count.");
+      System.exit(-1);
+    }
+  }
+
+  /**
+   * Recount <code>rowsRemaining</code> from the rows each table holds and has spilled, counting
+   * spilled rows by the share of them the table's last merge kept.
+   * @param writer Writer of the table being generated
+   * @param targets Rows each table is to hold
+   */
+  protected void countRowsRemaining(TableWriter writer, long[] targets) {
+    rowsRemaining = 0;
+    for (int t = 0; t < tableCount; t++) {
+      rowsRemaining += Math.max(0, targets[t] - writer.getRowCount(t)
+          - (long) (writer.getSpilledRows(t) * tableYields[t]));
+    }
+  }
+
+  /**
+   * Count <code>lost</code> chains removed from <code>table</code> for sharing an end with
+   * another, and not moved to another table. They're requested again.
+   * @param table Index of the table
+   * @param lost Chains lost
+   */
+  protected void countCollisions(int table, long lost) {
+    tableCollisions[table] += lost;
+    totalCollisions += lost;
+  }
+
+  /**
+   * Prints a line of progress output, if <code>DEBUG</code> is set and
+   * <code>PRINT_INTERVAL</code> seconds have passed since the last.
+   */
+  protected void printProgress() {
+    if (DEBUG && currentTimeSeconds() - curTime >= PRINT_INTERVAL) {
+      // "Elapsed", "Rows remaining", "Rows generated/time", "Collisions sorted/merged",
+      // "Successful H/s", "Checkpoint ms"
+      System.out.format("%d\t%d\t%d\t%d\t%d\t%d%n",
+          currentTimeSeconds() - startTime,
+          rowsRemaining,
+          rowsGenerated - prevGenerated,
+          totalCollisions - prevCollisions,
+          (hashesComputed.sum() - prevHashes) / (currentTimeSeconds() - curTime),
+          (checkpointNanos - prevCheckpointNanos) / 1000000);
+      curTime = currentTimeSeconds();
+      prevCheckpointNanos = checkpointNanos;
+      prevHashes = hashesComputed.sum();
+      prevCollisions = totalCollisions;
+      prevGenerated = rowsGenerated;
+    }
+  }
+
+  /**
+   * Estimates the number of distinct keys found along the chains of a perfect table.<br>
+   * No two chains of a perfect table hold the same key at the same position, since they would
+   * then have merged, so each of the <code>chainLength</code> positions covers one distinct key
+   * per row. Treating each position as an independent random draw of that many keys, the union
+   * covers keySpace * (1 - (1 - rows/keySpace)<sup>chainLength</sup>) keys.
+   * @param rows Rows held over all tables
+   * @return Estimated distinct keys covered
+   */
+  protected double estimateCoverage(long rows) {
+    double uncovered = Math.pow(1 - Math.min(1.0, (double) rows / keySpace), chainLength);
+
+    return keySpace * (1 - uncovered);
+  }
+
+  /**
+   * Computes <code>count</code> chains, each from a newly generated head key. Safe to call from
+   * any thread, provided <code>walker</code> isn't shared with another thread.<br>
+   * Distinguished-point chains that end too soon, or don't end in time, are dropped, so fewer
+   * than <code>count</code> chains may be returned. With <code>--check-bits</code>, each chain's
+   * check bits are held along with it.<br>
+   * Chains are walked <code>--hash-lanes</code> at a time, each lane taking the next head key as
+   * its chain ends.
+   * @param count Number of chains to compute
+   * @param walker BatchWalker owned by the calling thread
+   * @param random Generator owned by the calling thread, that head keys are drawn from
+   * @return Unsorted chains
+   */
+  protected ChainArray generateChains(int count, BatchWalker walker, SplittableRandom random) {
+    long startHashes = walker.getHashCount();
+    ChainArray chains = new ChainArray(count, dpBits > 0, checkBits > 0);
+    // Produce the end of each chain, from a newly generated head key
+    int rejected = walker.walk(count, () -> generateKey(random), chains);
+    chainsRejected.add(rejected);
+    hashesComputed.add(walker.getHashCount() - startHashes);
+
+    return chains;
+  }
+
+  /**
+   * Optional fields held by each record of the tables generated.
+   * @see TableFile#recordSize(int)
+   * @return Flags
+   */
+  protected int recordFlags() {
+    return (dpBits > 0 ? TableFile.FLAG_LENGTHS : 0) | (checkBits > 0 ? TableFile.FLAG_CHECKS : 0);
+  }
+
   /**
    * Returns the current system time in seconds.
    * @see System#currentTimeMillis()
@@ -258,56 +754,86 @@ public class Table {
 
   /**
    * Randomly generates one key according to parameters in <code>Config</code> object,
-   * provided at construction.
+   * provided at construction.<br>
+   * Keys aren't checked against those already used. A repeated head produces a repeated chain,
+   * which shares its end with the original, so it's removed along with the other collisions.
    * @see Config
-   * @return String adhering to key space constraints
+   * @see Tables#indexToKey(long, Config)
+   * @param random Generator the key is drawn from
+   * @return Key space index of a key adhering to key space constraints
    */
-  protected String generateKey() {
-    String builtString; // Holds the key as it's built
-
-    // Loop on the key building process until a key in generated that doesn't
-    // match an existing key.
-    do {
-      builtString = "";
-      for (int i = 0; i < keyLength; i++) {
-        builtString +=
-            cfg.ALLOWABLE_CHARS[ThreadLocalRandom.current().nextInt(0, allowableLength)];
-      }
-
-    } while (keysHashed.contains(builtString));
-
-    return builtString;
+  protected long generateKey(SplittableRandom random) {
+    return random.nextLong(keySpace);
   }
 
   // PRIVATE
 
+  /**
+   * Return the calling thread's walker for reduction family <code>family</code>, creating it on
+   * first use.
+   * @param walkers The calling thread's walkers, indexed by family
+   * @param family Reduction family, the table's index with --salted-tables
+   * @return BatchWalker owned by the calling thread
+   */
+  private BatchWalker walkerFor(BatchWalker[] walkers, int family) {
+    if (walkers[family] == null) {
+      walkers[family] = new BatchWalker(cfg, cfg.getHashLanes(), family);
+    }
+    return walkers[family];
+  }
+
   /**
    * Check if table file(s) exist.
    * @return Success or failure
    */
   private boolean existsTableFile() {
-    return Files.exists(Paths.get(fileName));
+    for (Path file : tableFiles) {
+      if (!Files.exists(file)) {
+        return false;
+      }
+    }
+    return true;
   }
 
   /**
-   * Read in previously computed tables that match supplied <code>Config</code> object,
-   * if it exists. <code>hashToKeyMap</code> is read from file.
+   * Check if a table file, serialized as <code>TreeMap</code>'s, exists.
+   * @return Success or failure
+   */
+  private boolean existsLegacyTableFile() {
+    return Files.exists(Paths.get(legacyFileName));
+  }
+
+  /**
+   * Read in previously serialized tables that match supplied <code>Config</code> object,
+   * if it exists. <code>tables</code> is read from file.<br>
+   * Rows whose hashes differ, but not in their first 8 bytes, can't both be held, so all but one
+   * of them are dropped, and the number dropped from each table is printed.
    * @see MessageUnpacker
    * @return Success or failure
    */
   private boolean readTableFile() {
     try {
-      MessageUnpacker unpacker = MessagePack.newDefaultUnpacker(new FileInputStream(fileName));
-      // Load 'hashToKeyMap'
+      MessageUnpacker unpacker =
+          MessagePack.newDefaultUnpacker(new FileInputStream(legacyFileName));
+      // Load 'tables'
       int rbTables = unpacker.unpackArrayHeader(); // # of rainbow tables held
+      tables = new ArrayList<>(rbTables);
       for(int i = 0; i < rbTables; i++) {
         // Load the particular table
         int mapLength = unpacker.unpackMapHeader();
+        ChainArray table = new ChainArray(mapLength);
         for (int j = 0; j < mapLength; j++) {
           byte[] hash = unpacker.readPayload(unpacker.unpackBinaryHeader());
           String key = unpacker.unpackString();
-          hashToKeyMap.get(i).put(hash, key);
+          table.add(Tables.truncateHash(hash), Tables.keyToIndex(key, cfg));
+        }
+        // Hashes that differ, but not in their first 8 bytes, can't both be held
+        int dropped = table.sort();
+        if (dropped > 0) {
+          System.out.format("Converting table %d dropped %,d of %,d rows, whose truncated end " +
+              "matched another%n", i, dropped, mapLength);
         }
+        tables.add(table);
       }
       unpacker.close();
     } catch (IOException e) {
@@ -318,55 +844,98 @@ public class Table {
   }
 
   /**
-   * Serialize rainbow table(s) contained in <code>hashToKeyMap</code>, write to disk.
-   * @see MessagePack
-   * @see MessagePacker
+   * Open previously computed tables that match supplied <code>Config</code> object into
+   * <code>tables</code>. Only the headers are read, each table file on its own thread; each table
+   * is mapped when first searched, and no more than <code>--open-tables</code> are held mapped at
+   * once.
+   * @see TableFile#open(java.nio.file.Path, Config, int)
    */
-  private void writeTableFile() {
+  private void openTableFile() {
+    LazyTable.Pool pool = new LazyTable.Pool(cfg.getOpenTables());
+    List<Callable<List<ChainIndex>>> tasks = new ArrayList<>(tableFiles.size());
+    for (Path file : tableFiles) {
+      tasks.add(() -> TableFile.open(file, cfg, pool));
+    }
     try {
-      MessagePacker packer = MessagePack.newDefaultPacker(new FileOutputStream(fileName));
-
-      // Write hashToKeyMap
-      packer.packArrayHeader(hashToKeyMap.size());
-      // For each rainbow table held...
-      for(int i = 0; i < hashToKeyMap.size(); i++) {
-        // Store this particular table
-        packer.packMapHeader(hashToKeyMap.get(i).size());
-        for (Map.Entry<byte[], String> entry : hashToKeyMap.get(i).entrySet()) {
-          packer.packBinaryHeader(entry.getKey().length);
-          packer.writePayload(entry.getKey());
-          packer.packString(entry.getValue());
-        }
+      tables = new ArrayList<>(tableCount);
+      for (List<ChainIndex> shard : runInParallel(tasks)) {
+        tables.addAll(shard);
       }
-      packer.close();
-    } catch (Exception e) {
-      // We can continue, but their table is lost after program termination
-      System.out.println("Error writing to disk.");
+    } catch (InterruptedException | ExecutionException e) {
+      System.out.println("Unable to read table file(s): " + tableFiles);
       e.printStackTrace();
+      System.exit(-1);
+    }
+    if (tables.size() != tableCount) {
+      System.out.println("Table file(s) don't match configuration: " + tableFiles);
+      System.exit(-1);
     }
   }
 
   /**
-   * <code>Comparator</code> for <code>byte[]</code>. This allows hashes in the form of
-   * <code>byte[]</code> to be used as <code>TreeMap</code> keys.<br>
-   * Credit to: https://stackoverflow.com/a/38552674/3846437
-   * @see Comparator
+   * Replaces each table in <code>tables</code> with an in-memory <code>HashChainIndex</code>.
+   * Tables are read on their own threads, so tables sharded over several disks are read from
+   * each at once.
+   * @see HashChainIndex
    */
-  protected static class ByteArrayComparator implements Comparator<byte[]> {
-    @Override
-    public int compare(byte[] o1, byte[] o2) {
-      int result = 0;
-      int maxLength = Math.max(o1.length, o2.length);
-      for (int index = 0; index < maxLength; index++) {
-        byte o1Value = index < o1.length ? o1[index] : 0;
-        byte o2Value = index < o2.length ? o2[index] : 0;
-        int cmp = Byte.compare(o1Value, o2Value);
-        if (cmp != 0) {
-          result = cmp;
-          break;
+  private void buildHashIndexes() {
+    List<Callable<ChainIndex>> tasks = new ArrayList<>(tables.size());
+    for (ChainIndex table : tables) {
+      tasks.add(() -> new HashChainIndex(table));
+    }
+    try {
+      tables = runInParallel(tasks);
+    } catch (InterruptedException | ExecutionException e) {
+      System.out.println("Unable to read table file(s): " + tableFiles);
+      e.printStackTrace();
+      System.exit(-1);
+    }
+  }
+
+  /**
+   * Run each of <code>tasks</code> on a pool of up to <code>--threads</code> workers.
+   * @param tasks Tasks to run
+   * @param <T> Result type
+   * @return Results, in the order of 'tasks'
+   * @throws InterruptedException Interrupted waiting on a worker
+   * @throws ExecutionException A task failed
+   */
+  private <T> List<T> runInParallel(List<Callable<T>> tasks)
+      throws InterruptedException, ExecutionException {
+    ExecutorService pool =
+        Executors.newFixedThreadPool(Math.max(1, Math.min(cfg.getThreadCount(), tasks.size())));
+    try {
+      List<T> results = new ArrayList<>(tasks.size());
+      for (Future<T> result : pool.invokeAll(tasks)) {
+        results.add(result.get());
+      }
+      return results;
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  /**
+   * Write rainbow table(s) contained in <code>tables</code> to disk.
+   * @see TableFile#write(java.nio.file.Path, List, Config)
+   * @return Success or failure
+   */
+  private boolean writeTableFile() {
+    try {
+      if (tableFiles.size() == 1) {
+        TableFile.write(tableFiles.get(0), tables, cfg);
+      } else {
+        for (int i = 0; i < tableFiles.size(); i++) {
+          Files.createDirectories(tableFiles.get(i).toAbsolutePath().getParent());
+          TableFile.write(tableFiles.get(i), tables.subList(i, i + 1), cfg);
         }
       }
-      return result;
+    } catch (Exception e) {
+      // We can continue, but their table is lost after program termination
+      System.out.println("Error writing to disk.");
+      e.printStackTrace();
+      return false;
     }
+    return true;
   }
-}
\ No newline at end of file
+}
@@ -0,0 +1,314 @@
+package RBT;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads and writes the on-disk rainbow table format.<p>
+ * A table file is a header followed by each table's rows. All values are big-endian.</p>
+ * <pre>
+ *   int    MAGIC
+ *   int    VERSION
+ *   int    key length, the longest for keys of several lengths
+ *   int    chain length (the longest chain allowed, for distinguished-point chains)
+ *   int    number of characters in the charset
+ *   int    flags
+ *   int    distinguished-point bits, 0 for chains of a fixed length
+ *   int    check bits, 0 when none are held
+ *   int    hash type, as given by HashType.getId()
+ *   int    reduction, as given by Reduction.getId()
+ *   int    shortest key length
+ *   int    charset checksum, as given by KeySpace.getCharsetChecksum()
+ *   int    table count (N)
+ *   N times, the directory:
+ *     long rows    rows held by the table
+ *     long offset  position of the table's first record in the file
+ *   records, table by table, each table in order of end:
+ *     long end     truncated end-of-chain hash
+ *     long head    key space index of the chain-head key
+ *     int  length  chain length, only with FLAG_LENGTHS
+ *     byte checks  check bits, only with FLAG_CHECKS
+ * </pre>
+ * FLAG_SALTED marks tables generated with <code>--salted-tables</code>, each with its own
+ * reduction family. It changes no record, only how chains are walked.<br>
+ * Records are a fixed width, so tables are searched in place once mapped. The directory lets any
+ * one table be found from the header alone, so tables can be opened only once searched.
+ *
+ * @see ChainIndex
+ * @see MappedTable
+ * @see Table
+ */
+public class TableFile {
+  /** Identifies a table file, "RBTF". */
+  static final int MAGIC = 0x52425446;
+  /** Version of the format written. */
+  static final int VERSION = 1;
+  /** Bytes taken by each row, before any optional fields. */
+  static final int RECORD_SIZE = 16;
+  /** Bytes taken by the fixed part of the header. */
+  static final int HEADER_SIZE = 52;
+  /** Flag set when each record holds its chain's length. */
+  static final int FLAG_LENGTHS = 1;
+  /** Flag set when each record holds its chain's check bits. */
+  static final int FLAG_CHECKS = 2;
+  /** Flag set when each table was generated with a reduction family of its own. */
+  static final int FLAG_SALTED = 4;
+  /** Checksum of the default charset, left out of the names of files generated with it. */
+  static final int DEFAULT_CHARSET_CHECKSUM =
+      new KeySpace(KeySpace.parseCharset(Config.DEFAULT_CHARSET), 1, 1).getCharsetChecksum();
+
+  /**
+   * Write <code>tables</code> to <code>file</code>, replacing it if it exists. Every table must
+   * already be in order of end.
+   * @param file File to write
+   * @param tables Tables to write
+   * @param cfg Rainbow table 'Config' the tables were generated with
+   * @throws IOException Unable to write the file
+   */
+  public static void write(Path file, List<? extends ChainIndex> tables, Config cfg)
+      throws IOException {
+    int flags = tables.isEmpty() ? 0 : flags(tables.get(0));
+    long[] rowCounts = new long[tables.size()];
+    for (int i = 0; i < rowCounts.length; i++) {
+      rowCounts[i] = tables.get(i).size();
+    }
+    try (DataOutputStream out = new DataOutputStream(
+        new BufferedOutputStream(Files.newOutputStream(file), 1 << 16))) {
+      writeHeader(out, cfg, flags, rowCounts);
+      for (ChainIndex table : tables) {
+        writeRecords(out, table, flags);
+      }
+    }
+  }
+
+  /**
+   * Write the header for tables holding <code>rowCounts</code> rows. The records must follow,
+   * table by table.
+   * @param out Stream to write to
+   * @param cfg Rainbow table 'Config' the tables were generated with
+   * @param flags Optional fields held by each record
+   * @param rowCounts Rows held by each table
+   * @throws IOException Unable to write
+   */
+  static void writeHeader(DataOutputStream out, Config cfg, int flags, long[] rowCounts)
+      throws IOException {
+    out.writeInt(MAGIC);
+    out.writeInt(VERSION);
+    out.writeInt(cfg.getKeyLen());
+    out.writeInt(cfg.getChainLen());
+    out.writeInt(cfg.getKeySpace().getCharsetSize());
+    out.writeInt(flags | (cfg.isSaltedTables() ? FLAG_SALTED : 0));
+    out.writeInt(cfg.getDpBits());
+    out.writeInt((flags & FLAG_CHECKS) != 0 ? cfg.getCheckBits() : 0);
+    out.writeInt(cfg.getHashType().getId());
+    out.writeInt(cfg.getReduction().getId());
+    out.writeInt(cfg.getMinKeyLen());
+    out.writeInt(cfg.getKeySpace().getCharsetChecksum());
+    out.writeInt(rowCounts.length);
+    long offset = HEADER_SIZE + rowCounts.length * 16L;
+    for (long rows : rowCounts) {
+      out.writeLong(rows);
+      out.writeLong(offset);
+      offset += rows * recordSize(flags);
+    }
+  }
+
+  /**
+   * Write each row of <code>table</code> as a record, in the table's order.
+   * @param out Stream to write to
+   * @param table Table to write
+   * @param flags Optional fields held by each record
+   * @throws IOException Unable to write
+   */
+  static void writeRecords(DataOutputStream out, ChainIndex table, int flags)
+      throws IOException {
+    writeRecords(out, table, flags, table.size());
+  }
+
+  /**
+   * Write the first <code>rows</code> rows of <code>table</code> as records, in the table's
+   * order.
+   * @param out Stream to write to
+   * @param table Table to write
+   * @param flags Optional fields held by each record
+   * @param rows Rows to write, no more than the table holds
+   * @throws IOException Unable to write
+   */
+  static void writeRecords(DataOutputStream out, ChainIndex table, int flags, long rows)
+      throws IOException {
+    for (long row = 0; row < rows; row++) {
+      out.writeLong(table.getEnd(row));
+      out.writeLong(table.getHead(row));
+      if ((flags & FLAG_LENGTHS) != 0) {
+        out.writeInt(table.getLength(row));
+      }
+      if ((flags & FLAG_CHECKS) != 0) {
+        out.writeByte(table.getChecks(row));
+      }
+    }
+  }
+
+  /**
+   * Return the bytes taken by each record.
+   * @param flags Optional fields held by each record
+   * @return Record size
+   */
+  static int recordSize(int flags) {
+    int size = RECORD_SIZE;
+    if ((flags & FLAG_LENGTHS) != 0) {
+      size += 4;
+    }
+    if ((flags & FLAG_CHECKS) != 0) {
+      size += 1;
+    }
+    return size;
+  }
+
+  /**
+   * Return the optional fields held for each row of <code>table</code>.
+   * @param table Table
+   * @return Flags
+   */
+  static int flags(ChainIndex table) {
+    return (table.hasLengths() ? FLAG_LENGTHS : 0) | (table.hasChecks() ? FLAG_CHECKS : 0);
+  }
+
+  /**
+   * Map each table held in <code>file</code>. The file can be closed once mapped, so it is.
+   * @param file File to map
+   * @param cfg Rainbow table 'Config' the tables are expected to match
+   * @return One 'ChainIndex' per table
+   * @throws IOException Unable to read the file, or it doesn't match 'cfg'
+   */
+  public static List<ChainIndex> map(Path file, Config cfg) throws IOException {
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      Directory dir = readDirectory(channel, file, cfg);
+      List<ChainIndex> tables = new ArrayList<>(dir.rows.length);
+      for (int i = 0; i < dir.rows.length; i++) {
+        tables.add(new MappedTable(channel, dir.offsets[i], dir.rows[i], dir.flags));
+      }
+
+      return tables;
+    }
+  }
+
+  /**
+   * Open each table held in <code>file</code>, reading no more than the header. A table is only
+   * mapped when first searched, and at most <code>maxOpen</code> tables are held mapped at once.
+   * @see LazyTable
+   * @param file File to open
+   * @param cfg Rainbow table 'Config' the tables are expected to match
+   * @param maxOpen Most tables mapped at once, or 0 for no limit
+   * @return One 'ChainIndex' per table
+   * @throws IOException Unable to read the file, or it doesn't match 'cfg'
+   */
+  public static List<ChainIndex> open(Path file, Config cfg, int maxOpen) throws IOException {
+    return open(file, cfg, new LazyTable.Pool(maxOpen));
+  }
+
+  /**
+   * Open each table held in <code>file</code>, as with <code>open(Path, Config, int)</code>, in
+   * a pool that may be shared with tables from other files. The pool's limit then covers the
+   * tables of every file sharing it.
+   * @param file File to open
+   * @param cfg Rainbow table 'Config' the tables are expected to match
+   * @param pool Pool of tables the file's tables are opened and closed within
+   * @return One 'ChainIndex' per table
+   * @throws IOException Unable to read the file, or it doesn't match 'cfg'
+   */
+  static List<ChainIndex> open(Path file, Config cfg, LazyTable.Pool pool) throws IOException {
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      Directory dir = readDirectory(channel, file, cfg);
+      List<ChainIndex> tables = new ArrayList<>(dir.rows.length);
+      for (int i = 0; i < dir.rows.length; i++) {
+        tables.add(new LazyTable(file, dir.offsets[i], dir.rows[i], dir.flags, pool));
+      }
+
+      return tables;
+    }
+  }
+
+  // PRIVATE
+  /**
+   * Read the header of <code>file</code>, checking it against <code>cfg</code>.
+   * @param channel Open file
+   * @param file File name, for error messages
+   * @param cfg Rainbow table 'Config' the tables are expected to match
+   * @return Where each table's records are found
+   * @throws IOException Unable to read the file, or it doesn't match 'cfg'
+   */
+  private static Directory readDirectory(FileChannel channel, Path file, Config cfg)
+      throws IOException {
+    ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+    readFully(channel, header, 0);
+    if (header.getInt() != MAGIC || header.getInt() != VERSION) {
+      throw new IOException("Not a rainbow table file: " + file);
+    }
+    if (header.getInt() != cfg.getKeyLen() || header.getInt() != cfg.getChainLen()
+        || header.getInt() != cfg.getKeySpace().getCharsetSize()) {
+      throw new IOException("Table file doesn't match configuration: " + file);
+    }
+    int flags = header.getInt();
+    if (header.getInt() != cfg.getDpBits() || header.getInt() != cfg.getCheckBits()
+        || header.getInt() != cfg.getHashType().getId()
+        || header.getInt() != cfg.getReduction().getId()
+        || header.getInt() != cfg.getMinKeyLen()
+        || header.getInt() != cfg.getKeySpace().getCharsetChecksum()
+        || ((flags & FLAG_SALTED) != 0) != cfg.isSaltedTables()) {
+      throw new IOException("Table file doesn't match configuration: " + file);
+    }
+    int tableCount = header.getInt();
+
+    Directory dir = new Directory();
+    dir.flags = flags;
+    dir.rows = new long[tableCount];
+    dir.offsets = new long[tableCount];
+    ByteBuffer entries = ByteBuffer.allocate(tableCount * 16);
+    readFully(channel, entries, HEADER_SIZE);
+    for (int i = 0; i < tableCount; i++) {
+      dir.rows[i] = entries.getLong();
+      dir.offsets[i] = entries.getLong();
+      if (dir.offsets[i] + dir.rows[i] * recordSize(dir.flags) > channel.size()) {
+        throw new IOException("Table file is truncated: " + file);
+      }
+    }
+
+    return dir;
+  }
+
+  /**
+   * Fill <code>buffer</code> from <code>channel</code>, starting at <code>position</code>.
+   * @param channel Open file
+   * @param buffer Buffer to fill, flipped on return
+   * @param position Position in the file
+   * @throws IOException Unable to read, or the file ends early
+   */
+  private static void readFully(FileChannel channel, ByteBuffer buffer, long position)
+      throws IOException {
+    while (buffer.hasRemaining()) {
+      int read = channel.read(buffer, position + buffer.position());
+      if (read < 0) {
+        throw new IOException("Table file is truncated");
+      }
+    }
+    buffer.flip();
+  }
+
+  /** Where each table's records are found in a table file. */
+  private static class Directory {
+    /** Optional fields held by each record. */
+    int flags;
+    /** Rows held by each table. */
+    long[] rows;
+    /** Position of each table's first record. */
+    long[] offsets;
+  }
+}
@@ -0,0 +1,673 @@
+package RBT;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * Writes a table file from chains generated in runs, so that no more than a run is ever held in
+ * memory.<p>
+ * Each run is sorted by the caller, then spilled to its own file in a run directory. A table's
+ * runs are k-way merged into one sorted file, dropping every chain whose end was already seen,
+ * after which more runs may be spilled to make up for the chains dropped. Once every table is
+ * merged, the header and each table's merged file are joined into the table file, and the runs
+ * are removed. When tables are sharded, each table gets a table file of its own instead.</p>
+ * A merge may instead hand chains whose end was already seen to another table, as a run of
+ * placed chains. Placed chains are never handed on again, and when ends match, a chain that may
+ * not be moved is the one kept, leaving the others free to move.<br>
+ * Run files hold bare records, in the same layout as the records of a table file. After a
+ * checkpoint, every run file it names is on disk, so generation can be resumed from it. Files it
+ * names that are merged since are only removed at the next checkpoint, while other files are
+ * removed once merged, and files not named by the checkpoint are removed on resuming.
+ *
+ * @see Checkpoint
+ * @see TableFile
+ * @see Table#generateTable(long)
+ */
+class TableWriter {
+  /** Most run files read at once by a merge. More runs are first merged in passes. */
+  static final int MAX_MERGE_WAY = 64;
+  /** Buffer used to read or write each run file. */
+  static final int BUFFER_SIZE = 1 << 16;
+  /** Name of the checkpoint file, in the run directory. */
+  static final String CHECKPOINT_NAME = "checkpoint";
+  /** Suffix of run files whose chains may be moved to another table. */
+  static final String RUN_SUFFIX = ".run";
+  /** Suffix of run files holding chains moved from another table, which aren't moved again. */
+  static final String PLACED_SUFFIX = ".placed";
+
+  /** Table file written once every table is merged, or one per table when sharded. */
+  private final List<Path> files;
+  /** Directory holding the run files. */
+  private final Path runDir;
+  /** Optional fields held by each record. */
+  private final int flags;
+  /** Run files spilled for each table, and not yet merged. */
+  private final List<List<Path>> runs;
+  /** Rows held by each of <code>runs</code>. */
+  private final List<List<Long>> runRows;
+  /** Files written since the last checkpoint, not yet forced to disk. */
+  private final List<Path> unsynced = new ArrayList<>();
+  /** Files merged since the last checkpoint, removed once it's written. */
+  private final List<Path> obsolete = new ArrayList<>();
+  /** Files named by the last checkpoint, which are kept until the next. */
+  private final Set<Path> checkpointed = new HashSet<>();
+  /** Merged file of each table, or null if not yet merged. */
+  private final Path[] merged;
+  /** Rows held by each table's merged file. */
+  private final long[] rowCounts;
+  /** Number of run files created so far, used to name the next. */
+  private int runNumber = 0;
+  /** Rows handed to another table by the last merge. */
+  private long overflowRows;
+  /** Rows dropped by the last merge for not fitting in the table, though their ends were new. */
+  private long surplusRows;
+  /** Checkpoint resumed from, or null if started afresh. */
+  private Checkpoint resumed;
+
+  /**
+   * Prepares to write <code>tableCount</code> tables to <code>files</code>, being either a single
+   * table file, or one per table.<br>
+   * When <code>resume</code> is set and an earlier attempt left a checkpoint in
+   * <code>runDir</code>, its run files are kept and the attempt continues from it. Otherwise, run
+   * files left behind are removed.
+   * @param runDir Directory to hold run files
+   * @param files Table file(s) to write
+   * @param tableCount Number of tables
+   * @param flags Optional fields held by each record
+   * @param resume Whether to resume from a checkpoint
+   * @throws IOException Unable to create the run directory, or to resume
+   */
+  TableWriter(Path runDir, List<Path> files, int tableCount, int flags, boolean resume)
+      throws IOException {
+    this.runDir = runDir;
+    this.files = files;
+    this.flags = flags;
+    runs = new ArrayList<>(tableCount);
+    runRows = new ArrayList<>(tableCount);
+    for (int i = 0; i < tableCount; i++) {
+      runs.add(new ArrayList<>());
+      runRows.add(new ArrayList<>());
+    }
+    merged = new Path[tableCount];
+    rowCounts = new long[tableCount];
+    for (Path file : files) {
+      Files.createDirectories(file.toAbsolutePath().getParent());
+    }
+
+    if (resume && hasCheckpoint(runDir)) {
+      restore(Checkpoint.read(runDir.resolve(CHECKPOINT_NAME)));
+    } else {
+      deleteRunDir();
+      Files.createDirectories(runDir);
+    }
+  }
+
+  // PROTECTED, STATIC
+  /**
+   * Checks whether an earlier attempt left a checkpoint in <code>runDir</code>.
+   * @param runDir Directory holding run files
+   * @return Success or failure
+   */
+  static boolean hasCheckpoint(Path runDir) {
+    return Files.exists(runDir.resolve(CHECKPOINT_NAME));
+  }
+
+  // PROTECTED
+  /**
+   * Return the checkpoint resumed from, if any.
+   * @return Checkpoint, or null if started afresh
+   */
+  Checkpoint getResumed() {
+    return resumed;
+  }
+
+  /**
+   * Return the rows held by <code>table</code> as of its last merge.
+   * @param table Index of the table
+   * @return Rows merged
+   */
+  long getRowCount(int table) {
+    return rowCounts[table];
+  }
+
+  /**
+   * Return the rows spilled for <code>table</code> since its last merge.
+   * @param table Index of the table
+   * @return Rows spilled, not yet merged
+   */
+  long getSpilledRows(int table) {
+    long rows = 0;
+    for (long runSize : runRows.get(table)) {
+      rows += runSize;
+    }
+    return rows;
+  }
+
+  /**
+   * Write <code>run</code> to a new run file of <code>table</code>.
+   * @param table Index of the table the chains belong to
+   * @param run Chains, already in order of end
+   * @throws IOException Unable to write the run file
+   */
+  void spill(int table, ChainIndex run) throws IOException {
+    writeRun(table, run, run.size(), RUN_SUFFIX);
+  }
+
+  /**
+   * Write the first <code>rows</code> chains of <code>chains</code>, which collided in another
+   * table, to a new run file of <code>table</code>. They won't be moved again.
+   * @param table Index of the table the chains are moved to
+   * @param chains Chains, already in order of end
+   * @param rows Chains to write, no more than <code>chains</code> holds
+   * @throws IOException Unable to write the run file
+   */
+  void place(int table, ChainIndex chains, long rows) throws IOException {
+    if (rows > 0) {
+      writeRun(table, chains, rows, PLACED_SUFFIX);
+    }
+  }
+
+  /**
+   * Merge every run file of <code>table</code>, along with the table's earlier merged file, into
+   * a new merged file. Where chains share an end, only the first is kept.<br>
+   * When <code>exclusive</code>, a chain whose end is held by the merged file of any earlier
+   * table is dropped too, so that no two tables hold the same end.<br>
+   * No more than <code>limit</code> chains are kept, those of the highest ends not being kept
+   * once the table is full. The number dropped is then available from
+   * <code>getSurplusRows()</code>.<br>
+   * When <code>overflowTable</code> is set, up to <code>overflowLimit</code> of the chains not
+   * kept are placed in new run files of that table rather than dropped, including those that
+   * collide within an intermediate pass. The number placed is then available from
+   * <code>getOverflowRows()</code>.
+   * @param table Index of the table
+   * @param exclusive Whether to drop ends held by earlier tables
+   * @param limit Most rows the table is to hold
+   * @param overflowTable Index of the table chains not kept are placed in, or -1 to drop them
+   * @param overflowLimit Most chains placed in 'overflowTable'
+   * @return Rows held by the table once merged
+   * @throws IOException Unable to read or write run files
+   */
+  long merge(int table, boolean exclusive, long limit, int overflowTable, long overflowLimit)
+      throws IOException {
+    List<Path> sources = runs.get(table);
+    if (merged[table] != null) {
+      sources.add(0, merged[table]);
+    }
+    overflowRows = 0;
+    surplusRows = 0;
+    // Chains not kept by each pass, sorted by end, to be placed in 'overflowTable'
+    List<Path> overflows = new ArrayList<>();
+    List<Long> overflowCounts = new ArrayList<>();
+    // Merge in passes, so that no more than 'MAX_MERGE_WAY' files are ever open
+    while (sources.size() > MAX_MERGE_WAY) {
+      List<Path> pass = new ArrayList<>(sources.subList(0, MAX_MERGE_WAY));
+      sources.subList(0, MAX_MERGE_WAY).clear();
+      // Chains that may not be moved taint the pass, so that none of them is ever moved
+      boolean movable = true;
+      for (Path source : pass) {
+        movable &= isMovable(source);
+      }
+      Path path = runDir.resolve(
+          "t" + table + "-r" + runNumber++ + (movable ? RUN_SUFFIX : PLACED_SUFFIX));
+      Path overflow = overflowTable < 0 ? null
+          : runDir.resolve("t" + overflowTable + "-r" + runNumber++ + PLACED_SUFFIX);
+      long placed = overflowRows;
+      mergeFiles(pass, new ArrayList<>(), path, Long.MAX_VALUE, overflow, overflowLimit);
+      sources.add(path);
+      unsynced.add(path);
+      if (overflow != null) {
+        overflows.add(overflow);
+        overflowCounts.add(overflowRows - placed);
+      }
+    }
+
+    List<Path> excluded = new ArrayList<>();
+    if (exclusive) {
+      for (int i = 0; i < table; i++) {
+        excluded.add(merged[i]);
+      }
+    }
+    Path overflow = overflowTable < 0 ? null
+        : runDir.resolve("t" + overflowTable + "-r" + runNumber++ + PLACED_SUFFIX);
+    Path path = runDir.resolve("t" + table + "-r" + runNumber++ + ".merged");
+    long placed = overflowRows;
+    rowCounts[table] = mergeFiles(sources, excluded, path, limit, overflow, overflowLimit);
+    merged[table] = path;
+    unsynced.add(path);
+    sources.clear();
+    runRows.get(table).clear();
+    if (overflow != null) {
+      overflows.add(overflow);
+      overflowCounts.add(overflowRows - placed);
+    }
+    for (int i = 0; i < overflows.size(); i++) {
+      if (overflowCounts.get(i) > 0) {
+        runs.get(overflowTable).add(overflows.get(i));
+        runRows.get(overflowTable).add(overflowCounts.get(i));
+        unsynced.add(overflows.get(i));
+      } else {
+        Files.deleteIfExists(overflows.get(i));
+      }
+    }
+
+    return rowCounts[table];
+  }
+
+  /**
+   * Return the chains the last merge placed in another table, rather than dropped.
+   * @return Rows placed
+   */
+  long getOverflowRows() {
+    return overflowRows;
+  }
+
+  /**
+   * Return the chains the last merge dropped for not fitting in the table, though no chain kept
+   * shared their end.
+   * @return Rows beyond the table's limit, not placed in another table
+   */
+  long getSurplusRows() {
+    return surplusRows;
+  }
+
+  /**
+   * Force every file written since the last checkpoint to disk, then write <code>cp</code>,
+   * filled in with the run files now on disk. Files merged since the last checkpoint are then
+   * removed.
+   * @param cp Checkpoint, with the generation state already filled in
+   * @throws IOException Unable to write the checkpoint
+   */
+  void checkpoint(Checkpoint cp) throws IOException {
+    for (Path path : unsynced) {
+      if (Files.exists(path)) {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+          channel.force(true);
+        }
+      }
+    }
+    unsynced.clear();
+
+    cp.runNumber = runNumber;
+    checkpointed.clear();
+    for (int i = 0; i < merged.length; i++) {
+      cp.rowCounts[i] = rowCounts[i];
+      cp.merged[i] = merged[i] == null ? null : merged[i].getFileName().toString();
+      if (merged[i] != null) {
+        checkpointed.add(merged[i]);
+      }
+      cp.runFiles.get(i).clear();
+      cp.runRows.get(i).clear();
+      for (int j = 0; j < runs.get(i).size(); j++) {
+        cp.runFiles.get(i).add(runs.get(i).get(j).getFileName().toString());
+        cp.runRows.get(i).add(runRows.get(i).get(j));
+        checkpointed.add(runs.get(i).get(j));
+      }
+    }
+    cp.write(runDir.resolve(CHECKPOINT_NAME));
+
+    for (Path path : obsolete) {
+      Files.deleteIfExists(path);
+    }
+    obsolete.clear();
+  }
+
+  /**
+   * Write the table file(s) from each table's merged file, then remove the run files. A table
+   * file is written under a temporary name and moved into place, so it's never seen incomplete.
+   * @param cfg Rainbow table 'Config' the tables were generated with
+   * @throws IOException Unable to write a table file
+   */
+  void finish(Config cfg) throws IOException {
+    if (files.size() == 1) {
+      writeTableFile(files.get(0), cfg, 0, merged.length);
+    } else {
+      for (int i = 0; i < merged.length; i++) {
+        writeTableFile(files.get(i), cfg, i, i + 1);
+      }
+    }
+    deleteRunDir();
+  }
+
+  // PRIVATE
+  /**
+   * Write the first <code>rows</code> chains of <code>run</code> to a new run file of
+   * <code>table</code>.
+   * @param table Index of the table the chains belong to
+   * @param run Chains, already in order of end
+   * @param rows Chains to write
+   * @param suffix Suffix of the run file, saying whether its chains may be moved
+   * @throws IOException Unable to write the run file
+   */
+  private void writeRun(int table, ChainIndex run, long rows, String suffix) throws IOException {
+    Path path = runDir.resolve("t" + table + "-r" + runNumber++ + suffix);
+    try (DataOutputStream out = new DataOutputStream(
+        new BufferedOutputStream(Files.newOutputStream(path), BUFFER_SIZE))) {
+      TableFile.writeRecords(out, run, flags, rows);
+    }
+    runs.get(table).add(path);
+    runRows.get(table).add(rows);
+    unsynced.add(path);
+  }
+
+  /**
+   * Write a table file holding the merged files of tables <code>from</code> up to
+   * <code>to</code>.
+   * @param file Table file to write
+   * @param cfg Rainbow table 'Config' the tables were generated with
+   * @param from Index of the first table held
+   * @param to Index after the last table held
+   * @throws IOException Unable to write the table file
+   */
+  private void writeTableFile(Path file, Config cfg, int from, int to) throws IOException {
+    Path part = Paths.get(file + ".part");
+    try (DataOutputStream out = new DataOutputStream(
+        new BufferedOutputStream(Files.newOutputStream(part), BUFFER_SIZE))) {
+      TableFile.writeHeader(out, cfg, flags, Arrays.copyOfRange(rowCounts, from, to));
+    }
+    try (FileChannel out = FileChannel.open(part, StandardOpenOption.APPEND)) {
+      for (int i = from; i < to; i++) {
+        if (merged[i] == null) {
+          continue;
+        }
+        try (FileChannel in = FileChannel.open(merged[i], StandardOpenOption.READ)) {
+          long size = in.size();
+          for (long copied = 0; copied < size; ) {
+            copied += in.transferTo(copied, size - copied, out);
+          }
+        }
+      }
+    }
+    Files.move(part, file, StandardCopyOption.REPLACE_EXISTING);
+  }
+
+  /**
+   * K-way merge <code>sources</code> into <code>target</code>, keeping the first of each run of
+   * equal ends, and dropping any end held by <code>excluded</code>, until <code>limit</code>
+   * chains are kept. Chains that may not be moved come first among equal ends. Source files
+   * named by the last checkpoint are removed at the next, and others straight away.<br>
+   * Movable chains not kept are written to <code>overflow</code>, in order of end, and counted
+   * in <code>overflowRows</code>, until it reaches <code>overflowLimit</code>. Chains dropped
+   * only for the limit are counted in <code>surplusRows</code>. Neither count is reset, so that
+   * the passes of one merge share them.
+   * @param sources Sorted files to merge
+   * @param excluded Sorted files whose ends are dropped
+   * @param target File to write
+   * @param limit Most chains written to 'target'
+   * @param overflow File to write chains not kept to, or null to drop them
+   * @param overflowLimit Most chains counted in 'overflowRows'
+   * @return Rows written to 'target'
+   * @throws IOException Unable to read or write
+   */
+  private long mergeFiles(List<Path> sources, List<Path> excluded, Path target, long limit,
+      Path overflow, long overflowLimit) throws IOException {
+    PriorityQueue<RunReader> queue =
+        new PriorityQueue<>(Math.max(1, sources.size() + excluded.size()),
+            (a, b) -> a.end != b.end ? Long.compare(a.end, b.end)
+                : Boolean.compare(a.movable, b.movable));
+    long written = 0;
+    try (DataOutputStream out = new DataOutputStream(
+            new BufferedOutputStream(Files.newOutputStream(target), BUFFER_SIZE));
+        DataOutputStream spill = overflow == null ? null : new DataOutputStream(
+            new BufferedOutputStream(Files.newOutputStream(overflow), BUFFER_SIZE))) {
+      for (Path path : sources) {
+        openReader(queue, new RunReader(path, flags, false));
+      }
+      for (Path path : excluded) {
+        openReader(queue, new RunReader(path, flags, true));
+      }
+
+      while (!queue.isEmpty()) {
+        long end = queue.peek().end;
+        boolean found = false;
+        boolean drop = false;
+        boolean movable = false;
+        long head = 0;
+        int length = 0;
+        int checks = 0;
+        // Take every record with this end, from any file
+        while (!queue.isEmpty() && queue.peek().end == end) {
+          RunReader reader = queue.poll();
+          if (reader.excluded) {
+            drop = true;
+          } else if (!found) {
+            found = true;
+            movable = reader.movable;
+            head = reader.head;
+            length = reader.length;
+            checks = reader.checks;
+          } else if (spill != null && reader.movable && overflowRows < overflowLimit) {
+            // Merged with the chain kept, but may still fill another table
+            writeRecord(spill, end, reader.head, reader.length, reader.checks);
+            overflowRows++;
+          }
+          if (reader.next()) {
+            queue.add(reader);
+          } else {
+            reader.close();
+          }
+        }
+        if (found && !drop && written < limit) {
+          writeRecord(out, end, head, length, checks);
+          written++;
+        } else if (found && !drop) {
+          // The table is full, so the chain goes the way of those that collided
+          if (spill != null && movable && overflowRows < overflowLimit) {
+            writeRecord(spill, end, head, length, checks);
+            overflowRows++;
+          } else {
+            surplusRows++;
+          }
+        }
+      }
+    } finally {
+      for (RunReader reader : queue) {
+        reader.close();
+      }
+    }
+    for (Path source : sources) {
+      if (checkpointed.contains(source)) {
+        obsolete.add(source);
+      } else {
+        // Never named by a checkpoint, so no longer needed
+        Files.delete(source);
+        unsynced.remove(source);
+      }
+    }
+
+    return written;
+  }
+
+  /**
+   * Write one record.
+   * @param out Stream to write to
+   * @param end Truncated end-of-chain hash
+   * @param head Key space index of the chain-head key
+   * @param length Chain length, written only with FLAG_LENGTHS
+   * @param checks Check bits, written only with FLAG_CHECKS
+   * @throws IOException Unable to write
+   */
+  private void writeRecord(DataOutputStream out, long end, long head, int length, int checks)
+      throws IOException {
+    out.writeLong(end);
+    out.writeLong(head);
+    if ((flags & TableFile.FLAG_LENGTHS) != 0) {
+      out.writeInt(length);
+    }
+    if ((flags & TableFile.FLAG_CHECKS) != 0) {
+      out.writeByte(checks);
+    }
+  }
+
+  /**
+   * Return whether the chains of <code>path</code> may be moved to another table. Merged files
+   * hold chains already kept, and placed runs hold chains already moved.
+   * @param path Run or merged file
+   * @return True for run files that are neither
+   */
+  private static boolean isMovable(Path path) {
+    return path.getFileName().toString().endsWith(RUN_SUFFIX);
+  }
+
+  /**
+   * Add <code>reader</code> to <code>queue</code> if it holds a record, otherwise close it.
+   * @param queue Readers ordered by their current end
+   * @param reader Newly opened reader
+   * @throws IOException Unable to read
+   */
+  private void openReader(PriorityQueue<RunReader> queue, RunReader reader) throws IOException {
+    if (reader.next()) {
+      queue.add(reader);
+    } else {
+      reader.close();
+    }
+  }
+
+  /**
+   * Continue from <code>cp</code>, after checking each file it names holds the rows it should.
+   * Files it doesn't name were written after it, and are removed.
+   * @param cp Checkpoint read from the run directory
+   * @throws IOException The run files don't match the checkpoint
+   */
+  private void restore(Checkpoint cp) throws IOException {
+    if (cp.rowCounts.length != merged.length) {
+      throw new IOException("Checkpoint doesn't match configuration: " + runDir);
+    }
+    List<Path> named = new ArrayList<>();
+    named.add(runDir.resolve(CHECKPOINT_NAME));
+    for (int i = 0; i < merged.length; i++) {
+      if (cp.merged[i] != null) {
+        merged[i] = checkRunFile(cp.merged[i], cp.rowCounts[i]);
+        named.add(merged[i]);
+      }
+      rowCounts[i] = cp.rowCounts[i];
+      for (int j = 0; j < cp.runFiles.get(i).size(); j++) {
+        Path path = checkRunFile(cp.runFiles.get(i).get(j), cp.runRows.get(i).get(j));
+        runs.get(i).add(path);
+        runRows.get(i).add(cp.runRows.get(i).get(j));
+        named.add(path);
+      }
+    }
+    runNumber = cp.runNumber;
+    checkpointed.addAll(named);
+
+    try (DirectoryStream<Path> files = Files.newDirectoryStream(runDir)) {
+      for (Path path : files) {
+        if (!named.contains(path)) {
+          Files.delete(path);
+        }
+      }
+    }
+    resumed = cp;
+  }
+
+  /**
+   * Return the path of run file <code>name</code>, after checking it holds <code>rows</code>.
+   * @param name Run file name
+   * @param rows Rows expected
+   * @return Run file path
+   * @throws IOException The file is missing or of the wrong size
+   */
+  private Path checkRunFile(String name, long rows) throws IOException {
+    Path path = runDir.resolve(name);
+    if (!Files.exists(path) || Files.size(path) != rows * TableFile.recordSize(flags)) {
+      throw new IOException("Run file doesn't match checkpoint: " + path);
+    }
+    return path;
+  }
+
+  /**
+   * Remove the run directory and every file in it, if it exists.
+   * @throws IOException Unable to remove a file
+   */
+  private void deleteRunDir() throws IOException {
+    if (!Files.isDirectory(runDir)) {
+      return;
+    }
+    try (DirectoryStream<Path> files = Files.newDirectoryStream(runDir)) {
+      for (Path path : files) {
+        Files.delete(path);
+      }
+    }
+    Files.delete(runDir);
+  }
+
+  /** Reads the records of a run file in order, one at a time. */
+  private static class RunReader implements Closeable {
+    /** Buffered run file. */
+    private final DataInputStream in;
+    /** Optional fields held by each record. */
+    private final int flags;
+    /** Whether ends read are to be dropped from the merge, rather than kept. */
+    final boolean excluded;
+    /** Whether chains read may be moved to another table. */
+    final boolean movable;
+    /** Records not yet read. */
+    private long remaining;
+    /** End of the current record. */
+    long end;
+    /** Head of the current record. */
+    long head;
+    /** Chain length of the current record, or 0 if not held. */
+    int length;
+    /** Check bits of the current record, or 0 if not held. */
+    int checks;
+
+    /**
+     * Opens <code>path</code>, before the first record.
+     * @param path Run file
+     * @param flags Optional fields held by each record
+     * @param excluded Whether ends read are to be dropped from the merge
+     * @throws IOException Unable to open the file
+     */
+    RunReader(Path path, int flags, boolean excluded) throws IOException {
+      this.flags = flags;
+      this.excluded = excluded;
+      movable = isMovable(path);
+      remaining = Files.size(path) / TableFile.recordSize(flags);
+      in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path), BUFFER_SIZE));
+    }
+
+    /**
+     * Read the next record.
+     * @return False if no records remain
+     * @throws IOException Unable to read
+     */
+    boolean next() throws IOException {
+      if (remaining == 0) {
+        return false;
+      }
+      remaining--;
+      end = in.readLong();
+      head = in.readLong();
+      if ((flags & TableFile.FLAG_LENGTHS) != 0) {
+        length = in.readInt();
+      }
+      if ((flags & TableFile.FLAG_CHECKS) != 0) {
+        checks = in.readUnsignedByte();
+      }
+      return true;
+    }
+
+    @Override
+    public void close() throws IOException {
+      in.close();
+    }
+  }
+}
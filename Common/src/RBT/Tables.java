@@ -1,6 +1,6 @@
 package RBT;
 
-import java.security.MessageDigest;
+import java.nio.charset.StandardCharsets;
 
 /**
  * This class contains various static methods for working with <code>Table</code> object.
@@ -10,75 +10,51 @@ import java.security.MessageDigest;
  * @author Chris Cameron
  */
 public class Tables {
+  /** Rows below which <code>sortChains()</code> uses an insertion sort. */
+  private static final int INSERTION_SORT_ROWS = 16;
+
+  /** Added to the seed of the 'mix' reduction for each word after the first. */
+  private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
   /**
-   * Converts a byte array to hex for familiar looking SHA-1 hashes.<br>
-   * Credit to: https://stackoverflow.com/a/311179/3846437
-   * @param b byte[] of length 20
-   * @return Hex string of 40-characters
+   * Converts a byte array to hex for familiar looking hashes.
+   * @see Hex#encode(byte[], char[], int)
+   * @param b Hash in byte[] form
+   * @return Hex string, two lower-case characters per byte
    */
   protected static String byteArrayToHexString(byte[] b) {
-    String result = "";
-    for (int i = 0; i < b.length; i++) {
-      result += Integer.toString((b[i] & 0xff) + 0x100, 16).substring(1);
-    }
-    return result;
+    return Hex.toHexString(b);
   }
 
   /**
-   * Converts a hex string representing an SHA-1 hash to a <code>byte[]</code>.
-   * This is compatible with what {@link java.security.MessageDigest#digest()} returns.
-   * @see MessageDigest#digest()
-   * @param s Hex string of 40-characters
-   * @return byte[] of length 20
+   * Converts a hex string representing a hash to a <code>byte[]</code>.
+   * This is compatible with what {@link HashFunction#hash(byte[])} returns.
+   * @see HashFunction#hash(byte[])
+   * @see Hex#decode(CharSequence, byte[])
+   * @param s Hex string, two characters per byte
+   * @return Hash in byte[] form
+   * @throws NumberFormatException 's' isn't hex, or is of an odd length
    */
   protected static byte[] hexStringToByteArray(String s) {
-    byte[] result = new byte[(s.length()/2)];
-    int front = 0; // Front position in String 's'
-    int back = 2; // Rear position in String 's'
-    // Step through String 's', 2 characters at a time
-    for(int i = 0; i < (s.length()/2); i++) {
-      String hex = s.substring(front, back); // Two characters from 's'
-      result[i] = (byte)Integer.parseInt(hex, 16);
-      front = back;
-      back += 2;
+    byte[] result = new byte[s.length() / 2];
+    if (!Hex.decode(s, result)) {
+      throw new NumberFormatException("Not a hex hash: " + s);
     }
 
     return result;
   }
 
   /**
-   * Creates an SHA-1 hash of supplied string in <code>byte[]</code> form using the 'MessageDigest'
-   * object in the passed <code>cfg</code>.
+   * Creates a hash of supplied string in <code>byte[]</code> form using the 'HashFunction'
+   * object in the passed <code>cfg</code>, as chosen by <code>--hash</code>.
    *
-   * @see java.security.MessageDigest#digest()
+   * @see HashFunction#hash(String)
    * @param plaintext String to hash
    * @param cfg Rainbow table 'Config' object
-   * @return byte[] of length 20
+   * @return Hash in byte[] form
    */
-  protected static byte[] createShaHash(String plaintext, Config cfg) {
-    cfg.shaHash.update(plaintext.getBytes());
-
-    return cfg.shaHash.digest();
-  }
-
-  /**
-   * Creates an SHA-1 hash of supplied string in <code>byte[]</code> form, creating a new
-   * 'MessageDigest' object.
-   *
-   * @see java.security.MessageDigest#digest()
-   * @param plaintext String to hash
-   * @return byte[] of length 20
-   */
-  protected static byte[] createShaHash(String plaintext) {
-    MessageDigest shaHash = null;
-    try {
-      shaHash = MessageDigest.getInstance("SHA-1");
-    } catch(Exception e) {
-      System.exit(-1);
-    }
-    shaHash.update(plaintext.getBytes());
-
-    return shaHash.digest();
+  protected static byte[] createHash(String plaintext, Config cfg) {
+    return cfg.hashFunction.hash(plaintext);
   }
 
   /**
@@ -109,9 +85,9 @@ public class Tables {
     }
     int salt = rbtcfg.getChainLen() - n - 1; // Appropriate salt for present chain location
     byte[] hash = initialHash; // Holds hash that's ultimately returned
-    // Reduce (hashToKey()) then hash (createShaHash()), 'n' times
+    // Reduce (hashToKey()) then hash (createHash()), 'n' times
     for (int i = 0; i < n; i++) {
-      hash = createShaHash(hashToKey(hash, salt, rbtcfg), rbtcfg);
+      hash = createHash(hashToKey(hash, salt, rbtcfg), rbtcfg);
       salt++;
     }
 
@@ -128,16 +104,52 @@ public class Tables {
    * @return Plain-text key
    */
   protected static String hashToKey(byte[] hash, int salt, Config rbtcfg) {
-    String reducedKey = ""; // String we will produce from 'hash'
+    byte[] reducedKey = new byte[rbtcfg.KEYLENGTH]; // Key we will produce from 'hash'
+    int length = hashToKey(hash, salt, rbtcfg, reducedKey);
 
+    return new String(reducedKey, 0, length, StandardCharsets.US_ASCII);
+  }
+
+  /**
+   * Hash reduction algorithm, writing the plain-text key into <code>key</code> rather than
+   * building a <code>String</code>. Otherwise identical to
+   * {@link #hashToKey(byte[], int, Config)}.<br>
+   * The reduction used is the one chosen by <code>--reduction</code>.
+   * @see Reduction
+   * @param hash Hash in byte[] form
+   * @param salt int that acts as modifier to method's output
+   * @param rbtcfg Rainbow table 'Config'
+   * @param key Receives the plain-text key, one byte per character, in its first bytes
+   * @return Key length
+   */
+  protected static int hashToKey(byte[] hash, int salt, Config rbtcfg, byte[] key) {
+    if (rbtcfg.reduction == Reduction.MIX) {
+      return mixToKey(hash, salt, rbtcfg, key);
+    }
+    return foldToKey(hash, salt, rbtcfg, key);
+  }
+
+  /**
+   * The 'fold' reduction, which XORs the bytes of the hash into one bucket per key character.
+   * Keys must all be of one length.
+   * @see Reduction#FOLD
+   * @param hash Hash in byte[] form
+   * @param salt int that acts as modifier to method's output
+   * @param rbtcfg Rainbow table 'Config'
+   * @param key Receives the plain-text key, one byte per character, in its first KEYLENGTH bytes
+   * @return Key length, KEYLENGTH
+   */
+  protected static int foldToKey(byte[] hash, int salt, Config rbtcfg, byte[] key) {
+    KeySpace space = rbtcfg.keySpace;
+    int n = space.getCharsetSize();
     // 'salt' will range from 0 to (chainLength-1). When ALLOWABLE_CHARS.length < chainLength
     // 'salt' can grow to be larger than the number of allowable characters. We want to avoid the
     // scenario where salt%ALLOWABLE_CHARS.length wraps around to a value that has already been
     // seen. Should this happen we'll only have ALLOWABLE_CHARS.length unique reduction functions,
     // rather than chainLength-1. Here I attempt to solve this.
     // TODO: Not convinced the order of operations is as I expect here.
-    if(salt >= rbtcfg.ALLOWABLE_CHARS.length) {
-      salt += salt%rbtcfg.ALLOWABLE_CHARS.length+1;
+    if(salt >= n) {
+      salt += salt%n+1;
     }
 
     // TODO: Consider this (now quite outdated) different implementation.
@@ -184,22 +196,117 @@ public class Tables {
       for(int k = leftBound; k < rightBound; k++) {
         subByte ^= hash[k];
       }
-      // TODO: Replace with StringBuilder, although I question the value of this currently
-      reducedKey += rbtcfg.ALLOWABLE_CHARS[ ((subByte&0xff) + salt) % rbtcfg.ALLOWABLE_CHARS.length ];
+      key[i] = space.getChar( ((subByte&0xff) + salt) % n );
     }
 
-    return reducedKey;
+    return rbtcfg.KEYLENGTH;
+  }
+
+  /**
+   * The 'mix' reduction. The first 16 bytes of the hash and the salt are mixed into a 64-bit
+   * value, read as a fraction in [0, 1). Multiplying it by the number of allowable characters
+   * gives the next key character in the high bits, and leaves the remaining fraction in the low
+   * bits, so the key is the first KEYLENGTH base-N digits of the fraction. That is an even draw
+   * over the whole key space, without division. Keys too long for one value take their later
+   * characters from values mixed from the same seed.<br>
+   * When keys vary in length, the fraction is instead scaled to an index over the whole key
+   * space, so that each length is drawn in proportion to its number of keys.
+   * @see Reduction#MIX
+   * @param hash Hash in byte[] form, of at least 16 bytes
+   * @param salt int that acts as modifier to method's output
+   * @param rbtcfg Rainbow table 'Config'
+   * @param key Receives the plain-text key, one byte per character, in its first bytes
+   * @return Key length
+   */
+  protected static int mixToKey(byte[] hash, int salt, Config rbtcfg, byte[] key) {
+    KeySpace space = rbtcfg.keySpace;
+    long seed = truncateHash(hash) ^ Long.rotateLeft(readLong(hash, 8), 32)
+        ^ salt * GOLDEN_GAMMA;
+    long fraction = mix64(seed);
+    if (!space.isFixedLength()) {
+      return space.indexToKey(multiplyHighUnsigned(fraction, space.size()), key);
+    }
+
+    int n = space.getCharsetSize();
+    int digits = 0;
+    for (int i = 0; i < rbtcfg.KEYLENGTH; i++) {
+      if (digits == space.getMixDigits()) {
+        seed += GOLDEN_GAMMA;
+        fraction = mix64(seed);
+        digits = 0;
+      }
+      // High 64 bits of the 128-bit product of 'fraction' and the number of characters
+      long low = (fraction & 0xffffffffL) * n;
+      long high = (fraction >>> 32) * n + (low >>> 32);
+      key[i] = space.getChar((int) (high >>> 32));
+      fraction *= n;
+      digits++;
+    }
+
+    return rbtcfg.KEYLENGTH;
+  }
+
+  /**
+   * Salt added to every reduction of the tables of <code>family</code>. With
+   * <code>--salted-tables</code>, the family is the table's index, and each family takes a
+   * range of salts of its own: one per position for chains of a fixed length, or a single salt
+   * for distinguished-point chains. Otherwise every table is of family 0, and the salt is just
+   * the position.
+   * @param family Reduction family, the table's index with --salted-tables
+   * @param rbtcfg Rainbow table 'Config'
+   * @return Salt of the family's first reduction
+   */
+  protected static int familySalt(int family, Config rbtcfg) {
+    if (!rbtcfg.isSaltedTables()) {
+      return 0;
+    }
+    return family * (rbtcfg.getDpBits() > 0 ? 1 : rbtcfg.getChainLen());
+  }
+
+  /**
+   * High 64 bits of the 128-bit product of <code>x</code> and <code>y</code>, both read as
+   * unsigned. As <code>Math.multiplyHigh()</code>, which is signed and not in Java 8.
+   * @param x Unsigned value
+   * @param y Unsigned value
+   * @return High 64 bits of x * y
+   */
+  protected static long multiplyHighUnsigned(long x, long y) {
+    long x0 = x & 0xffffffffL;
+    long x1 = x >>> 32;
+    long y0 = y & 0xffffffffL;
+    long y1 = y >>> 32;
+    long p01 = x0 * y1;
+    long p10 = x1 * y0;
+    long middle = ((x0 * y0) >>> 32) + (p01 & 0xffffffffL) + (p10 & 0xffffffffL);
+
+    return x1 * y1 + (p01 >>> 32) + (p10 >>> 32) + (middle >>> 32);
+  }
+
+  /**
+   * Finalizer of MurmurHash3's 64-bit hash, a bijection in which every input bit affects every
+   * output bit.
+   * @param x Value to mix
+   * @return Mixed value
+   */
+  protected static long mix64(long x) {
+    x ^= x >>> 33;
+    x *= 0xff51afd7ed558ccdL;
+    x ^= x >>> 33;
+    x *= 0xc4ceb9fe1a85ec53L;
+    x ^= x >>> 33;
+
+    return x;
   }
 
   /**
    * Performs basic checks that the supplied hash is valid.
-   * @param hash Supplied hash as 40-character hex string
+   * @param hash Supplied hash as a hex string, of the length given by <code>--hash</code>
    * @param rbtcfg Rainbow table 'Config'
    * @return Validity of hash
    */
   protected static boolean isValidHexHash(String hash, Config rbtcfg) {
-    // Is the length equal to 'HASHLEN'? Is it proper hexadecimal?
-    return hash.matches("^[a-f0-9]{" + rbtcfg.HASHLEN + "}");
+    // Is the length equal to 'getHashLen()'? Is it proper hexadecimal?
+    return Hex.isHex(hash, rbtcfg.getHashLen());
   }
 
   /**
@@ -221,11 +328,180 @@ public class Tables {
       System.exit(-1);
     }
     String key = initialKey; // Key that's ultimately returned
-    // Hash (createShaHash) then reduce (hashToKey) 'n' times
+    // Hash (createHash) then reduce (hashToKey) 'n' times
     for (int i = 0; i < n; i++) {
-      key = hashToKey(createShaHash(key, rbtcfg), i, rbtcfg);
+      key = hashToKey(createHash(key, rbtcfg), i, rbtcfg);
     }
 
     return key;
   }
-}
\ No newline at end of file
+
+  /**
+   * Truncates a hash to its first 8 bytes, read as a big-endian <code>long</code>. This is how
+   * the end of a chain is held in a table.
+   * @see ChainIndex
+   * @param hash Hash in byte[] form, of at least 8 bytes
+   * @return Truncated hash
+   */
+  protected static long truncateHash(byte[] hash) {
+    return readLong(hash, 0);
+  }
+
+  /**
+   * Reads 8 bytes of a hash, starting at <code>offset</code>, as a big-endian <code>long</code>.
+   * @param hash Hash in byte[] form
+   * @param offset Position of the first byte
+   * @return Bytes as a long
+   */
+  private static long readLong(byte[] hash, int offset) {
+    long result = 0;
+    for (int i = offset; i < offset + 8; i++) {
+      result = (result << 8) | (hash[i] & 0xff);
+    }
+
+    return result;
+  }
+
+  /**
+   * Converts a plain-text key to its index in the key space. Shorter keys come first, and keys
+   * of one length are read as numbers in base N, N being the charset size, with their first
+   * character being the most significant.
+   * @see #indexToKey(long, Config)
+   * @see KeySpace#keyToIndex(String)
+   * @param key Plain-text key
+   * @param rbtcfg Rainbow table 'Config'
+   * @return Index, between 0 and (key space - 1), or -1 if the key isn't in the key space
+   */
+  protected static long keyToIndex(String key, Config rbtcfg) {
+    return rbtcfg.keySpace.keyToIndex(key);
+  }
+
+  /**
+   * Converts a plain-text key, held one byte per character, to its index in the key space.
+   * Otherwise identical to {@link #keyToIndex(String, Config)}.
+   * @param key Plain-text key, in its first 'length' bytes
+   * @param length Key length
+   * @param rbtcfg Rainbow table 'Config'
+   * @return Index, between 0 and (key space - 1), or -1 if the key isn't in the key space
+   */
+  protected static long keyToIndex(byte[] key, int length, Config rbtcfg) {
+    return rbtcfg.keySpace.keyToIndex(key, length);
+  }
+
+  /**
+   * Converts an index in the key space back to its plain-text key.
+   * @see #keyToIndex(String, Config)
+   * @param index Index, between 0 and (key space - 1)
+   * @param rbtcfg Rainbow table 'Config'
+   * @return Plain-text key
+   */
+  protected static String indexToKey(long index, Config rbtcfg) {
+    byte[] key = new byte[rbtcfg.KEYLENGTH];
+    int length = indexToKey(index, rbtcfg, key);
+
+    return new String(key, 0, length, StandardCharsets.US_ASCII);
+  }
+
+  /**
+   * Converts an index in the key space back to its plain-text key, writing it into
+   * <code>key</code> rather than building a <code>String</code>.
+   * @see #indexToKey(long, Config)
+   * @param index Index, between 0 and (key space - 1)
+   * @param rbtcfg Rainbow table 'Config'
+   * @param key Receives the plain-text key, one byte per character, in its first bytes
+   * @return Key length
+   */
+  protected static int indexToKey(long index, Config rbtcfg, byte[] key) {
+    return rbtcfg.keySpace.indexToKey(index, key);
+  }
+
+  /**
+   * Sorts chains, held as parallel arrays, in order of their end. Each head, and length and
+   * check bits if present, is moved along with its end.
+   * @param ends Truncated end-of-chain hashes
+   * @param heads Key space indexes of chain-head keys
+   * @param lengths Chain lengths, or null when not held
+   * @param checks Check bits, or null when not held
+   * @param from First row to sort, inclusive
+   * @param to Last row to sort, exclusive
+   */
+  protected static void sortChains(long[] ends, long[] heads, int[] lengths, byte[] checks,
+      int from, int to) {
+    while (to - from > INSERTION_SORT_ROWS) {
+      // Median of three as pivot
+      int mid = (from + to) >>> 1;
+      if (ends[mid] < ends[from]) swapChains(ends, heads, lengths, checks, mid, from);
+      if (ends[to - 1] < ends[from]) swapChains(ends, heads, lengths, checks, to - 1, from);
+      if (ends[to - 1] < ends[mid]) swapChains(ends, heads, lengths, checks, to - 1, mid);
+      long pivot = ends[mid];
+
+      int i = from;
+      int j = to - 1;
+      while (i <= j) {
+        while (ends[i] < pivot) i++;
+        while (ends[j] > pivot) j--;
+        if (i <= j) {
+          swapChains(ends, heads, lengths, checks, i, j);
+          i++;
+          j--;
+        }
+      }
+      // Recurse into the smaller side, loop on the larger
+      if (j - from < to - i) {
+        sortChains(ends, heads, lengths, checks, from, j + 1);
+        from = i;
+      } else {
+        sortChains(ends, heads, lengths, checks, i, to);
+        to = j + 1;
+      }
+    }
+
+    for (int i = from + 1; i < to; i++) {
+      for (int j = i; j > from && ends[j] < ends[j - 1]; j--) {
+        swapChains(ends, heads, lengths, checks, j, j - 1);
+      }
+    }
+  }
+
+  /**
+   * Swaps two rows of chains held as parallel arrays.
+   * @param ends Truncated end-of-chain hashes
+   * @param heads Key space indexes of chain-head keys
+   * @param lengths Chain lengths, or null when not held
+   * @param checks Check bits, or null when not held
+   * @param a Row
+   * @param b Row
+   */
+  private static void swapChains(long[] ends, long[] heads, int[] lengths, byte[] checks,
+      int a, int b) {
+    long end = ends[a];
+    ends[a] = ends[b];
+    ends[b] = end;
+    long head = heads[a];
+    heads[a] = heads[b];
+    heads[b] = head;
+    if (lengths != null) {
+      int length = lengths[a];
+      lengths[a] = lengths[b];
+      lengths[b] = length;
+    }
+    if (checks != null) {
+      byte check = checks[a];
+      checks[a] = checks[b];
+      checks[b] = check;
+    }
+  }
+
+  /**
+   * Checks whether a hash is a distinguished point, which is where chains end when generated
+   * with <code>--dp-bits</code>. A hash is distinguished when the lowest <code>bits</code> bits
+   * of its truncated form are all 0.
+   * @see #truncateHash(byte[])
+   * @param end Truncated hash
+   * @param bits Number of bits that must be 0
+   * @return Whether 'end' is distinguished
+   */
+  protected static boolean isDistinguished(long end, int bits) {
+    return (end & ((1L << bits) - 1)) == 0;
+  }
+}
@@ -1,8 +1,6 @@
 package RBT;
 
-import java.nio.file.Files;
 import java.nio.file.Paths;
-import java.util.List;
 import org.apache.commons.cli.Option;
 import org.apache.commons.cli.Options;
 
@@ -76,33 +74,83 @@ public class Main {
     // Show summary of table
     rbt.printSummary();
 
-    // Create a new 'Search' object
-    Search rbt_search = new Search(rbt, cfg);
+    // Candidate ends computed by one search are reused by any other for the same hash
+    CandidateCache cache = loadCache(cfg);
 
     // Have we been asked to search a supplied file?
     if(cfg.containsArg("search-file")) {
-      List<String> hashes = null;
+      BatchSearch batch = new BatchSearch(rbt, cfg, cache);
+      System.out.println("Searching for hashes in " + cfg.getArg("search-file"));
+      long searchTime = System.currentTimeMillis();
       try {
-        hashes = Files.readAllLines(Paths.get(cfg.getArg("search-file")));
+        batch.searchFile(Paths.get(cfg.getArg("search-file")), System.out);
       } catch(Exception e) {
         System.out.println("Probably couldn't open your hash file.");
         System.exit(-1);
       }
-      int found = 0;
-      System.out.println("Searching for " + hashes.size() + " hashes");
-      for(String hash : hashes) {
-        String key = rbt_search.keyFromHash(hash);
-        if(!key.isEmpty()) {
-          System.out.println(hash + ":" + key);
-          found++;
-        }
-      }
+      searchTime = Math.max(1, System.currentTimeMillis() - searchTime);
+      long searched = batch.getHashesRead() - batch.getHashesInvalid();
       System.out.println("\n-- SEARCH STATS --");
-      System.out.format("Hashes found: %d/%d = %f%%%n",
-          found, hashes.size(), ((float)found/hashes.size())*100);
+      if(searched > 0) {
+        System.out.format("Hashes found: %d/%d = %f%%%n",
+            batch.getHashesFound(), searched, ((float)batch.getHashesFound()/searched)*100);
+      } else {
+        System.out.println("Hashes found: 0/0, no valid hashes in the file");
+      }
+      if(batch.getHashesInvalid() > 0) {
+        System.out.format("Invalid hashes skipped: %d%n", batch.getHashesInvalid());
+      }
+      System.out.format("Hashes searched/s: %,d (%,d H/s)%n",
+          searched*1000/searchTime, batch.getHashCount()*1000/searchTime);
+      System.out.format("False alarms: %,d walked, %,d rejected by check bits%n",
+          batch.getFalseAlarmCount(), batch.getRejectedCount());
+      if(cache != null) {
+        System.out.format("Candidate cache hits: %d/%d%n",
+            cache.getHits(), cache.getHits() + cache.getMisses());
+      }
     } else {
       // Allow user to search
+      Search rbt_search = new Search(rbt, cfg, cache);
       rbt_search.searchUserInterface();
     }
+    saveCache(cfg, cache);
+  }
+
+  /**
+   * Creates the candidate cache, loaded from <code>--cache-file</code> if passed.
+   * @see CandidateCache
+   * @param cfg Rainbow table 'Config' object
+   * @return Candidate cache, or null if <code>--cache-size</code> is 0
+   */
+  private static CandidateCache loadCache(Config cfg) {
+    if(cfg.getCacheSize() == 0) {
+      return null;
+    }
+    CandidateCache cache = new CandidateCache(cfg);
+    if(cfg.getCacheFile() != null) {
+      try {
+        cache.load(Paths.get(cfg.getCacheFile()));
+      } catch(Exception e) {
+        // Searching works the same without it
+        System.out.println("Unable to load candidate cache: " + cfg.getCacheFile());
+      }
+    }
+    return cache;
+  }
+
+  /**
+   * Saves the candidate cache to <code>--cache-file</code>, if both exist.
+   * @param cfg Rainbow table 'Config' object
+   * @param cache Candidate cache, or null
+   */
+  private static void saveCache(Config cfg, CandidateCache cache) {
+    if(cache == null || cfg.getCacheFile() == null) {
+      return;
+    }
+    try {
+      cache.save(Paths.get(cfg.getCacheFile()));
+    } catch(Exception e) {
+      System.out.println("Unable to save candidate cache: " + cfg.getCacheFile());
+    }
   }
 }
\ No newline at end of file
@@ -1,6 +1,16 @@
 package RBT;
 
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
 import org.apache.commons.cli.Option;
 import org.apache.commons.cli.Options;
 
@@ -15,6 +25,17 @@ import org.apache.commons.cli.Options;
  * @author Chris Cameron
  */
 public class ChainTools {
+  /** Largest key space whose coverage is measured, so that its bitmap takes at most 512 MiB. */
+  protected static final long MAX_COVERAGE_KEY_SPACE = 1L << 32;
+  /** Most chains analyzed at once, being held in arrays. */
+  protected static final long MAX_ANALYZED_ROWS = 1 << 28;
+  /** Steps of the coverage curve printed by <code>--analyze</code>, each doubling the rows. */
+  protected static final int COVERAGE_STEPS = 8;
+  /** Ranges of positions merges are printed for by <code>--analyze</code>. */
+  protected static final int MERGE_INTERVALS = 16;
+  /** Most merging chains printed by <code>--print-collisions</code>. */
+  protected static final int MAX_PRINTED_COLLISIONS = 50;
+
   protected static Options buildOptions() {
     Options options = new Options();
     options.addOption(
@@ -29,7 +50,7 @@ public class ChainTools {
     options.addOption(
         Option.builder()
             .longOpt("print-chain")
-            .desc("Print the full, untruncated chain")
+            .desc("Print every key and hash along the chain from --key")
             .hasArg(false)
             .required(false)
             .build()
@@ -37,7 +58,26 @@ public class ChainTools {
     options.addOption(
         Option.builder()
             .longOpt("print-collisions")
-            .desc("Print the collisions that occur during table generation")
+            .desc("Walk --row-count random chains, and print those that collide with the " +
+                "chain from --key, as would be removed during table generation")
+            .hasArg(false)
+            .required(false)
+            .build()
+    );
+    options.addOption(
+        Option.builder()
+            .longOpt("coverage")
+            .desc("Walk --row-count chains with each reduction, and count the distinct keys " +
+                "found along them")
+            .hasArg(false)
+            .required(false)
+            .build()
+    );
+    options.addOption(
+        Option.builder()
+            .longOpt("analyze")
+            .desc("Walk --row-count chains in parallel, and report merges by chain position, " +
+                "how many chains share each end, and coverage as rows are added")
             .hasArg(false)
             .required(false)
             .build()
@@ -45,41 +85,620 @@ public class ChainTools {
     return options;
   }
 
-//  public static void createChainFromKey(String key, int chain_len, int key_len) {
-//    byte[] hash = Tables.createShaHash(key);
-//    System.out.println(key + ":" + Tables.byteArrayToHexString(hash));
-//    for(int i = 0; i < (chain_len-1); i++) {
-//      key = Tables.hashToKey(hash, i, key_len);
-//      hash = Table.createShaHash(key);
-//      System.out.println(key + ":" + Table.byteArrayToHexString(hash));
-//    }
-//  }
+  /**
+   * Prints each key along the chain that starts with <code>key</code>, and its hash, as
+   * <code>Table</code> would walk it, followed by the end held in a table.
+   * Distinguished-point chains are followed to their first distinguished point.
+   * @see ChainWalker#chainEnd(long)
+   * @param key Chain-head key, within the key space
+   * @param config Tool 'Config' object
+   */
+  public static void printChain(String key, Config config) {
+    long head = headIndex(key, config);
+    int chainLength = config.getChainLen();
+    int dpBits = config.getDpBits();
+    HashFunction hashFunction = config.getHashType().newFunction(config.getKeyLen());
+    byte[] keyBytes = new byte[config.getKeyLen()];
+    byte[] hash = new byte[hashFunction.getDigestLength()];
+    int width = Math.max(3, config.getKeyLen());
 
+    System.out.format("%8s  %-" + width + "s  %s%n", "Position", "Key", "Hash");
+    int length = Tables.indexToKey(head, config, keyBytes);
+    for (int position = 0; ; position++) {
+      hashFunction.hash(keyBytes, 0, length, hash);
+      System.out.format("%8d  %-" + width + "s  %s%n", position,
+          new String(keyBytes, 0, length, StandardCharsets.US_ASCII),
+          Tables.byteArrayToHexString(hash));
+      if (dpBits > 0 && Tables.isDistinguished(Tables.truncateHash(hash), dpBits)) {
+        System.out.format("Distinguished point reached after %,d keys%s%n", position + 1,
+            position + 1 < config.getMinChainLen() ? ", too short to be kept" : "");
+        break;
+      }
+      if (position == chainLength - 1) {
+        if (dpBits > 0) {
+          System.out.println("No distinguished point within --chain-length, so not kept");
+        }
+        break;
+      }
+      length = Tables.hashToKey(hash, dpBits > 0 ? 0 : position, config, keyBytes);
+    }
+    System.out.format("End, as held in a table: %016x%n", Tables.truncateHash(hash));
+  }
+
+  /**
+   * Walks <code>--row-count</code> chains from random heads, over the worker pool, and prints
+   * each that collides with the chain that starts with <code>key</code>.<br>
+   * A chain that reaches the same key at the same position, or at any position along
+   * distinguished-point chains, merges with it: every later key is the same, so both end alike,
+   * and table generation keeps only one of them. Chains of a fixed length may also reach one of
+   * its keys at another position, which costs coverage but doesn't merge; those are counted.
+   * @param key Chain-head key, within the key space
+   * @param config Tool 'Config' object
+   */
   public static void printKeyCollisions(String key, Config config) {
+    long[] target = chainKeys(config, headIndex(key, config));
+    long[] sortedTarget = target.clone();
+    Arrays.sort(sortedTarget);
+    long chains = config.getRowCount();
+    long seed = ThreadLocalRandom.current().nextLong();
+    System.out.format("Chain from '%s' holds %,d keys. Walking %,d random chains against it.%n",
+        key, target.length, chains);
+
+    int threads = config.getThreadCount();
+    ExecutorService pool = Executors.newFixedThreadPool(threads);
+    List<Future<List<long[]>>> results = new ArrayList<>();
+    AtomicLong crossings = new AtomicLong();
+    for (int t = 0; t < threads; t++) {
+      final long share = chains / threads + (t < chains % threads ? 1 : 0);
+      final SplittableRandom random = new SplittableRandom(seed + t);
+      results.add(pool.submit(
+          () -> findCollisions(config, target, sortedTarget, share, random, crossings)));
+    }
+    List<long[]> merges = new ArrayList<>();
+    try {
+      for (Future<List<long[]>> result : results) {
+        merges.addAll(result.get());
+      }
+    } catch (Exception e) {
+      e.printStackTrace();
+      System.exit(-1);
+    } finally {
+      pool.shutdown();
+    }
 
+    merges.sort((a, b) -> Long.compare(a[1], b[1]));
+    int width = Math.max(4, config.getKeyLen());
+    System.out.format("%-" + width + "s  %18s  %22s%n", "Head", "Merges at position",
+        "Its position at merge");
+    for (int i = 0; i < merges.size() && i < MAX_PRINTED_COLLISIONS; i++) {
+      long[] merge = merges.get(i);
+      System.out.format("%-" + width + "s  %,18d  %,22d%n", Tables.indexToKey(merge[0], config),
+          merge[1], merge[2]);
+    }
+    if (merges.size() > MAX_PRINTED_COLLISIONS) {
+      System.out.format("... and %,d more%n", merges.size() - MAX_PRINTED_COLLISIONS);
+    }
+    System.out.format("Chains merged with it: %,d of %,d (%.4f%%), each sharing its end%n",
+        merges.size(), chains, merges.size() * 100.0 / Math.max(1, chains));
+    if (config.getDpBits() == 0) {
+      System.out.format("Keys shared at another position, without merging: %,d%n",
+          crossings.get());
+    }
   }
 
+  /**
+   * Walks <code>chains</code> chains from random heads, recording each that merges with
+   * <code>target</code>.
+   * @param cfg Rainbow table 'Config' object
+   * @param target Key space index of each key along the chain collided with, by position
+   * @param sortedTarget 'target', sorted
+   * @param chains Number of chains to walk
+   * @param random Generator heads are drawn from
+   * @param crossings Counts keys of 'target' reached at another position, without merging
+   * @return Head, position merged at, and the position in 'target' merged at, of each chain
+   */
+  protected static List<long[]> findCollisions(Config cfg, long[] target, long[] sortedTarget,
+      long chains, SplittableRandom random, AtomicLong crossings) {
+    int chainLength = cfg.getChainLen();
+    int dpBits = cfg.getDpBits();
+    long keySpace = cfg.getKeySpace().size();
+    HashFunction hashFunction = cfg.getHashType().newFunction(cfg.getKeyLen());
+    byte[] key = new byte[cfg.getKeyLen()];
+    byte[] hash = new byte[hashFunction.getDigestLength()];
+    List<long[]> merges = new ArrayList<>();
+    long crossed = 0;
+    for (long c = 0; c < chains; c++) {
+      long head = random.nextLong(keySpace);
+      long index = head;
+      int length = Tables.indexToKey(head, cfg, key);
+      for (int position = 0; ; position++) {
+        if (dpBits == 0 && index == target[position]) {
+          merges.add(new long[] {head, position, position});
+          break;
+        }
+        if (Arrays.binarySearch(sortedTarget, index) >= 0) {
+          if (dpBits > 0) {
+            merges.add(new long[] {head, position, positionOf(target, index)});
+            break;
+          }
+          crossed++;
+        }
+        hashFunction.hash(key, 0, length, hash);
+        if (position == chainLength - 1
+            || dpBits > 0 && Tables.isDistinguished(Tables.truncateHash(hash), dpBits)) {
+          break;
+        }
+        length = Tables.hashToKey(hash, dpBits > 0 ? 0 : position, cfg, key);
+        index = Tables.keyToIndex(key, length, cfg);
+      }
+    }
+    crossings.addAndGet(crossed);
+
+    return merges;
+  }
+
+  /**
+   * Walks <code>--row-count</code> chains of a fixed length in lockstep over the worker pool, and
+   * reports what limits the coverage of a table of them, so that <code>--row-count</code> and
+   * <code>--chain-length</code> can be sized for a key space:
+   * <ul>
+   *   <li>Merges by position: chains that reach the same key at the same position merge, and
+   *   walk on together. Only one of each set of merged chains is walked on.</li>
+   *   <li>End collisions: how many chains share each end. Table generation keeps one chain per
+   *   end, so every chain beyond the first is lost.</li>
+   *   <li>Coverage by rows: for the first chains generated, doubling up to all of them, the rows
+   *   a table keeps, and the keys its positions cover, 1 - &prod;(1 - m<sub>i</sub>/N) of the key
+   *   space, m<sub>i</sub> being the distinct keys at position i. Beside it is the coverage ideal
+   *   reductions would give.</li>
+   * </ul>
+   * Memory taken is about 40 bytes per row.
+   * @see #idealCoverage(long, long, int)
+   * @param config Tool 'Config' object
+   */
+  public static void analyzeChains(Config config) {
+    if (config.getDpBits() > 0) {
+      System.out.println("--analyze needs chains of a fixed length");
+      System.exit(-1);
+    }
+    if (config.getRowCount() > MAX_ANALYZED_ROWS) {
+      System.out.println("Too many rows to analyze, at most " + MAX_ANALYZED_ROWS);
+      System.exit(-1);
+    }
+    int rows = (int) config.getRowCount();
+    int chainLength = config.getChainLen();
+    long keySpace = config.getKeySpace().size();
+    int threads = config.getThreadCount();
+    long startTime = System.nanoTime();
+
+    // Rows of each step of the coverage curve, doubling up to every row
+    int steps = 0;
+    int[] checkpoints = new int[COVERAGE_STEPS];
+    for (int k = COVERAGE_STEPS - 1; k >= 0; k--) {
+      int checkpoint = rows >> k;
+      if (checkpoint > 0 && (steps == 0 || checkpoint > checkpoints[steps - 1])) {
+        checkpoints[steps++] = checkpoint;
+      }
+    }
+    checkpoints = Arrays.copyOf(checkpoints, steps);
+
+    // One slot per chain still walked: its key, the first row that reached it, and the number
+    // of rows merged into it
+    long[] keys = new long[rows];
+    int[] firstRows = new int[rows];
+    int[] weights = new int[rows];
+    SplittableRandom random = new SplittableRandom();
+    for (int i = 0; i < rows; i++) {
+      keys[i] = random.nextLong(keySpace);
+      firstRows[i] = i;
+      weights[i] = 1;
+    }
+    int[] slots = new int[Integer.highestOneBit(Math.max(1, rows)) * 4];
 
+    long[] merged = new long[chainLength];
+    long[] left = new long[chainLength];
+    long[] reached = new long[steps];
+    double[] logUncovered = new double[steps];
+    long hashes = 0;
+    int live = rows;
+    ExecutorService pool = Executors.newFixedThreadPool(threads);
+    try {
+      for (int position = 0; position < chainLength; position++) {
+        if (position > 0) {
+          stepChains(pool, threads, config, keys, live, position - 1);
+          hashes += live;
+        }
+        int before = live;
+        live = mergeChains(keys, firstRows, weights, live, slots);
+        merged[position] = before - live;
+        left[position] = live;
+
+        // Distinct keys at this position among the first rows of each step
+        Arrays.fill(reached, 0);
+        for (int i = 0; i < live; i++) {
+          int k = 0;
+          while (firstRows[i] >= checkpoints[k]) {
+            k++;
+          }
+          reached[k]++;
+        }
+        for (int k = 1; k < steps; k++) {
+          reached[k] += reached[k - 1];
+        }
+        for (int k = 0; k < steps; k++) {
+          logUncovered[k] += Math.log1p(-Math.min((double) reached[k] / keySpace, 1 - 1e-12));
+        }
+      }
+    } catch (Exception e) {
+      e.printStackTrace();
+      System.exit(-1);
+    } finally {
+      pool.shutdown();
+    }
+    long elapsed = Math.max(1, System.nanoTime() - startTime);
+
+    System.out.format("Analysis of %,d chains of %,d keys, over a key space of %,d keys, " +
+        "hash %s, reduction %s%n", rows, chainLength, keySpace,
+        config.getHashType().getOptionName(), config.getReduction().getOptionName());
+    System.out.format("%,d hashes in %,d ms (%,d H/s)%n%n", hashes, elapsed / 1000000,
+        hashes * 1000000000L / elapsed);
+
+    System.out.println("Merges by position:");
+    System.out.format("%18s %16s %16s %18s%n", "Positions", "Chains left", "Merged",
+        "Rate per position");
+    System.out.format("%18s %,16d %,16d %17.4f%%%n", "0 (heads)", left[0], merged[0],
+        merged[0] * 100.0 / Math.max(1, rows));
+    int span = Math.max(1, (chainLength - 1 + MERGE_INTERVALS - 1) / MERGE_INTERVALS);
+    for (int from = 1; from < chainLength; from += span) {
+      int to = Math.min(chainLength - 1, from + span - 1);
+      long mergedSpan = 0;
+      for (int p = from; p <= to; p++) {
+        mergedSpan += merged[p];
+      }
+      double rate = mergedSpan * 100.0 / Math.max(1, left[from - 1]) / (to - from + 1);
+      System.out.format("%18s %,16d %,16d %17.4f%%%n", from + "-" + to, left[to], mergedSpan,
+          rate);
+    }
+    System.out.println();
+
+    // Ends shared by 1, 2, 3-4, 5-8, ... chains
+    long[] ends = new long[33];
+    long[] endChains = new long[33];
+    for (int i = 0; i < live; i++) {
+      int bucket = 32 - Integer.numberOfLeadingZeros(weights[i] - 1);
+      ends[bucket]++;
+      endChains[bucket] += weights[i];
+    }
+    System.out.println("End collisions:");
+    System.out.format("%18s %16s %16s%n", "Chains per end", "Ends", "Chains");
+    for (int b = 0; b < ends.length; b++) {
+      if (ends[b] > 0) {
+        String label = b < 2 ? Integer.toString(b + 1) : ((1 << (b - 1)) + 1) + "-" + (1 << b);
+        System.out.format("%18s %,16d %,16d%n", label, ends[b], endChains[b]);
+      }
+    }
+    System.out.format("Distinct ends: %,d of %,d chains (%.2f%%), %,d lost to collisions%n%n",
+        live, rows, live * 100.0 / Math.max(1, rows), rows - live);
+
+    System.out.println("Coverage by rows:");
+    System.out.format("%16s %16s %18s %14s %14s%n", "Rows generated", "Rows kept",
+        "Keys covered", "Of key space", "Ideal");
+    for (int k = 0; k < steps; k++) {
+      double covered = keySpace * -Math.expm1(logUncovered[k]);
+      double ideal = idealCoverage(keySpace, checkpoints[k], chainLength);
+      System.out.format("%,16d %,16d %,18.0f %13.4f%% %13.4f%%%n", checkpoints[k], reached[k],
+          covered, covered * 100 / keySpace, ideal * 100 / keySpace);
+    }
+  }
+
+  /**
+   * Reduces, then hashes, the key of each of the first <code>live</code> chains, in place, over
+   * the worker pool, moving each on from <code>position</code> to the next position.
+   * @param pool Worker pool
+   * @param threads Number of worker threads
+   * @param cfg Rainbow table 'Config' object
+   * @param keys Key space index of each chain's key
+   * @param live Number of chains walked
+   * @param position Position of the keys held
+   * @throws Exception A worker failed
+   */
+  protected static void stepChains(ExecutorService pool, int threads, Config cfg, long[] keys,
+      int live, int position) throws Exception {
+    List<Future<?>> results = new ArrayList<>();
+    int share = Math.max(1, (live + threads - 1) / threads);
+    for (int from = 0; from < live; from += share) {
+      final int start = from;
+      final int end = Math.min(live, from + share);
+      results.add(pool.submit(() -> {
+        HashFunction hashFunction = cfg.getHashType().newFunction(cfg.getKeyLen());
+        byte[] key = new byte[cfg.getKeyLen()];
+        byte[] hash = new byte[hashFunction.getDigestLength()];
+        for (int i = start; i < end; i++) {
+          int length = Tables.indexToKey(keys[i], cfg, key);
+          hashFunction.hash(key, 0, length, hash);
+          length = Tables.hashToKey(hash, position, cfg, key);
+          keys[i] = Tables.keyToIndex(key, length, cfg);
+        }
+      }));
+    }
+    for (Future<?> result : results) {
+      result.get();
+    }
+  }
+
+  /**
+   * Merges chains of the first <code>live</code> that hold the same key, keeping the first of
+   * each, with the earliest first row and the sum of the weights of those merged into it. Chains
+   * kept are moved to the front, in order.
+   * @param keys Key space index of each chain's key
+   * @param firstRows First row that reached each chain
+   * @param weights Rows merged into each chain
+   * @param live Number of chains
+   * @param slots Scratch hash table, at least four times the highest power of 2 in 'live'
+   * @return Number of chains kept
+   */
+  protected static int mergeChains(long[] keys, int[] firstRows, int[] weights, int live,
+      int[] slots) {
+    // Kept at most half full
+    int size = Integer.highestOneBit(Math.max(1, live)) * 4;
+    int mask = size - 1;
+    Arrays.fill(slots, 0, size, 0);
+    int kept = 0;
+    for (int i = 0; i < live; i++) {
+      long key = keys[i];
+      int slot = (int) Tables.mix64(key) & mask;
+      while (slots[slot] != 0 && keys[slots[slot] - 1] != key) {
+        slot = (slot + 1) & mask;
+      }
+      if (slots[slot] == 0) {
+        // First chain to hold this key
+        keys[kept] = key;
+        firstRows[kept] = firstRows[i];
+        weights[kept] = weights[i];
+        slots[slot] = ++kept;
+      } else {
+        int into = slots[slot] - 1;
+        firstRows[into] = Math.min(firstRows[into], firstRows[i]);
+        weights[into] += weights[i];
+      }
+    }
+
+    return kept;
+  }
+
+  /**
+   * Walks <code>--row-count</code> chains from the same random heads with each reduction, and
+   * prints the distinct keys found along them. Chains that merge find the same keys again, so
+   * the fewer merges a reduction causes, the more distinct keys it reaches.<br>
+   * For chains of a fixed length, the distinct keys an ideal reduction would reach are printed
+   * too. Each position then draws as many random keys as there are distinct chains left, and
+   * chains that draw the same key merge.
+   * @see Reduction
+   * @param args CLI arguments from main(String[]) method
+   * @param config Tool 'Config' object
+   */
+  public static void measureCoverage(String[] args, Config config) {
+    long keySpace = config.getKeySpace().size();
+    if (keySpace > MAX_COVERAGE_KEY_SPACE) {
+      System.out.println("Key space too large to measure coverage: " + keySpace + " keys");
+      System.exit(-1);
+    }
+    long chains = config.getRowCount();
+    long seed = ThreadLocalRandom.current().nextLong();
+
+    System.out.format("Coverage of %,d chains of %,d keys, over a key space of %,d keys%n",
+        chains, config.getChainLen(), keySpace);
+    System.out.format("%-10s %16s %16s %20s %14s%n", "Reduction", "Keys walked", "Distinct keys",
+        "Per million chains", "Of key space");
+    for (Reduction reduction : Reduction.values()) {
+      if (reduction == Reduction.FOLD && !config.getKeySpace().isFixedLength()) {
+        // Fold only makes keys of one length
+        continue;
+      }
+      // Same arguments, other than the reduction. Any passed are dropped, as only the first of a
+      // repeated option is read.
+      List<String> reductionArgs = new ArrayList<>();
+      for (int i = 0; i < args.length; i++) {
+        if (args[i].equals("--reduction")) {
+          i++;
+        } else if (!args[i].startsWith("--reduction=")) {
+          reductionArgs.add(args[i]);
+        }
+      }
+      reductionArgs.add("--reduction");
+      reductionArgs.add(reduction.getOptionName());
+      Config cfg = new Config(buildOptions(), reductionArgs.toArray(new String[0]));
+
+      long[] counts = countDistinctKeys(cfg, keySpace, chains, seed);
+      System.out.format("%-10s %,16d %,16d %,20.0f %13.4f%%%n", reduction.getOptionName(),
+          counts[0], counts[1], counts[1] * 1e6 / chains, 100.0 * counts[1] / keySpace);
+    }
+    if (config.getDpBits() == 0) {
+      double expected = idealCoverage(keySpace, chains, config.getChainLen());
+      System.out.format("%-10s %16s %,16.0f %,20.0f %13.4f%%%n", "ideal", "",
+          expected, expected * 1e6 / chains, 100.0 * expected / keySpace);
+    }
+  }
+
+  /**
+   * Walks <code>chains</code> chains over the worker pool, marking each key found in a bitmap of
+   * the key space. Heads are drawn from generators seeded by <code>seed</code>, so each call with
+   * the same seed and thread count walks from the same heads.
+   * @param cfg Rainbow table 'Config' object, giving the reduction used
+   * @param keySpace Key space size
+   * @param chains Number of chains to walk
+   * @param seed Seed of the generators heads are drawn from
+   * @return Keys walked, then distinct keys found
+   */
+  protected static long[] countDistinctKeys(Config cfg, long keySpace, long chains, long seed) {
+    AtomicLongArray found = new AtomicLongArray((int) ((keySpace + 63) >>> 6));
+    int threads = cfg.getThreadCount();
+    ExecutorService pool = Executors.newFixedThreadPool(threads);
+    List<Future<long[]>> results = new ArrayList<>();
+    for (int t = 0; t < threads; t++) {
+      final long share = chains / threads + (t < chains % threads ? 1 : 0);
+      final SplittableRandom random = new SplittableRandom(seed + t);
+      results.add(pool.submit(() -> walkChains(cfg, keySpace, share, random, found)));
+    }
+    long[] counts = new long[2];
+    try {
+      for (Future<long[]> result : results) {
+        counts[0] += result.get()[0];
+        counts[1] += result.get()[1];
+      }
+    } catch (Exception e) {
+      e.printStackTrace();
+      System.exit(-1);
+    } finally {
+      pool.shutdown();
+    }
+
+    return counts;
+  }
+
+  /**
+   * Walks <code>chains</code> chains, marking each key found in <code>found</code>.
+   * @param cfg Rainbow table 'Config' object
+   * @param keySpace Key space size
+   * @param chains Number of chains to walk
+   * @param random Generator heads are drawn from
+   * @param found Bitmap of the keys found, by key space index
+   * @return Keys walked, then keys found that no other walk had found
+   */
+  protected static long[] walkChains(Config cfg, long keySpace, long chains,
+      SplittableRandom random, AtomicLongArray found) {
+    int chainLength = cfg.getChainLen();
+    int dpBits = cfg.getDpBits();
+    HashFunction hashFunction = cfg.getHashType().newFunction(cfg.getKeyLen());
+    byte[] key = new byte[cfg.getKeyLen()];
+    byte[] hash = new byte[hashFunction.getDigestLength()];
+    long walked = 0;
+    long distinct = 0;
+    for (long c = 0; c < chains; c++) {
+      int length = Tables.indexToKey(random.nextLong(keySpace), cfg, key);
+      for (int position = 0; ; position++) {
+        long index = Tables.keyToIndex(key, length, cfg);
+        long bit = 1L << index;
+        int word = (int) (index >>> 6);
+        if ((found.get(word) & bit) == 0
+            && (found.getAndAccumulate(word, bit, (a, b) -> a | b) & bit) == 0) {
+          distinct++;
+        }
+        walked++;
+        if (position == chainLength - 1) {
+          break;
+        }
+        hashFunction.hash(key, 0, length, hash);
+        if (dpBits > 0 && Tables.isDistinguished(Tables.truncateHash(hash), dpBits)) {
+          break;
+        }
+        length = Tables.hashToKey(hash, dpBits > 0 ? 0 : position, cfg, key);
+      }
+    }
+
+    return new long[] {walked, distinct};
+  }
+
+  /**
+   * Distinct keys found along <code>chains</code> chains of a fixed length, were each reduction
+   * an ideal random function. Heads are drawn at random, as is each later key, so the distinct
+   * keys at each position shrink as chains merge, with m<sub>i+1</sub> = N(1 -
+   * e<sup>-m<sub>i</sub>/N</sup>). Each position's keys are independent of the others'.
+   * @param keySpace Key space size, N
+   * @param chains Number of chains
+   * @param chainLength Keys per chain
+   * @return Expected distinct keys
+   */
+  protected static double idealCoverage(long keySpace, long chains, int chainLength) {
+    double n = keySpace;
+    double m = n * -Math.expm1(-chains / n); // Distinct heads
+    double logUncovered = 0; // Log of the chance that a key is found at no position
+    for (int i = 0; i < chainLength; i++) {
+      logUncovered += Math.log1p(-Math.min(m / n, 1 - 1e-12));
+      m = n * -Math.expm1(-m / n);
+    }
+
+    return n * -Math.expm1(logUncovered);
+  }
+
+  /**
+   * Return the key space index of <code>key</code>, exiting if there's no key or it isn't in the
+   * key space.
+   * @param key Plain-text key passed to --key, or null
+   * @param config Tool 'Config' object
+   * @return Key space index
+   */
+  protected static long headIndex(String key, Config config) {
+    if (key == null) {
+      System.out.println("--key is required");
+      System.exit(-1);
+    }
+    long head = Tables.keyToIndex(key, config);
+    if (head < 0) {
+      System.out.println("Key isn't in the key space: " + key);
+      System.exit(-1);
+    }
+    return head;
+  }
+
+  /**
+   * Return the key space index of each key along the chain that starts with the key at
+   * <code>head</code>, to its end.
+   * @param cfg Rainbow table 'Config' object
+   * @param head Key space index of the chain-head key
+   * @return Key space indexes, by position
+   */
+  protected static long[] chainKeys(Config cfg, long head) {
+    int chainLength = cfg.getChainLen();
+    int dpBits = cfg.getDpBits();
+    HashFunction hashFunction = cfg.getHashType().newFunction(cfg.getKeyLen());
+    byte[] key = new byte[cfg.getKeyLen()];
+    byte[] hash = new byte[hashFunction.getDigestLength()];
+    long[] indexes = new long[chainLength];
+    int length = Tables.indexToKey(head, cfg, key);
+    indexes[0] = head;
+    for (int position = 0; position < chainLength - 1; position++) {
+      hashFunction.hash(key, 0, length, hash);
+      if (dpBits > 0 && Tables.isDistinguished(Tables.truncateHash(hash), dpBits)) {
+        return Arrays.copyOf(indexes, position + 1);
+      }
+      length = Tables.hashToKey(hash, dpBits > 0 ? 0 : position, cfg, key);
+      indexes[position + 1] = Tables.keyToIndex(key, length, cfg);
+    }
+
+    return indexes;
+  }
+
+  /**
+   * Position of the first key of <code>chain</code> with index <code>index</code>.
+   * @param chain Key space indexes, by position
+   * @param index Key space index
+   * @return Position, or -1 if absent
+   */
+  private static int positionOf(long[] chain, long index) {
+    for (int i = 0; i < chain.length; i++) {
+      if (chain[i] == index) {
+        return i;
+      }
+    }
+    return -1;
+  }
 
   public static void main(String[] args) {
-    // For debugging
-//    String[] debug_args = {"--key", "car",
-//        "--key-length", "3",
-//        "--chain-length", "10",
-//        "--table-length", "14000",
-//        "--print-chain"};
-//    args = debug_args;
     // Create new 'Config' object
-    System.out.println(Arrays.toString(args));
     Config toolConfig = new Config(buildOptions(), args);
 
-//    if(toolConfig.containsArg("print-chain")) {
-//      createChainFromKey(toolConfig.getKey(), toolConfig.getChainLen(), toolConfig.getKeyLen());
-//    }
-//    } else if(toolConfig.containsArg("print-collisions")) {
-//
-//    }
-
+    if(toolConfig.containsArg("coverage")) {
+      measureCoverage(args, toolConfig);
+    }
 
+    if(toolConfig.containsArg("print-chain")) {
+      printChain(toolConfig.getKey(), toolConfig);
+    }
+    if(toolConfig.containsArg("print-collisions")) {
+      printKeyCollisions(toolConfig.getKey(), toolConfig);
+    }
+    if(toolConfig.containsArg("analyze")) {
+      analyzeChains(toolConfig);
+    }
   }
 }
\ No newline at end of file
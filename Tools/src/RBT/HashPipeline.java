@@ -0,0 +1,301 @@
+package RBT;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Hashes every line read from a channel, writing each hash as a line of hex to another.<p>
+ * Input is read in large chunks, each cut at its last newline, with the partial line left over
+ * carried to the front of the next chunk. Lines are never made into <code>String</code>s: each
+ * chunk is split on newlines in place, and hashed as it is, one byte per byte, on a pool of
+ * worker threads, each with a <code>HashFunction</code> of its own. Lines end at '\n', and a '\r'
+ * before it is dropped, so lines match those of <code>Files.lines()</code>. NTLM hashes text as
+ * UTF-16LE, so lines holding anything other than ASCII are decoded from UTF-8 first.</p><p>
+ * Each chunk's hashes are encoded as hex by its worker, then gathered into a large direct buffer
+ * and written out in bulk. Output is either in input order, or in whatever order chunks complete
+ * in, which keeps every worker busy when chunks take differing times. No more than a fixed number
+ * of chunks are ever queued or being hashed, so memory use doesn't depend on the input size.</p>
+ * A <code>HashPipeline</code> may be run more than once, but not by two threads at once.
+ *
+ * @see HashWords
+ * @see Hex#encode(byte[], byte[], int)
+ */
+public class HashPipeline {
+  /** Default bytes read from the input at a time. */
+  static final int DEFAULT_CHUNK_SIZE = 4 << 20;
+  /** Bytes of output gathered before each write. */
+  static final int OUTPUT_BUFFER_SIZE = 8 << 20;
+  /** Chunks allowed to be queued or being hashed, per worker thread. */
+  static final int IN_FLIGHT_PER_THREAD = 2;
+
+  /** Hash algorithm applied to each line. */
+  private final HashType type;
+  /** Number of worker threads. */
+  private final int threads;
+  /** Bytes read from the input at a time, unless a line is longer. */
+  private final int chunkSize;
+  /** Whether hashes are written in the order their lines were read. */
+  private final boolean ordered;
+  /** Bytes taken by each line of output: the hash as hex, and a newline. */
+  private final int lineWidth;
+  /** Per-thread 'HashFunction' objects, so that each worker has its own buffers. */
+  private final ThreadLocal<HashFunction> hashFunctions;
+  /** Lines hashed by the most recent run. */
+  private long lineCount;
+  /** Bytes read by the most recent run. */
+  private long bytesRead;
+
+  /**
+   * Constructs a <code>HashPipeline</code> that hashes lines with <code>type</code>.
+   * @param type Hash algorithm
+   * @param threads Number of worker threads
+   * @param chunkSize Bytes read from the input at a time
+   * @param ordered Whether hashes are written in input order
+   */
+  public HashPipeline(HashType type, int threads, int chunkSize, boolean ordered) {
+    this.type = type;
+    this.threads = threads;
+    this.chunkSize = chunkSize;
+    this.ordered = ordered;
+    lineWidth = type.getDigestLength() * 2 + 1;
+    hashFunctions = ThreadLocal.withInitial(type::newFunction);
+  }
+
+  // PUBLIC
+  /**
+   * Hashes every line read from <code>in</code>, until the end of its input, writing the hashes
+   * to <code>out</code>. Neither channel is closed.
+   * @param in Source of lines
+   * @param out Where hashes are written, one per line
+   * @return Lines hashed
+   * @throws IOException Unable to read or write, or a worker failed
+   */
+  public long run(ReadableByteChannel in, WritableByteChannel out) throws IOException {
+    lineCount = 0;
+    bytesRead = 0;
+    ExecutorService pool = Executors.newFixedThreadPool(threads);
+    CompletionService<ByteBuffer> completion = new ExecutorCompletionService<>(pool);
+    ArrayDeque<Future<ByteBuffer>> pending = new ArrayDeque<>(); // Chunks in input order
+    int inFlight = 0;
+    int maxInFlight = threads * IN_FLIGHT_PER_THREAD;
+    ByteBuffer output = ByteBuffer.allocateDirect(OUTPUT_BUFFER_SIZE);
+
+    try {
+      byte[] rest = null; // Chunk holding the partial line left over, if any
+      int restFrom = 0;
+      int restLength = 0;
+      boolean eof = false;
+      while (!eof) {
+        // Grown when a single line doesn't fit a chunk
+        byte[] chunk = new byte[Math.max(chunkSize, restLength * 2)];
+        if (restLength > 0) {
+          System.arraycopy(rest, restFrom, chunk, 0, restLength);
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(chunk);
+        buffer.position(restLength);
+        eof = fill(in, buffer);
+        int length = buffer.position();
+        bytesRead += length - restLength;
+        int end = eof ? length : lastNewline(chunk, length) + 1;
+        rest = chunk;
+        restFrom = end;
+        restLength = length - end;
+        if (end == 0) {
+          continue;
+        }
+
+        final byte[] lines = chunk;
+        final int linesEnd = end;
+        if (ordered) {
+          pending.add(pool.submit(() -> hashLines(lines, linesEnd)));
+          // Write whatever's complete at the head, waiting on it only once too much is queued
+          while (!pending.isEmpty() && (pending.size() >= maxInFlight || pending.peek().isDone())) {
+            write(pending.poll().get(), output, out);
+          }
+        } else {
+          completion.submit(() -> hashLines(lines, linesEnd));
+          inFlight++;
+          Future<ByteBuffer> done;
+          while (inFlight > 0 && (done = inFlight >= maxInFlight
+              ? completion.take() : completion.poll()) != null) {
+            write(done.get(), output, out);
+            inFlight--;
+          }
+        }
+      }
+
+      // Write out what's still being hashed
+      while (!pending.isEmpty()) {
+        write(pending.poll().get(), output, out);
+      }
+      for (; inFlight > 0; inFlight--) {
+        write(completion.take().get(), output, out);
+      }
+      flush(output, out);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted hashing lines");
+    } catch (ExecutionException e) {
+      throw new IOException("Unable to hash lines", e.getCause());
+    } finally {
+      pool.shutdownNow();
+    }
+
+    return lineCount;
+  }
+
+  /**
+   * Number of lines hashed by the most recent run.
+   * @return Line count
+   */
+  public long getLineCount() {
+    return lineCount;
+  }
+
+  /**
+   * Number of bytes read by the most recent run.
+   * @return Bytes read
+   */
+  public long getBytesRead() {
+    return bytesRead;
+  }
+
+  // PROTECTED
+  /**
+   * Hashes each line of the first <code>end</code> bytes of <code>chunk</code>, using the calling
+   * thread's <code>HashFunction</code>. Safe to call from any thread.
+   * @param chunk Lines, each ending with '\n', except perhaps the last line of the input
+   * @param end Bytes of 'chunk' holding lines
+   * @return One line of hex per line of 'chunk', ready to be written
+   */
+  protected ByteBuffer hashLines(byte[] chunk, int end) {
+    HashFunction hasher = hashFunctions.get();
+    byte[] hash = new byte[type.getDigestLength()];
+    int count = chunk[end - 1] == '\n' ? 0 : 1;
+    for (int i = 0; i < end; i++) {
+      if (chunk[i] == '\n') {
+        count++;
+      }
+    }
+
+    byte[] hex = new byte[count * lineWidth];
+    int at = 0;
+    for (int start = 0; start < end; ) {
+      int stop = start;
+      while (stop < end && chunk[stop] != '\n') {
+        stop++;
+      }
+      int lineEnd = stop > start && chunk[stop - 1] == '\r' ? stop - 1 : stop;
+      hashLine(hasher, chunk, start, lineEnd - start, hash);
+      Hex.encode(hash, hex, at);
+      hex[at + lineWidth - 1] = '\n';
+      at += lineWidth;
+      start = stop + 1;
+    }
+
+    return ByteBuffer.wrap(hex);
+  }
+
+  // PRIVATE
+  /**
+   * Hashes the line of <code>length</code> bytes at <code>offset</code> in <code>chunk</code>.
+   * @param hasher The calling thread's hash function
+   * @param chunk Lines
+   * @param offset Position of the line's first byte
+   * @param length Bytes in the line, its newline excluded
+   * @param hash Receives the hash
+   */
+  private void hashLine(HashFunction hasher, byte[] chunk, int offset, int length, byte[] hash) {
+    if (type == HashType.NTLM) {
+      for (int i = offset; i < offset + length; i++) {
+        if (chunk[i] < 0) {
+          // Beyond ASCII, UTF-16LE isn't one byte zero-extended per byte
+          String line = new String(chunk, offset, length, StandardCharsets.UTF_8);
+          System.arraycopy(hasher.hash(line), 0, hash, 0, hash.length);
+          return;
+        }
+      }
+    }
+    hasher.hash(chunk, offset, length, hash);
+  }
+
+  /**
+   * Adds <code>hashed</code> to <code>output</code>, writing <code>output</code> out first if it
+   * hasn't room.
+   * @param hashed Lines of hex from 'hashLines()'
+   * @param output Direct buffer gathering output
+   * @param out Where output is written
+   * @throws IOException Unable to write
+   */
+  private void write(ByteBuffer hashed, ByteBuffer output, WritableByteChannel out)
+      throws IOException {
+    lineCount += hashed.remaining() / lineWidth;
+    if (hashed.remaining() > output.remaining()) {
+      flush(output, out);
+    }
+    if (hashed.remaining() > output.remaining()) {
+      // Larger than the whole buffer, so written as it is
+      while (hashed.hasRemaining()) {
+        out.write(hashed);
+      }
+    } else {
+      output.put(hashed);
+    }
+  }
+
+  /**
+   * Writes out everything gathered in <code>output</code>, leaving it empty.
+   * @param output Direct buffer gathering output
+   * @param out Where output is written
+   * @throws IOException Unable to write
+   */
+  private static void flush(ByteBuffer output, WritableByteChannel out) throws IOException {
+    output.flip();
+    while (output.hasRemaining()) {
+      out.write(output);
+    }
+    output.clear();
+  }
+
+  /**
+   * Reads from <code>in</code> until <code>buffer</code> is full, or the input ends.
+   * @param in Source of lines
+   * @param buffer Buffer to fill
+   * @return True if the input ended
+   * @throws IOException Unable to read
+   */
+  private static boolean fill(ReadableByteChannel in, ByteBuffer buffer) throws IOException {
+    while (buffer.hasRemaining()) {
+      if (in.read(buffer) < 0) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Position of the last '\n' in the first <code>length</code> bytes of <code>chunk</code>.
+   * @param chunk Bytes read
+   * @param length Bytes of 'chunk' read
+   * @return Position, or -1 if there's no newline
+   */
+  private static int lastNewline(byte[] chunk, int length) {
+    for (int i = length - 1; i >= 0; i--) {
+      if (chunk[i] == '\n') {
+        return i;
+      }
+    }
+    return -1;
+  }
+}
@@ -1,11 +1,14 @@
 package RBT;
 
-import java.io.BufferedWriter;
-import java.io.File;
+import java.io.FileDescriptor;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
-import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.util.Arrays;
 import java.util.stream.Collectors;
 import org.apache.commons.cli.CommandLine;
@@ -16,7 +19,9 @@ import org.apache.commons.cli.Option;
 import org.apache.commons.cli.Options;
 
 /**
- * CLI program that accepts plain-text strings and outputs hashes as 40-character hex strings.
+ * CLI program that accepts plain-text strings and outputs hashes as hex strings, using the hash
+ * chosen by <code>--hash</code>. A word given on the command line is hashed alone; otherwise
+ * every line of the input file, or of stdin, is hashed, one hash per line of output.
  *
  * @see Config
  * @see Search
@@ -24,6 +29,11 @@ import org.apache.commons.cli.Options;
  * @author Chris Cameron
  */
 public class HashWords {
+  /** Default hash algorithm. */
+  protected static final String DEFAULT_HASH = Config.DEFAULT_HASH;
+  /** Default number of worker threads, being every available core. */
+  protected static final String DEFAULT_THREAD_COUNT = Config.DEFAULT_THREAD_COUNT;
+
   /**
    * Generates a <code>CommandLine</code> object, given CLI arguments passed by user.
    * @see CommandLine
@@ -36,7 +46,7 @@ public class HashWords {
     options.addOption(
         Option.builder("i")
             .longOpt("input")
-            .desc("Input file")
+            .desc("Input file, one word per line (default: stdin)")
             .hasArg()
             .argName("file")
             .required(false)
@@ -45,12 +55,38 @@ public class HashWords {
     options.addOption(
         Option.builder("o")
             .longOpt("output")
-            .desc("Output file")
+            .desc("Output file, one hash per line (default: stdout)")
             .hasArg()
             .argName("file")
             .required(false)
             .build()
     );
+    options.addOption(
+        Option.builder()
+            .longOpt("hash")
+            .desc("Hash algorithm: sha1, md5, sha256 or ntlm (default: " + DEFAULT_HASH + ")")
+            .hasArg()
+            .argName("NAME")
+            .required(false)
+            .build()
+    );
+    options.addOption(
+        Option.builder()
+            .longOpt("threads")
+            .desc("Number of threads hashing lines (default: " + DEFAULT_THREAD_COUNT + ")")
+            .hasArg()
+            .argName("NUM")
+            .required(false)
+            .build()
+    );
+    options.addOption(
+        Option.builder()
+            .longOpt("unordered")
+            .desc("Write hashes as soon as they're ready, rather than in input order")
+            .hasArg(false)
+            .required(false)
+            .build()
+    );
 
     CommandLineParser parser = new DefaultParser();
     CommandLine cmd = null;
@@ -65,78 +101,93 @@ public class HashWords {
     return cmd;
   }
 
-  /**
-   * A <code>BufferedWriter</code> encapsulated in a <code>try{}</code> block.
-   * This is done to allow the use of <code>BufferedWriter.write(String)</code> in a
-   * lambda expression.
-   * @see BufferedWriter#write(String)
-   * @param bw BufferedWriter
-   * @param s Hash in 40-character hex form to be written
-   */
-  protected static void safeBufferedWrite(BufferedWriter bw, String s) {
-    try {
-      bw.write(s);
-    } catch(Exception e) {
-      System.exit(-1);
-    }
-  }
-
   /**
    * Main method which reads input, generates necessary hashes, and writes output to screen or file.
+   * Lines are read from the input file, or stdin, and hashed in parallel by a
+   * <code>HashPipeline</code>. How fast, in lines per second, is reported on stderr.
+   * @see HashPipeline
    * @param args CLI arguments from main(String[]) method
    * @throws IOException Unable to create supplied output file
    */
   public static void main(String[] args) throws IOException {
     CommandLine cmd = parseArguments(args);
 
+    HashType hashType = null;
+    try {
+      hashType = HashType.forName(cmd.getOptionValue("hash", DEFAULT_HASH));
+    } catch (IllegalArgumentException e) {
+      System.out.println("Unknown hash: " + cmd.getOptionValue("hash"));
+      System.exit(-1);
+    }
+    final HashFunction hasher = hashType.newFunction();
+
     // If a string was given on CLI, hash, print, exit
     if(cmd.getArgs().length > 0) {
       String strToHash = Arrays.stream(cmd.getArgs()).
           collect(Collectors.joining(" "));
       System.out.println("Input: " + strToHash);
-      System.out.println("Output: " + Tables.byteArrayToHexString(Tables.createShaHash(strToHash)));
+      System.out.println("Output: " + Tables.byteArrayToHexString(hasher.hash(strToHash)));
       System.exit(0);
     }
 
-    // If input file is given, check it can be read
-    File inputFile = null;
-    if(cmd.hasOption("input")) {
-      inputFile = new File(cmd.getOptionValue("input"));
+    int threads = 0;
+    try {
+      threads = Integer.parseInt(cmd.getOptionValue("threads", DEFAULT_THREAD_COUNT));
+    } catch (NumberFormatException e) {
+      // Reported below
+    }
+    if (threads < 1) {
+      System.out.println("--threads must be a positive number: " + cmd.getOptionValue("threads"));
+      System.exit(-1);
+    }
 
-      if(!inputFile.canRead()) {
+    // If input file is given, check it can be read, otherwise read from stdin
+    ReadableByteChannel in = null;
+    if(cmd.hasOption("input") && !cmd.getOptionValue("input").equals("-")) {
+      try {
+        in = FileChannel.open(Paths.get(cmd.getOptionValue("input")), StandardOpenOption.READ);
+      } catch (IOException e) {
         System.out.println("Cannot read file: " + cmd.getOptionValue("input"));
         System.exit(-1);
       }
     } else {
-      // At some point I would read from STDIN if there wasn't an input file.
-      // At this point, I'll just exit.
-      System.exit(0);
+      in = new FileInputStream(FileDescriptor.in).getChannel();
     }
 
-    // If output file is given, obtain a BufferedWriter
-    File outputFile = null;
-    if(cmd.hasOption("output")) {
+    // If output file is given, write hashes to it, otherwise to stdout
+    WritableByteChannel out = null;
+    if(cmd.hasOption("output") && !cmd.getOptionValue("output").equals("-")) {
       try {
-        final BufferedWriter outputWriter = Files.newBufferedWriter(
-            Paths.get(cmd.getOptionValue("output")), StandardCharsets.UTF_8);
-        // Write hashes to file
-        Files.lines(inputFile.toPath()).
-            map(Tables::createShaHash).
-            map(Tables::byteArrayToHexString).
-            forEach(h -> safeBufferedWrite(outputWriter, h + "\n"));
-        outputWriter.close();
-      } catch (Exception e) {
-        e.printStackTrace();
+        out = FileChannel.open(Paths.get(cmd.getOptionValue("output")),
+            StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+            StandardOpenOption.WRITE);
+      } catch (IOException e) {
         System.out.println("Cannot create specified output file: " +
             cmd.getOptionValue("output"));
         System.exit(-1);
       }
     } else {
-      // Write to stdout
-      Files.lines(inputFile.toPath()).
-          map(Tables::createShaHash).
-          map(Tables::byteArrayToHexString).
-          forEach(System.out::println);
+      out = new FileOutputStream(FileDescriptor.out).getChannel();
     }
+
+    HashPipeline pipeline = new HashPipeline(hashType, threads,
+        HashPipeline.DEFAULT_CHUNK_SIZE, !cmd.hasOption("unordered"));
+    long startTime = System.nanoTime();
+    try {
+      pipeline.run(in, out);
+    } catch (IOException e) {
+      e.printStackTrace();
+      System.out.println("Unable to hash input: " + e.getMessage());
+      System.exit(-1);
+    } finally {
+      in.close();
+      out.close();
+    }
+
+    // Kept off stdout, which may be holding the hashes
+    long elapsed = Math.max(1, System.nanoTime() - startTime);
+    System.err.format("Hashed %,d lines (%,d bytes) in %,d ms, %,d lines/s, using %d thread(s)%n",
+        pipeline.getLineCount(), pipeline.getBytesRead(), elapsed / 1000000,
+        pipeline.getLineCount() * 1000000000L / elapsed, threads);
   }
-}
\ No newline at end of file
+}